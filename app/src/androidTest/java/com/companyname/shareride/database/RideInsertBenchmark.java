@@ -0,0 +1,144 @@
+package com.companyname.shareride.database;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.companyname.shareride.Ride;
+import com.companyname.shareride.utils.LocationUtils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ride inserts before and after the cached-statement path, timed on the device:
+ * <ul>
+ *   <li>before: a ContentValues insert per ride, as createRide did before it bound a
+ *       precompiled statement</li>
+ *   <li>createRide for each ride: the cached statement, one transaction per ride</li>
+ *   <li>createRides: the cached statement, IMPORT_CHUNK_SIZE rides per transaction</li>
+ * </ul>
+ * Times go to logcat (tag RideInsertBenchmark).
+ */
+@RunWith(AndroidJUnit4.class)
+public class RideInsertBenchmark {
+
+    private static final String TAG = "RideInsertBenchmark";
+
+    private static final long DRIVER_ID = 1;
+    private static final int RIDES = 2_000;
+    private static final int WARMUP_RIDES = 100;
+
+    @Rule
+    public TestDatabase database = new TestDatabase();
+
+    private DatabaseHelper dbHelper;
+    private RideDAO rideDAO;
+
+    @Before
+    public void setUp() {
+        dbHelper = database.getHelper();
+        rideDAO = new RideDAO(dbHelper);
+        database.addUser(DRIVER_ID);
+    }
+
+    @Test
+    public void insertRides() {
+        // Compile the statements and grow the database file before timing anything
+        insertWithContentValues(rides(WARMUP_RIDES));
+        insertOneByOne(rides(WARMUP_RIDES));
+        assertEquals(WARMUP_RIDES, rideDAO.createRides(rides(WARMUP_RIDES)));
+
+        List<Ride> beforeRides = rides(RIDES);
+        List<Ride> oneByOneRides = rides(RIDES);
+        List<Ride> batchedRides = rides(RIDES);
+        long before = time(() -> assertEquals(RIDES, insertWithContentValues(beforeRides)));
+        long oneByOne = time(() -> assertEquals(RIDES, insertOneByOne(oneByOneRides)));
+        long batched = time(() -> assertEquals(RIDES, rideDAO.createRides(batchedRides)));
+
+        report("ContentValues insert per ride", before);
+        report("createRide per ride", oneByOne);
+        report("createRides", batched);
+
+        assertEquals(3 * (WARMUP_RIDES + RIDES), rideDAO.getRideCountForDriver(DRIVER_ID));
+    }
+
+    // The insert createRide made before its statement was cached; returns the rides inserted
+    private int insertWithContentValues(List<Ride> rides) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        int inserted = 0;
+        for (Ride ride : rides) {
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.KEY_DRIVER_ID, ride.getDriverId());
+            values.put(DatabaseHelper.KEY_FROM_ADDRESS, ride.getFromAddress());
+            values.put(DatabaseHelper.KEY_FROM_LATITUDE, ride.getFromLatitude());
+            values.put(DatabaseHelper.KEY_FROM_LONGITUDE, ride.getFromLongitude());
+            values.put(DatabaseHelper.KEY_TO_ADDRESS, ride.getToAddress());
+            values.put(DatabaseHelper.KEY_TO_LATITUDE, ride.getToLatitude());
+            values.put(DatabaseHelper.KEY_TO_LONGITUDE, ride.getToLongitude());
+            values.put(DatabaseHelper.KEY_DEPARTURE_TIME, ride.getDepartureTime());
+            values.put(DatabaseHelper.KEY_AVAILABLE_SEATS, ride.getAvailableSeats());
+            values.put(DatabaseHelper.KEY_PRICE, ride.getPrice());
+            values.put(DatabaseHelper.KEY_RIDE_STATUS, ride.getStatus());
+            values.put(DatabaseHelper.KEY_NOTES, ride.getNotes());
+            values.put(DatabaseHelper.KEY_FROM_CELL,
+                    LocationUtils.getGridCellId(ride.getFromLatitude(), ride.getFromLongitude()));
+            values.put(DatabaseHelper.KEY_TO_CELL,
+                    LocationUtils.getGridCellId(ride.getToLatitude(), ride.getToLongitude()));
+            values.put(DatabaseHelper.KEY_CREATED_AT, DatabaseHelper.getCurrentTimestamp());
+            values.put(DatabaseHelper.KEY_UPDATED_AT, DatabaseHelper.getCurrentTimestamp());
+
+            if (db.insert(DatabaseHelper.TABLE_RIDES, null, values) > 0) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    private int insertOneByOne(List<Ride> rides) {
+        int inserted = 0;
+        for (Ride ride : rides) {
+            if (rideDAO.createRide(ride) > 0) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    private static List<Ride> rides(int count) {
+        Random random = new Random(count);
+        long now = System.currentTimeMillis();
+        List<Ride> rides = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Ride ride = new Ride(DRIVER_ID, "Pickup " + (i % 50), 12 + random.nextDouble(), 77 + random.nextDouble(),
+                    "Drop-off " + (i % 50), 12 + random.nextDouble(), 77 + random.nextDouble(),
+                    now + TimeUnit.MINUTES.toMillis(i + 60));
+            ride.setAvailableSeats(1 + random.nextInt(4));
+            ride.setPrice(50 + random.nextInt(450));
+            rides.add(ride);
+        }
+        return rides;
+    }
+
+    private static long time(Runnable work) {
+        long start = System.nanoTime();
+        work.run();
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String label, long nanos) {
+        Log.i(TAG, String.format("%s: %d rides in %.1f ms (%.0f rides/s)",
+                label, RIDES, nanos / 1e6, RIDES / (nanos / 1e9)));
+    }
+}
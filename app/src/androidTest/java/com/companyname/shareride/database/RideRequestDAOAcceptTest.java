@@ -0,0 +1,166 @@
+package com.companyname.shareride.database;
+
+import android.database.Cursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.companyname.shareride.Ride;
+import com.companyname.shareride.RideRequest;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Concurrent accepts of join requests against a test database: however many requests race for a
+ * ride, its seats never go negative and every accepted request is backed by the seats it took.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RideRequestDAOAcceptTest {
+
+    private static final long DRIVER_ID = 1;
+    private static final long FIRST_PASSENGER_ID = 1000;
+    private static final int SEATS = 25;
+    private static final int REQUESTS = 400;
+    private static final int THREADS = 16;
+
+    @Rule
+    public TestDatabase database = new TestDatabase();
+
+    private DatabaseHelper dbHelper;
+    private RideDAO rideDAO;
+    private RideRequestDAO requestDAO;
+
+    @Before
+    public void setUp() {
+        dbHelper = database.getHelper();
+        rideDAO = new RideDAO(dbHelper);
+        requestDAO = new RideRequestDAO(dbHelper);
+    }
+
+    @Test
+    public void acceptRequest_concurrentAcceptsNeverOverbook() throws Exception {
+        long rideId = createRide(SEATS);
+
+        // Passengers ask for one or two seats; all requests fit the empty ride when they are made
+        List<Long> requestIds = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            long requestId = requestDAO.createRequest(rideId, FIRST_PASSENGER_ID + i, i % 3 == 0 ? 2 : 1, null);
+            assertTrue(requestId > 0);
+            requestIds.add(requestId);
+        }
+
+        // Every request is accepted at once
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (long requestId : requestIds) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return requestDAO.acceptRequest(rideId, requestId);
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+
+        int acceptedCount = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                acceptedCount++;
+            }
+        }
+
+        int availableSeats = rideDAO.getRideById(rideId).getAvailableSeats();
+        assertTrue(availableSeats >= 0);
+        // Only a ride with one seat left can turn away every remaining two-seat request
+        assertTrue(availableSeats <= 1);
+
+        int[] accepted = countAcceptedRequests(rideId);
+        assertEquals(acceptedCount, accepted[0]);
+        assertEquals(SEATS - availableSeats, accepted[1]);
+        assertEquals(REQUESTS - acceptedCount, requestDAO.getPendingRequestCount(rideId));
+    }
+
+    @Test
+    public void acceptRequest_failsWhenNotEnoughSeats() {
+        long rideId = createRide(2);
+
+        assertEquals(RideRequestDAO.REQUEST_FAILED, requestDAO.createRequest(rideId, FIRST_PASSENGER_ID, 3, null));
+        long first = requestDAO.createRequest(rideId, FIRST_PASSENGER_ID, 2, null);
+        long second = requestDAO.createRequest(rideId, FIRST_PASSENGER_ID + 1, 1, null);
+        assertTrue(first > 0);
+        assertTrue(second > 0);
+
+        assertTrue(requestDAO.acceptRequest(rideId, first));
+        assertFalse(requestDAO.acceptRequest(rideId, second));
+        assertFalse(requestDAO.acceptRequest(rideId, first)); // No longer pending
+
+        assertEquals(0, rideDAO.getRideById(rideId).getAvailableSeats());
+        int[] accepted = countAcceptedRequests(rideId);
+        assertEquals(1, accepted[0]);
+        assertEquals(2, accepted[1]);
+    }
+
+    @Test
+    public void acceptRequests_takesRequestsInOrderWhileSeatsLast() {
+        long rideId = createRide(3);
+        long two = requestDAO.createRequest(rideId, FIRST_PASSENGER_ID, 2, null);
+        long alsoTwo = requestDAO.createRequest(rideId, FIRST_PASSENGER_ID + 1, 2, null);
+        long one = requestDAO.createRequest(rideId, FIRST_PASSENGER_ID + 2, 1, null);
+
+        List<Long> accepted = requestDAO.acceptRequests(rideId, Arrays.asList(two, alsoTwo, one));
+        assertEquals(Arrays.asList(two, one), accepted);
+        assertEquals(0, rideDAO.getRideById(rideId).getAvailableSeats());
+        assertEquals(Collections.singletonList(alsoTwo), pendingIds(rideId));
+    }
+
+    private long createRide(int seats) {
+        database.addUser(DRIVER_ID);
+        Ride ride = new Ride(DRIVER_ID, "MG Road, Bengaluru", 12.9756, 77.6066,
+                "Electronic City, Bengaluru", 12.8452, 77.6602,
+                System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1));
+        ride.setAvailableSeats(seats);
+
+        long rideId = rideDAO.createRide(ride);
+        assertTrue(rideId > 0);
+        return rideId;
+    }
+
+    private List<Long> pendingIds(long rideId) {
+        List<Long> ids = new ArrayList<>();
+        for (RideRequest request : requestDAO.getPendingRequestsForRide(rideId)) {
+            ids.add(request.getId());
+        }
+        return ids;
+    }
+
+    // {accepted requests, seats they hold}
+    private int[] countAcceptedRequests(long rideId) {
+        Cursor cursor = dbHelper.getReadableDatabase().rawQuery(
+                "SELECT COUNT(*), TOTAL(" + DatabaseHelper.KEY_SEATS_REQUESTED + ")" +
+                        " FROM " + DatabaseHelper.TABLE_RIDE_REQUESTS +
+                        " WHERE " + DatabaseHelper.KEY_RIDE_ID + " = ? AND " +
+                        DatabaseHelper.KEY_REQUEST_STATUS + " = ?",
+                new String[]{String.valueOf(rideId), DatabaseHelper.REQUEST_STATUS_ACCEPTED});
+        try {
+            assertTrue(cursor.moveToFirst());
+            return new int[]{cursor.getInt(0), cursor.getInt(1)};
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.companyname.shareride.database;
+
+import android.content.Context;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.companyname.shareride.utils.RideSpatialIndex;
+
+import org.junit.rules.ExternalResource;
+
+/**
+ * A DatabaseHelper on its own database file for one test, deleted afterwards, so instrumented
+ * tests never read or wipe the app's data in ShareRideDB:
+ *
+ *   @Rule public TestDatabase database = new TestDatabase();
+ *
+ * DAOs built with database.getHelper() still write through to the process-wide RideSpatialIndex,
+ * so the rule empties the index before and after each test; the app rebuilds it from its own rides.
+ */
+public class TestDatabase extends ExternalResource {
+
+    private static final String NAME = "ShareRideDB-test";
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+
+    @Override
+    protected void before() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        // Left over if a previous run was killed mid-test
+        context.deleteDatabase(NAME);
+        RideSpatialIndex.getInstance().clear();
+        dbHelper = new DatabaseHelper(context, NAME);
+    }
+
+    @Override
+    protected void after() {
+        dbHelper.closeDB();
+        context.deleteDatabase(NAME);
+        RideSpatialIndex.getInstance().clear();
+    }
+
+    public DatabaseHelper getHelper() {
+        return dbHelper;
+    }
+
+    // Rides and requests reference their users
+    public void addUser(long userId) {
+        dbHelper.ensureUserExists(userId);
+    }
+}
@@ -0,0 +1,181 @@
+package com.companyname.shareride.database;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.companyname.shareride.Ride;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Readers and writers on one WAL-configured DatabaseHelper at the same time.
+ * Reader threads load single rides and hour-long departure windows while writer threads update
+ * seat counts; the read latency percentiles and the write throughput go to logcat (tag
+ * WalContentionBenchmark), next to a run with the readers alone for comparison.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WalContentionBenchmark {
+
+    private static final String TAG = "WalContentionBenchmark";
+
+    private static final long DRIVER_ID = 1;
+    private static final int RIDES = 2_000;
+    private static final long WINDOW_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int READERS = 4;
+    private static final int WRITERS = 2;
+    private static final long RUN_MILLIS = 5_000;
+
+    @Rule
+    public TestDatabase database = new TestDatabase();
+
+    private DatabaseHelper dbHelper;
+    private RideDAO rideDAO;
+    private final List<Long> rideIds = new ArrayList<>();
+    private long firstDeparture;
+
+    @Before
+    public void setUp() {
+        dbHelper = database.getHelper();
+        rideDAO = new RideDAO(dbHelper);
+
+        database.addUser(DRIVER_ID);
+        List<Ride> rides = new ArrayList<>(RIDES);
+        Random random = new Random(1);
+        firstDeparture = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        for (int i = 0; i < RIDES; i++) {
+            Ride ride = new Ride(DRIVER_ID, "From " + i, 12 + random.nextDouble(), 77 + random.nextDouble(),
+                    "To " + i, 12 + random.nextDouble(), 77 + random.nextDouble(),
+                    firstDeparture + TimeUnit.MINUTES.toMillis(i));
+            ride.setAvailableSeats(4);
+            rides.add(ride);
+        }
+        assertEquals(RIDES, rideDAO.createRides(rides));
+        for (Ride ride : rides) {
+            rideIds.add(ride.getId());
+        }
+    }
+
+    @Test
+    public void readLatencyAndWriteThroughput() throws Exception {
+        assertEquals("wal", journalMode());
+
+        Result readersOnly = run(0);
+        Result mixed = run(WRITERS);
+
+        report("readers only", readersOnly);
+        report(READERS + " readers, " + WRITERS + " writers", mixed);
+
+        assertFalse(readersOnly.readNanos.isEmpty());
+        assertFalse(mixed.readNanos.isEmpty());
+        assertTrue(mixed.writes > 0);
+    }
+
+    private static class Result {
+        final List<Long> readNanos = new ArrayList<>();
+        long writes;
+        long elapsedNanos;
+    }
+
+    // READERS reader threads and the given number of writer threads, all for RUN_MILLIS
+    private Result run(int writers) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(READERS + writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Long>>> readers = new ArrayList<>();
+        List<Future<Long>> writerCounts = new ArrayList<>();
+
+        for (int i = 0; i < READERS; i++) {
+            final Random random = new Random(100 + i);
+            readers.add(executor.submit(() -> {
+                start.await();
+                List<Long> latencies = new ArrayList<>();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+                long lastDeparture = firstDeparture + TimeUnit.MINUTES.toMillis(RIDES);
+                while (System.nanoTime() < deadline) {
+                    long begin = System.nanoTime();
+                    if (random.nextBoolean()) {
+                        long from = firstDeparture + (long) (random.nextDouble() * (lastDeparture - firstDeparture));
+                        rideDAO.searchRidesByTimeRange(from, from + WINDOW_MILLIS);
+                    } else {
+                        assertNotNull(rideDAO.getRideById(rideIds.get(random.nextInt(rideIds.size()))));
+                    }
+                    latencies.add(System.nanoTime() - begin);
+                }
+                return latencies;
+            }));
+        }
+
+        for (int i = 0; i < writers; i++) {
+            final Random random = new Random(200 + i);
+            writerCounts.add(executor.submit(() -> {
+                start.await();
+                long writes = 0;
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+                while (System.nanoTime() < deadline) {
+                    long rideId = rideIds.get(random.nextInt(rideIds.size()));
+                    if (rideDAO.updateAvailableSeats(rideId, 1 + random.nextInt(4)) == 1) {
+                        writes++;
+                    }
+                }
+                return writes;
+            }));
+        }
+
+        Result result = new Result();
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<List<Long>> reader : readers) {
+            result.readNanos.addAll(reader.get());
+        }
+        for (Future<Long> writer : writerCounts) {
+            result.writes += writer.get();
+        }
+        result.elapsedNanos = System.nanoTime() - begin;
+        executor.shutdown();
+
+        Collections.sort(result.readNanos);
+        return result;
+    }
+
+    private void report(String label, Result result) {
+        double seconds = result.elapsedNanos / 1e9;
+        Log.i(TAG, String.format("%s: %d reads (%.0f/s), read p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms; " +
+                        "%d writes (%.0f/s)",
+                label, result.readNanos.size(), result.readNanos.size() / seconds,
+                percentileMillis(result.readNanos, 50), percentileMillis(result.readNanos, 95),
+                percentileMillis(result.readNanos, 99), percentileMillis(result.readNanos, 100),
+                result.writes, result.writes / seconds));
+    }
+
+    // Of a sorted list
+    private static double percentileMillis(List<Long> sortedNanos, int percentile) {
+        if (sortedNanos.isEmpty()) return 0;
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.size()) - 1;
+        return sortedNanos.get(Math.max(0, index)) / 1e6;
+    }
+
+    private String journalMode() {
+        Cursor cursor = dbHelper.getWritableDatabase().rawQuery("PRAGMA journal_mode", null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+}
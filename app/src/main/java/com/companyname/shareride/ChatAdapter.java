@@ -0,0 +1,183 @@
+package com.companyname.shareride;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.recyclerview.widget.RecyclerView;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ride chat, oldest message first. New messages are added at the end, so a new message binds
+ * one row instead of rebuilding the list, and older pages of history are added at the start as
+ * the user scrolls up. The list never holds more than MAX_MESSAGES: adding at the end drops the
+ * oldest, adding at the start drops the newest. Dropped messages are paged in again from ChatDAO,
+ * and the has*MessagesDropped flags tell the screen which end to page.
+ */
+public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder> {
+
+    public static final int MAX_MESSAGES = 200;
+
+    private final List<ChatMessage> messages = new ArrayList<>();
+    private boolean olderMessagesDropped = false;
+    private boolean newerMessagesDropped = false;
+
+    public ChatAdapter() {
+        setHasStableIds(true);
+    }
+
+    @Override
+    public ChatViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_chat_message, parent, false);
+        return new ChatViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(ChatViewHolder holder, int position) {
+        holder.bind(messages.get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return messages.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return messages.get(position).getId();
+    }
+
+    // Replace the conversation, e.g. when another ride's chat is opened
+    public void setMessages(List<ChatMessage> newMessages) {
+        messages.clear();
+        int from = Math.max(0, newMessages.size() - MAX_MESSAGES);
+        messages.addAll(newMessages.subList(from, newMessages.size()));
+        olderMessagesDropped = from > 0;
+        newerMessagesDropped = false;
+        notifyDataSetChanged();
+    }
+
+    public void appendMessage(ChatMessage message) {
+        messages.add(message);
+        notifyItemInserted(messages.size() - 1);
+        trimOldest();
+    }
+
+    public void appendMessages(List<ChatMessage> newMessages) {
+        if (newMessages.isEmpty()) return;
+
+        int start = messages.size();
+        messages.addAll(newMessages);
+        notifyItemRangeInserted(start, newMessages.size());
+        trimOldest();
+    }
+
+    // A page of the messages after the last one shown, paged back in while the user scrolls down
+    public void appendNewerMessages(List<ChatMessage> newerMessages, boolean reachedNewest) {
+        appendMessages(newerMessages);
+        newerMessagesDropped = !reachedNewest;
+    }
+
+    // Older history, oldest first, loaded while the user scrolls up
+    public void prependMessages(List<ChatMessage> olderMessages) {
+        if (olderMessages.isEmpty()) return;
+
+        messages.addAll(0, olderMessages);
+        notifyItemRangeInserted(0, olderMessages.size());
+        // The page was read right before the first message shown, so the older end is contiguous again
+        olderMessagesDropped = false;
+        trimNewest();
+    }
+
+    // Swap a message shown before it was stored for the stored copy, which carries its database ID
+    public void replaceMessage(ChatMessage shown, ChatMessage replacement) {
+        int position = indexOf(shown);
+        if (position < 0) return;
+
+        // The row's stable ID changes, so it is a new item to the RecyclerView
+        messages.set(position, replacement);
+        notifyItemRemoved(position);
+        notifyItemInserted(position);
+    }
+
+    public void removeMessage(ChatMessage shown) {
+        int position = indexOf(shown);
+        if (position < 0) return;
+
+        messages.remove(position);
+        notifyItemRemoved(position);
+    }
+
+    public void clearMessages() {
+        int count = messages.size();
+        if (count == 0) return;
+
+        messages.clear();
+        olderMessagesDropped = false;
+        newerMessagesDropped = false;
+        notifyItemRangeRemoved(0, count);
+    }
+
+    public boolean hasOlderMessagesDropped() {
+        return olderMessagesDropped;
+    }
+
+    // The conversation continues after the last message shown; new messages must not be added yet
+    public boolean hasNewerMessagesDropped() {
+        return newerMessagesDropped;
+    }
+
+    public ChatMessage getFirstMessage() {
+        return messages.isEmpty() ? null : messages.get(0);
+    }
+
+    public ChatMessage getLastMessage() {
+        return messages.isEmpty() ? null : messages.get(messages.size() - 1);
+    }
+
+    // Searched from the end, where messages still being sent are
+    private int indexOf(ChatMessage message) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) == message) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void trimOldest() {
+        int excess = messages.size() - MAX_MESSAGES;
+        if (excess <= 0) return;
+
+        messages.subList(0, excess).clear();
+        olderMessagesDropped = true;
+        notifyItemRangeRemoved(0, excess);
+    }
+
+    private void trimNewest() {
+        int excess = messages.size() - MAX_MESSAGES;
+        if (excess <= 0) return;
+
+        int start = messages.size() - excess;
+        messages.subList(start, messages.size()).clear();
+        newerMessagesDropped = true;
+        notifyItemRangeRemoved(start, excess);
+    }
+
+    static class ChatViewHolder extends RecyclerView.ViewHolder {
+        private final TextView tvMessage;
+
+        ChatViewHolder(View itemView) {
+            super(itemView);
+            tvMessage = itemView.findViewById(R.id.tv_message);
+        }
+
+        void bind(ChatMessage message) {
+            if (tvMessage == null || message == null) return;
+
+            tvMessage.setText(message.getDisplayText());
+            tvMessage.setBackgroundResource(message.isOwnMessage() ? R.drawable.bg_chat_own : R.drawable.bg_chat_other);
+        }
+    }
+}
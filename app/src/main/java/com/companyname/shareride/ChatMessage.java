@@ -1,18 +1,66 @@
 package com.companyname.shareride;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class ChatMessage {
+    // Messages not (yet) stored get negative IDs so they never clash with database rows
+    private static final AtomicLong nextLocalId = new AtomicLong(-1);
+
+    private long id;
+    private long rideId;
+    private long senderId;
+    private long receiverId;
     private String sender;
     private String message;
     private boolean isOwnMessage;
+    private boolean isRead;
+    private long timestamp;
 
     public ChatMessage(String sender, String message, boolean isOwnMessage) {
+        this(nextLocalId.getAndDecrement(), 0, 0, 0, sender, message, isOwnMessage, true,
+                System.currentTimeMillis());
+    }
+
+    // A new message from the current user, not stored yet
+    public ChatMessage(long rideId, long senderId, long receiverId, String message) {
+        this(nextLocalId.getAndDecrement(), rideId, senderId, receiverId, "You", message, true,
+                senderId == receiverId, System.currentTimeMillis());
+    }
+
+    public ChatMessage(long id, long rideId, long senderId, long receiverId, String sender, String message,
+                       boolean isOwnMessage, boolean isRead, long timestamp) {
+        this.id = id;
+        this.rideId = rideId;
+        this.senderId = senderId;
+        this.receiverId = receiverId;
         this.sender = sender;
         this.message = message;
         this.isOwnMessage = isOwnMessage;
+        this.isRead = isRead;
+        this.timestamp = timestamp;
     }
 
     // Getters
+    public long getId() { return id; }
+    public long getRideId() { return rideId; }
+    public long getSenderId() { return senderId; }
+    public long getReceiverId() { return receiverId; }
     public String getSender() { return sender; }
     public String getMessage() { return message; }
     public boolean isOwnMessage() { return isOwnMessage; }
-}
\ No newline at end of file
+    public boolean isRead() { return isRead; }
+    public long getTimestamp() { return timestamp; }
+
+    public boolean isStored() {
+        return id > 0;
+    }
+
+    // This message as stored under the given ID
+    public ChatMessage withId(long id) {
+        return new ChatMessage(id, rideId, senderId, receiverId, sender, message, isOwnMessage, isRead, timestamp);
+    }
+
+    public String getDisplayText() {
+        return sender + ": " + message;
+    }
+}
@@ -4,6 +4,7 @@ import android.Manifest;
 import android.app.DatePickerDialog;
 import android.app.TimePickerDialog;
 import android.content.pm.PackageManager;
+import android.location.Address;
 import android.location.Location;
 import android.os.Bundle;
 import android.os.Looper;
@@ -21,8 +22,11 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 import com.companyname.shareride.database.RideDAO;
+import com.companyname.shareride.utils.LifecycleTask;
 import com.companyname.shareride.utils.LocationSearchHelper;
 import com.companyname.shareride.utils.LocationUtils;
+import com.companyname.shareride.utils.ReverseGeocoder;
+import com.companyname.shareride.utils.TaskScheduler;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationCallback;
 import com.google.android.gms.location.LocationRequest;
@@ -270,30 +274,39 @@ public class CreateRideFragment extends Fragment {
     }
 
     private void setCurrentLocationAsFrom(Location location) {
-        try {
-            fromLatitude = location.getLatitude();
-            fromLongitude = location.getLongitude();
-
-            // Use LocationUtils to get address name
-            String locationName = LocationUtils.getAddressFromCoordinates(getContext(),
-                    fromLatitude, fromLongitude);
-
-            if (locationName != null && !locationName.isEmpty()) {
-                etFromLocation.setText(locationName);
-                etFromLocation.setTag("coords:" + fromLatitude + "," + fromLongitude);
-                Toast.makeText(requireContext(), "Current location set", Toast.LENGTH_SHORT).show();
-                calculateRouteInfo();
-            } else {
-                String coordsText = "Current Location (" + String.format("%.6f", fromLatitude) +
-                        ", " + String.format("%.6f", fromLongitude) + ")";
-                etFromLocation.setText(coordsText);
-                etFromLocation.setTag("coords:" + fromLatitude + "," + fromLongitude);
-                Toast.makeText(requireContext(), "Location set using coordinates", Toast.LENGTH_SHORT).show();
+        fromLatitude = location.getLatitude();
+        fromLongitude = location.getLongitude();
+        etFromLocation.setTag("coords:" + fromLatitude + "," + fromLongitude);
+
+        // Looked up off the UI thread; nearby fixes share a cached result
+        ReverseGeocoder.lookup(requireContext(), fromLatitude, fromLongitude, new ReverseGeocoder.Callback() {
+            @Override
+            public void onAddressResolved(double latitude, double longitude, Address address) {
+                if (!isAdded() || latitude != fromLatitude || longitude != fromLongitude) return;
+
+                String locationName = address != null ? LocationUtils.formatStreetAddress(address) : null;
+                if (locationName != null && !locationName.isEmpty()) {
+                    etFromLocation.setText(locationName);
+                    Toast.makeText(requireContext(), "Current location set", Toast.LENGTH_SHORT).show();
+                    calculateRouteInfo();
+                } else {
+                    setFromCoordinatesText();
+                }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            Toast.makeText(requireContext(), "Error setting current location", Toast.LENGTH_SHORT).show();
-        }
+
+            @Override
+            public void onLookupFailed(double latitude, double longitude, Exception e) {
+                if (!isAdded() || latitude != fromLatitude || longitude != fromLongitude) return;
+                setFromCoordinatesText();
+            }
+        });
+    }
+
+    private void setFromCoordinatesText() {
+        String coordsText = "Current Location (" + String.format("%.6f", fromLatitude) +
+                ", " + String.format("%.6f", fromLongitude) + ")";
+        etFromLocation.setText(coordsText);
+        Toast.makeText(requireContext(), "Location set using coordinates", Toast.LENGTH_SHORT).show();
     }
 
     private void showDateTimePicker() {
@@ -386,17 +399,26 @@ public class CreateRideFragment extends Fragment {
         isCreatingRide = true;
         showLoading(true);
 
-        // Create ride in background thread
-        new Thread(() -> {
-            try {
-                // Create ride object
-                Ride newRide = createRideObject();
-
-                // Insert into database
-                long rideId = rideDAO.createRide(newRide);
+        // Read the form here, while the views are still there
+        Ride newRide;
+        try {
+            newRide = createRideObject();
+        } catch (Exception e) {
+            e.printStackTrace();
+            isCreatingRide = false;
+            showLoading(false);
+            Toast.makeText(getContext(), "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
+        // Insert in background. The insert always completes, but the result is only shown
+        // while this view exists
+        LifecycleTask.executeToCompletion(getViewLifecycleOwner(),
+                TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.USER,
+                signal -> rideDAO.createRide(newRide),
+                new LifecycleTask.Callback<Long>() {
+                    @Override
+                    public void onResult(Long rideId) {
                         isCreatingRide = false;
                         showLoading(false);
 
@@ -412,20 +434,16 @@ public class CreateRideFragment extends Fragment {
                         } else {
                             Toast.makeText(getContext(), "Failed to create ride. Please try again.", Toast.LENGTH_SHORT).show();
                         }
-                    });
-                }
+                    }
 
-            } catch (Exception e) {
-                e.printStackTrace();
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
+                    @Override
+                    public void onError(Exception e) {
+                        e.printStackTrace();
                         isCreatingRide = false;
                         showLoading(false);
                         Toast.makeText(getContext(), "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    });
-                }
-            }
-        }).start();
+                    }
+                });
     }
 
     private String validateInputs() {
@@ -4,7 +4,6 @@ import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.location.Address;
-import android.location.Geocoder;
 import android.location.Location;
 import android.location.LocationManager;
 import android.os.Bundle;
@@ -31,8 +30,13 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.volley.BuildConfig;
 import com.companyname.shareride.database.RideDAO;
+import com.companyname.shareride.database.RideRequestDAO;
+import com.companyname.shareride.utils.LifecycleTask;
 import com.companyname.shareride.utils.LocationSearchHelper;
 import com.companyname.shareride.utils.LocationUtils;
+import com.companyname.shareride.utils.ReverseGeocoder;
+import com.companyname.shareride.utils.RideSpatialIndex;
+import com.companyname.shareride.utils.TaskScheduler;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationCallback;
 import com.google.android.gms.location.LocationRequest;
@@ -45,16 +49,16 @@ import com.google.android.material.textfield.MaterialAutoCompleteTextView;
 import android.widget.ArrayAdapter;
 
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Locale;
 
 public class HomeFragment extends Fragment {
     private MaterialAutoCompleteTextView spnWhen;
 
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1000;
     private static final double DEFAULT_SEARCH_RADIUS_KM = 50.0;
+    private static final int MAX_SEARCH_RESULTS = 50;
 
     // UI Components - Search Form
     private AutoCompleteTextView etFrom, etTo;
@@ -73,8 +77,10 @@ public class HomeFragment extends Fragment {
     // Data and Managers
     private UserDataManager userDataManager;
     private RideDAO rideDAO;
+    private RideRequestDAO rideRequestDAO;
     private RideAdapter adapter;
-    private List<Ride> rideList;
+    private TaskScheduler.Scope taskScope; // Reads for this screen, cancelled with it
+    private String searchDistanceText = "";
 
     // Location Services
     private FusedLocationProviderClient fusedLocationClient;
@@ -95,10 +101,12 @@ public class HomeFragment extends Fragment {
         }
 
         View view = inflater.inflate(R.layout.fragment_home, container, false);
+        taskScope = TaskScheduler.getInstance().newScope();
 
         // Initialize managers
         userDataManager = UserDataManager.getInstance();
         rideDAO = new RideDAO(getContext());
+        rideRequestDAO = new RideRequestDAO(getContext());
 
         // Initialize location client
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(requireActivity());
@@ -207,8 +215,7 @@ public class HomeFragment extends Fragment {
     private void setupRecyclerView() {
         if (recyclerView != null) {
             recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
-            rideList = new ArrayList<>();
-            adapter = new RideAdapter(rideList, this::onJoinRide);
+            adapter = new RideAdapter(this::onJoinRide);
             recyclerView.setAdapter(adapter);
         }
     }
@@ -313,109 +320,166 @@ public class HomeFragment extends Fragment {
         Log.d("HomeFragment", "Starting database search...");
         Log.d("HomeFragment", "Search radius: " + DEFAULT_SEARCH_RADIUS_KM + " km");
 
-        // Perform search in background
-        new Thread(() -> {
-            try {
-                long currentTime = System.currentTimeMillis();
-                long endTime = currentTime + (24 * 60 * 60 * 1000); // 24 hours from now
-
-                Log.d("HomeFragment", "Time window: " + currentTime + " to " + endTime);
-
-                List<Ride> searchResults = rideDAO.searchRides(
-                        fromCoords[0], fromCoords[1],
-                        toCoords[0], toCoords[1],
-                        DEFAULT_SEARCH_RADIUS_KM,
-                        currentTime,
-                        endTime,
-                        1 // minimum 1 seat available
-                );
-
-                Log.d("HomeFragment", "Database returned " + searchResults.size() + " rides");
-
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
-                        rideList.clear();
-                        rideList.addAll(searchResults);
-                        adapter.notifyDataSetChanged();
-                        showLoading(false);
-                        updateSearchResultsUI();
-
-                        String distance = com.companyname.shareride.utils.LocationUtils.formatDistance(
-                                com.companyname.shareride.utils.LocationUtils.calculateDistance(
-                                        fromCoords[0], fromCoords[1], toCoords[0], toCoords[1])
+        long currentTime = System.currentTimeMillis();
+        long endTime = currentTime + (24 * 60 * 60 * 1000); // 24 hours from now
+        Log.d("HomeFragment", "Time window: " + currentTime + " to " + endTime);
+
+        searchDistanceText = LocationUtils.formatDistance(
+                LocationUtils.calculateDistance(fromCoords[0], fromCoords[1], toCoords[0], toCoords[1]));
+
+        // The in-memory index and the database answer alike: up to MAX_SEARCH_RESULTS rides,
+        // nearest pickup first. Until the index is loaded the database answers, and the first
+        // such search loads the index for the ones after it
+        RideSpatialIndex spatialIndex = RideSpatialIndex.getInstance();
+        boolean indexLoaded = spatialIndex.isLoaded();
+
+        // Perform search in background. Bound to this view: leaving the tab cancels it, and a
+        // recreated view repeating the same search picks up the running or finished one
+        String searchKey = "ride-search:" + fromCoords[0] + "," + fromCoords[1] + ";" + toCoords[0] + "," + toCoords[1];
+        LifecycleTask.execute(getViewLifecycleOwner(), searchKey,
+                indexLoaded ? TaskScheduler.Pool.COMPUTE : TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.USER,
+                signal -> {
+                    List<RideSummary> nearestRides;
+                    if (indexLoaded) {
+                        List<Ride> indexedRides = spatialIndex.findNearestRides(
+                                fromCoords[0], fromCoords[1],
+                                toCoords[0], toCoords[1],
+                                DEFAULT_SEARCH_RADIUS_KM,
+                                currentTime,
+                                endTime,
+                                1, // minimum 1 seat available
+                                MAX_SEARCH_RESULTS
                         );
-                        updateSearchInfo("Found " + searchResults.size() + " rides • Distance: " + distance);
+                        nearestRides = new ArrayList<>(indexedRides.size());
+                        for (Ride ride : indexedRides) {
+                            nearestRides.add(RideSummary.fromRide(ride));
+                        }
+                        Log.d("HomeFragment", "Spatial index returned " + nearestRides.size() + " rides");
+                    } else {
+                        nearestRides = rideDAO.searchRideSummaries(
+                                fromCoords[0], fromCoords[1],
+                                toCoords[0], toCoords[1],
+                                DEFAULT_SEARCH_RADIUS_KM,
+                                currentTime,
+                                endTime,
+                                1, // minimum 1 seat available
+                                MAX_SEARCH_RESULTS,
+                                signal
+                        );
+                        Log.d("HomeFragment", "Database returned " + nearestRides.size() + " rides");
+                    }
+                    signal.throwIfCanceled();
+                    return RideDisplayModel.fromSummaries(nearestRides);
+                },
+                new LifecycleTask.Callback<List<RideDisplayModel>>() {
+                    @Override
+                    public void onResult(List<RideDisplayModel> searchResults) {
+                        // Only rides that changed are rebound, e.g. after a join
+                        adapter.submitRides(searchResults, () -> {
+                            showLoading(false);
+                            updateSearchResultsUI();
+                            updateSearchInfo("Found " + searchResults.size() + " rides • Distance: " + searchDistanceText);
+
+                            Log.d("HomeFragment", "UI updated with " + adapter.getItemCount() + " rides");
+                        });
 
-                        Log.d("HomeFragment", "UI updated with " + rideList.size() + " rides");
-                    });
-                }
+                        if (!indexLoaded) {
+                            loadSpatialIndex();
+                        }
+                    }
 
-            } catch (Exception e) {
-                Log.e("HomeFragment", "Search error: " + e.getMessage(), e);
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
-                        showLoading(false);
-                        Toast.makeText(getContext(), "Search error: " + e.getMessage(),
-                                Toast.LENGTH_SHORT).show();
+                    @Override
+                    public void onError(Exception e) {
+                        Log.e("HomeFragment", "Search error: " + e.getMessage(), e);
+                        onSearchError(e);
+                    }
+                });
+    }
 
-                        // Fallback to sample data for debugging
-                        Log.d("HomeFragment", "Loading sample rides as fallback");
-                        loadSampleRides();
-                    });
-                }
+    private void loadSpatialIndex() {
+        // Shared by later searches, so not tied to this screen
+        TaskScheduler.getInstance().execute(TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.BACKGROUND, () -> {
+            try {
+                rideDAO.loadSpatialIndex();
+            } catch (Exception e) {
+                Log.e("HomeFragment", "Error loading spatial index: " + e.getMessage(), e);
             }
-        }).start();
+        });
     }
 
+    private void onSearchError(Exception e) {
+        showLoading(false);
+        Toast.makeText(getContext(), "Search error: " + e.getMessage(),
+                Toast.LENGTH_SHORT).show();
 
+        // Fallback to sample data for debugging
+        Log.d("HomeFragment", "Loading sample rides as fallback");
+        loadSampleRides();
+    }
 
-    private void loadSampleRides() {
-        rideList.clear();
 
+
+    private void loadSampleRides() {
         // Create sample rides
         long currentTime = System.currentTimeMillis();
         Ride ride1 = new Ride("Koramangala → Electronic City", "₹40 each", "2/3 passengers", "Leaving in 10 mins", "Priya, Amit");
         Ride ride2 = new Ride("Koramangala → Electronic City", "₹50 each", "1/3 passengers", "Leaving in 25 mins", "Neha");
         Ride ride3 = new Ride("BTM Layout → Whitefield", "₹60 each", "2/4 passengers", "Leaving in 15 mins", "Arjun, Kavya");
 
-        rideList.add(ride1);
-        rideList.add(ride2);
-        rideList.add(ride3);
+        List<RideSummary> sampleRides = new ArrayList<>();
+        sampleRides.add(RideSummary.fromRide(ride1));
+        sampleRides.add(RideSummary.fromRide(ride2));
+        sampleRides.add(RideSummary.fromRide(ride3));
 
-        adapter.notifyDataSetChanged();
-        updateSearchResultsUI();
-        updateSearchInfo("Showing sample rides (database unavailable)");
+        adapter.submitRides(RideDisplayModel.fromSummaries(sampleRides), () -> {
+            updateSearchResultsUI();
+            updateSearchInfo("Showing sample rides (database unavailable)");
+        });
     }
 
-    private void onJoinRide(Ride ride) {
+    private void onJoinRide(RideSummary ride) {
         // Check if ride has available seats (for database rides)
         if (ride.getId() > 0 && ride.getAvailableSeats() <= 0) {
             Toast.makeText(getContext(), "Sorry, this ride is full!", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        Toast.makeText(getContext(), "🎉 Ride joined! You will be notified when other passengers confirm.",
-                Toast.LENGTH_LONG).show();
-
-        // If it's a database ride, update the seat count
-        if (ride.getId() > 0) {
-            new Thread(() -> {
-                try {
-                    int newSeats = ride.getAvailableSeats() - 1;
-                    rideDAO.updateAvailableSeats(ride.getId(), newSeats);
+        if (ride.getId() <= 0) {
+            // Sample ride - nothing to book
+            Toast.makeText(getContext(), "🎉 Ride joined! You will be notified when other passengers confirm.",
+                    Toast.LENGTH_LONG).show();
+            openMyRides();
+            return;
+        }
 
-                    if (getActivity() != null) {
-                        getActivity().runOnUiThread(() -> {
+        // Database ride - ask the driver for a seat; it is taken when the request is accepted.
+        // The shown seat count may already be stale, createRequest checks it again
+        long passengerId = userDataManager.getUserIdAsLong();
+        LifecycleTask.executeToCompletion(getViewLifecycleOwner(),
+                TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.USER,
+                signal -> rideRequestDAO.createRequest(ride.getId(), passengerId, 1, null),
+                new LifecycleTask.Callback<Long>() {
+                    @Override
+                    public void onResult(Long requestId) {
+                        if (requestId != RideRequestDAO.REQUEST_FAILED) {
+                            Toast.makeText(getContext(), "🎉 Request sent! You will be notified when the driver accepts.",
+                                    Toast.LENGTH_LONG).show();
+                            openMyRides();
+                        } else {
+                            Toast.makeText(getContext(), "Sorry, this ride is full or no longer available!", Toast.LENGTH_SHORT).show();
                             // Refresh the search results
                             performRideSearch();
-                        });
+                        }
                     }
-                } catch (Exception e) {
-                    // Handle error silently
-                }
-            }).start();
-        }
 
+                    @Override
+                    public void onError(Exception e) {
+                        Log.e("HomeFragment", "Error joining ride: " + e.getMessage(), e);
+                    }
+                });
+    }
+
+    private void openMyRides() {
         // Navigate to MyRidesFragment
         getParentFragmentManager()
                 .beginTransaction()
@@ -445,7 +509,7 @@ public class HomeFragment extends Fragment {
 
     private void updateSearchResultsUI() {
         if (tvNoRidesFound != null && recyclerView != null) {
-            if (rideList.isEmpty()) {
+            if (adapter.getItemCount() == 0) {
                 tvNoRidesFound.setVisibility(View.VISIBLE);
                 recyclerView.setVisibility(View.GONE);
             } else {
@@ -562,37 +626,37 @@ public class HomeFragment extends Fragment {
     }
 
     private void getAddressFromLocation(Location location) {
-        try {
-            fromLatitude = location.getLatitude();
-            fromLongitude = location.getLongitude();
-
-            Geocoder geocoder = new Geocoder(requireContext(), Locale.getDefault());
-            List<Address> addresses = geocoder.getFromLocation(
-                    location.getLatitude(), location.getLongitude(), 1);
-
-            if (addresses != null && !addresses.isEmpty()) {
-                Address address = addresses.get(0);
-                String addressText = buildDetailedAddress(address);
-                etFrom.setText(addressText);
-                etFrom.setTag("coords:" + fromLatitude + "," + fromLongitude);
-                Toast.makeText(requireContext(), "Current location set", Toast.LENGTH_SHORT).show();
-            } else {
-                String coordsText = "Lat: " + String.format("%.6f", fromLatitude) +
-                        ", Long: " + String.format("%.6f", fromLongitude);
-                etFrom.setText(coordsText);
-                etFrom.setTag("coords:" + fromLatitude + "," + fromLongitude);
-                Toast.makeText(requireContext(), "Location set using coordinates", Toast.LENGTH_SHORT).show();
+        fromLatitude = location.getLatitude();
+        fromLongitude = location.getLongitude();
+        etFrom.setTag("coords:" + fromLatitude + "," + fromLongitude);
+
+        // Looked up off the UI thread; nearby fixes share a cached result
+        ReverseGeocoder.lookup(requireContext(), fromLatitude, fromLongitude, new ReverseGeocoder.Callback() {
+            @Override
+            public void onAddressResolved(double latitude, double longitude, Address address) {
+                if (!isAdded() || latitude != fromLatitude || longitude != fromLongitude) return;
+
+                if (address != null) {
+                    etFrom.setText(buildDetailedAddress(address));
+                    Toast.makeText(requireContext(), "Current location set", Toast.LENGTH_SHORT).show();
+                } else {
+                    setFromCoordinatesText();
+                }
             }
-        } catch (IOException e) {
-            fromLatitude = location.getLatitude();
-            fromLongitude = location.getLongitude();
 
-            String coordsText = "Lat: " + String.format("%.6f", fromLatitude) +
-                    ", Long: " + String.format("%.6f", fromLongitude);
-            etFrom.setText(coordsText);
-            etFrom.setTag("coords:" + fromLatitude + "," + fromLongitude);
-            Toast.makeText(requireContext(), "Location set using coordinates", Toast.LENGTH_SHORT).show();
-        }
+            @Override
+            public void onLookupFailed(double latitude, double longitude, Exception e) {
+                if (!isAdded() || latitude != fromLatitude || longitude != fromLongitude) return;
+                setFromCoordinatesText();
+            }
+        });
+    }
+
+    private void setFromCoordinatesText() {
+        String coordsText = "Lat: " + String.format("%.6f", fromLatitude) +
+                ", Long: " + String.format("%.6f", fromLongitude);
+        etFrom.setText(coordsText);
+        Toast.makeText(requireContext(), "Location set using coordinates", Toast.LENGTH_SHORT).show();
     }
 
     private String buildDetailedAddress(Address address) {
@@ -675,6 +739,15 @@ public class HomeFragment extends Fragment {
         }
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // Nothing left to show results in; abort reads still running for this view
+        if (taskScope != null) {
+            taskScope.cancel();
+        }
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
@@ -727,13 +800,12 @@ public class HomeFragment extends Fragment {
 
     // Add this method to populate sample rides
     private void populateSampleRides() {
-        new Thread(() -> {
+        TaskScheduler.getInstance().execute(TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.BACKGROUND, () -> {
             try {
                 RideDAO rideDAO = new RideDAO(getContext());
 
                 // Check if rides already exist to avoid duplicates
-                List<Ride> existingRides = rideDAO.getAllActiveRides();
-                if (!existingRides.isEmpty()) {
+                if (!rideDAO.getActiveRideSummariesPage(null, 1, null).isEmpty()) {
                     Log.d("HomeFragment", "Sample data already exists, skipping population");
                     rideDAO.close();
                     return;
@@ -772,12 +844,10 @@ public class HomeFragment extends Fragment {
                 ride2.setDriverId(2);
                 ride2.setStatus("active");
 
-                // Insert rides
-                long result1 = rideDAO.createRide(ride1);
-                long result2 = rideDAO.createRide(ride2);
+                // Insert rides in one transaction
+                int inserted = rideDAO.createRides(Arrays.asList(ride1, ride2));
 
-                Log.d("HomeFragment", "Inserted ride 1 with ID: " + result1);
-                Log.d("HomeFragment", "Inserted ride 2 with ID: " + result2);
+                Log.d("HomeFragment", "Inserted " + inserted + " rides, IDs: " + ride1.getId() + ", " + ride2.getId());
 
                 rideDAO.close();
 
@@ -798,7 +868,7 @@ public class HomeFragment extends Fragment {
                     });
                 }
             }
-        }).start();
+        });
     }
 
 
@@ -820,7 +890,7 @@ public class HomeFragment extends Fragment {
     }
 
     private void debugDatabaseContent() {
-        new Thread(() -> {
+        TaskScheduler.getInstance().execute(TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.BACKGROUND, taskScope, () -> {
             try {
                 RideDAO debugDAO = new RideDAO(getContext());
                 List<Ride> allRides = debugDAO.getAllActiveRides();
@@ -843,6 +913,6 @@ public class HomeFragment extends Fragment {
             } catch (Exception e) {
                 Log.e("HomeFragment", "Database debug error", e);
             }
-        }).start();
+        });
     }
 }
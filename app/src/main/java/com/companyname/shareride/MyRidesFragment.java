@@ -10,11 +10,16 @@ import android.widget.LinearLayout;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.companyname.shareride.RideAdapter;
+import com.companyname.shareride.database.ChatDAO;
 import com.companyname.shareride.database.RideDAO;
+import com.companyname.shareride.database.RideRequestDAO;
+import com.companyname.shareride.utils.LifecycleTask;
+import com.companyname.shareride.utils.TaskScheduler;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -23,6 +28,9 @@ import java.util.Locale;
 
 public class MyRidesFragment extends Fragment {
 
+    // Start loading older chat history when this many messages are left above the first visible one
+    private static final int CHAT_PREFETCH_DISTANCE = 5;
+
     // UI Components for Rides Display
     private RecyclerView recyclerMyRides;
     private TextView tvNoRides, tvRideStats;
@@ -30,20 +38,26 @@ public class MyRidesFragment extends Fragment {
 
     // UI Components for Chat (when ride is selected)
     private LinearLayout layoutRidesList, layoutChatSection;
-    private LinearLayout chatContainer;
+    private RecyclerView recyclerChat;
     private EditText etMessage;
-    private ImageButton btnSend, btnBackToRides, btnRefresh;
+    private ImageButton btnSend, btnBackToRides, btnRefresh, btnChatOptions;
     private TextView tvChatTitle;
 
     // Data and Adapters
     private RideDAO rideDAO;
+    private ChatDAO chatDAO;
+    private RideRequestDAO rideRequestDAO;
     private RideAdapter adapter;
-    private List<Ride> myRidesList;
-    private List<ChatMessage> chatMessages;
+    private RidePageLoader ridePageLoader;
+    private ChatAdapter chatAdapter;
+    private boolean loadingOlderMessages = false;
+    private boolean olderMessagesEndReached = true;
+    private boolean loadingNewerMessages = false;
+    private int unreadMessageCount = 0;
     private UserDataManager userDataManager;
 
     // Current selected ride for chat
-    private Ride selectedRide;
+    private RideSummary selectedRide;
     private long currentUserId = 1; // This should come from authentication system
 
     @Override
@@ -80,6 +94,8 @@ public class MyRidesFragment extends Fragment {
         try {
             if (getContext() != null) {
                 rideDAO = new RideDAO(getContext());
+                chatDAO = new ChatDAO(getContext());
+                rideRequestDAO = new RideRequestDAO(getContext());
                 userDataManager = UserDataManager.getInstance();
             }
         } catch (Exception e) {
@@ -101,10 +117,11 @@ public class MyRidesFragment extends Fragment {
             layoutChatSection = view.findViewById(R.id.layout_chat_section);
 
             // Chat components
-            chatContainer = view.findViewById(R.id.chat_container);
+            recyclerChat = view.findViewById(R.id.recycler_chat);
             etMessage = view.findViewById(R.id.et_message);
             btnSend = view.findViewById(R.id.btn_send);
             btnBackToRides = view.findViewById(R.id.btn_back_to_rides);
+            btnChatOptions = view.findViewById(R.id.btn_chat_options);
             tvChatTitle = view.findViewById(R.id.tv_chat_title);
 
             // Initially show rides list
@@ -119,9 +136,22 @@ public class MyRidesFragment extends Fragment {
         try {
             if (recyclerMyRides != null && getContext() != null) {
                 recyclerMyRides.setLayoutManager(new LinearLayoutManager(getContext()));
-                myRidesList = new ArrayList<>();
-                adapter = new RideAdapter(myRidesList, this::onRideAction);
+                adapter = new RideAdapter(this::onRideAction);
                 recyclerMyRides.setAdapter(adapter);
+
+                ridePageLoader = new RidePageLoader(adapter);
+                ridePageLoader.attachTo(recyclerMyRides);
+                ridePageLoader.setOnPageLoadedListener(new RidePageLoader.OnPageLoadedListener() {
+                    @Override
+                    public void onPageLoaded(int pageNumber, int rowCount, boolean endReached) {
+                        onRidesPageLoaded(pageNumber, rowCount, endReached);
+                    }
+
+                    @Override
+                    public void onPageError(int pageNumber, Exception e) {
+                        onRidesPageError(pageNumber, e);
+                    }
+                });
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -137,63 +167,62 @@ public class MyRidesFragment extends Fragment {
             if (btnBackToRides != null) {
                 btnBackToRides.setOnClickListener(v -> showRidesList());
             }
+
+            if (btnChatOptions != null) {
+                btnChatOptions.setOnClickListener(v -> loadRideRequests());
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     private void loadUserRides() {
+        if (rideDAO == null || ridePageLoader == null) {
+            loadSampleRides();
+            return;
+        }
+
         showLoading(true);
+        loadUnreadCount();
 
-        // Always load sample data for now to avoid database issues
-        loadSampleRides();
-
-        // Uncomment this when database is ready
-        /*
-        new Thread(() -> {
-            try {
-                if (rideDAO != null) {
-                    List<Ride> driverRides = rideDAO.getRidesByDriverId(currentUserId);
-
-                    if (getActivity() != null) {
-                        getActivity().runOnUiThread(() -> {
-                            if (myRidesList != null) {
-                                myRidesList.clear();
-                                myRidesList.addAll(driverRides);
-                                if (adapter != null) {
-                                    adapter.notifyDataSetChanged();
-                                }
-                            }
-                            showLoading(false);
-                            updateUI();
-                            updateRideStats();
-                        });
-                    }
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
-                        showLoading(false);
-                        if (getContext() != null) {
-                            Toast.makeText(getContext(), "Error loading rides", Toast.LENGTH_SHORT).show();
-                        }
-                        loadSampleRides();
-                    });
-                }
+        // Page through the driver's rides as the list scrolls
+        ridePageLoader.start((after, limit, signal) ->
+                rideDAO.getRideSummariesByDriverIdPage(currentUserId, after, limit, signal));
+    }
+
+    private void onRidesPageLoaded(int pageNumber, int rowCount, boolean endReached) {
+        try {
+            if (pageNumber == 1 && rowCount == 0) {
+                // Nothing in the database yet - keep showing the sample rides
+                loadSampleRides();
+                return;
+            }
+
+            showLoading(false);
+            updateUI();
+            updateRideStats();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void onRidesPageError(int pageNumber, Exception e) {
+        e.printStackTrace();
+        if (pageNumber == 1) {
+            showLoading(false);
+            if (getContext() != null) {
+                Toast.makeText(getContext(), "Error loading rides", Toast.LENGTH_SHORT).show();
             }
-        }).start();
-        */
+            loadSampleRides();
+        }
     }
 
     private void loadSampleRides() {
         try {
-            if (myRidesList == null) {
-                myRidesList = new ArrayList<>();
+            if (ridePageLoader != null) {
+                ridePageLoader.stop();
             }
 
-            myRidesList.clear();
-
             // Create sample rides using legacy constructor for compatibility
             Ride ride1 = new Ride("Koramangala → Electronic City", "₹40 each", "2/3 passengers",
                     "Today 6:30 PM", "Priya, Amit");
@@ -202,25 +231,28 @@ public class MyRidesFragment extends Fragment {
             Ride ride3 = new Ride("Indiranagar → Hebbal", "₹45 each", "3/4 passengers",
                     "Today 7:00 PM", "Raj, Neha, Suresh");
 
-            myRidesList.add(ride1);
-            myRidesList.add(ride2);
-            myRidesList.add(ride3);
+            List<RideSummary> sampleRides = new ArrayList<>();
+            sampleRides.add(RideSummary.fromRide(ride1));
+            sampleRides.add(RideSummary.fromRide(ride2));
+            sampleRides.add(RideSummary.fromRide(ride3));
 
             if (adapter != null) {
-                adapter.notifyDataSetChanged();
+                adapter.submitRides(RideDisplayModel.fromSummaries(sampleRides), () -> {
+                    showLoading(false);
+                    updateUI();
+                    updateRideStats();
+                });
+            } else {
+                showLoading(false);
             }
 
-            showLoading(false);
-            updateUI();
-            updateRideStats();
-
         } catch (Exception e) {
             e.printStackTrace();
             showLoading(false);
         }
     }
 
-    private void onRideAction(Ride ride) {
+    private void onRideAction(RideSummary ride) {
         try {
             if (getContext() == null || ride == null) return;
 
@@ -235,7 +267,7 @@ public class MyRidesFragment extends Fragment {
         }
     }
 
-    private void openRideChat(Ride ride) {
+    private void openRideChat(RideSummary ride) {
         try {
             selectedRide = ride;
             setupChatForRide(ride);
@@ -247,8 +279,32 @@ public class MyRidesFragment extends Fragment {
 
     private void setupChat() {
         try {
-            if (chatMessages == null) {
-                chatMessages = new ArrayList<>();
+            if (recyclerChat != null && getContext() != null) {
+                LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+                layoutManager.setStackFromEnd(true); // Short chats sit at the bottom, next to the input
+                recyclerChat.setLayoutManager(layoutManager);
+                chatAdapter = new ChatAdapter();
+                recyclerChat.setAdapter(chatAdapter);
+
+                // Page in older history as the user scrolls up, and newer messages the window
+                // dropped meanwhile as they scroll back down
+                recyclerChat.addOnScrollListener(new RecyclerView.OnScrollListener() {
+                    @Override
+                    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                        if (dy < 0) {
+                            int firstVisible = layoutManager.findFirstVisibleItemPosition();
+                            if (firstVisible != RecyclerView.NO_POSITION && firstVisible <= CHAT_PREFETCH_DISTANCE) {
+                                loadOlderMessages();
+                            }
+                        } else if (dy > 0) {
+                            int lastVisible = layoutManager.findLastVisibleItemPosition();
+                            if (lastVisible != RecyclerView.NO_POSITION
+                                    && lastVisible >= chatAdapter.getItemCount() - 1 - CHAT_PREFETCH_DISTANCE) {
+                                loadNewerMessages();
+                            }
+                        }
+                    }
+                });
             }
 
             if (btnSend != null && etMessage != null) {
@@ -269,7 +325,7 @@ public class MyRidesFragment extends Fragment {
         }
     }
 
-    private void setupChatForRide(Ride ride) {
+    private void setupChatForRide(RideSummary ride) {
         try {
             if (tvChatTitle != null && ride != null) {
                 String chatTitle = "Chat - " + ride.getRoute();
@@ -285,72 +341,357 @@ public class MyRidesFragment extends Fragment {
         }
     }
 
-    private void loadChatMessages(Ride ride) {
+    private void loadChatMessages(RideSummary ride) {
         try {
-            if (chatMessages == null) {
-                chatMessages = new ArrayList<>();
-            }
+            if (chatAdapter == null) return;
 
-            chatMessages.clear();
+            loadingOlderMessages = false;
+            olderMessagesEndReached = true;
+            loadingNewerMessages = false;
 
-            if (ride != null && ride.getNames() != null && !ride.getNames().isEmpty()) {
-                chatMessages.add(new ChatMessage("System", "Ride participants: " + ride.getNames(), false));
+            if (ride == null || ride.getId() <= 0 || chatDAO == null) {
+                // Sample rides are not in the database, so their chat is not stored
+                List<ChatMessage> chatMessages = new ArrayList<>();
+                if (ride != null && ride.getNames() != null && !ride.getNames().isEmpty()) {
+                    chatMessages.add(new ChatMessage("System", "Ride participants: " + ride.getNames(), false));
+                }
+                chatAdapter.setMessages(chatMessages);
+                return;
             }
 
-            chatMessages.add(new ChatMessage("Priya", "I'm at the bus stop, wearing blue jacket", false));
-            chatMessages.add(new ChatMessage("You", "On my way, 2 mins!", true));
-            chatMessages.add(new ChatMessage("Amit", "Auto driver is here, white auto", false));
+            chatAdapter.clearMessages();
+            loadingOlderMessages = true;
+
+            final long rideId = ride.getId();
+            LifecycleTask.execute(getViewLifecycleOwner(), "chat:" + rideId,
+                    TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.USER,
+                    signal -> chatDAO.getLatestMessages(rideId, currentUserId, signal),
+                    new LifecycleTask.Callback<List<ChatMessage>>() {
+                        @Override
+                        public void onResult(List<ChatMessage> messages) {
+                            if (!isChatOpenFor(rideId)) return;
+
+                            loadingOlderMessages = false;
+                            olderMessagesEndReached = messages.size() < ChatDAO.DEFAULT_PAGE_SIZE;
+                            chatAdapter.setMessages(messages);
+                            scrollChatToBottom();
+                            markChatRead(rideId);
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            if (!isChatOpenFor(rideId)) return;
 
-            displayChatMessages();
+                            loadingOlderMessages = false;
+                            if (getContext() != null) {
+                                Toast.makeText(getContext(), "Error loading messages", Toast.LENGTH_SHORT).show();
+                            }
+                        }
+                    });
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    // Next page of history above the oldest message shown
+    private void loadOlderMessages() {
+        if (loadingOlderMessages || chatDAO == null || selectedRide == null) return;
+        // Messages the window dropped from the top can be paged in again even after the first page ended
+        if (olderMessagesEndReached && !chatAdapter.hasOlderMessagesDropped()) return;
+
+        ChatMessage oldest = chatAdapter.getFirstMessage();
+        if (oldest == null || !oldest.isStored()) return;
+
+        loadingOlderMessages = true;
+
+        final long rideId = selectedRide.getId();
+        final long beforeId = oldest.getId();
+        LifecycleTask.execute(getViewLifecycleOwner(), "chat:" + rideId + ":before:" + beforeId,
+                TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.USER,
+                signal -> chatDAO.getMessagesPage(rideId, currentUserId, beforeId, ChatDAO.DEFAULT_PAGE_SIZE, signal),
+                new LifecycleTask.Callback<List<ChatMessage>>() {
+                    @Override
+                    public void onResult(List<ChatMessage> messages) {
+                        if (!isChatOpenFor(rideId)) return;
+                        loadingOlderMessages = false;
+
+                        // Drop the page if the list was reloaded or trimmed meanwhile
+                        ChatMessage first = chatAdapter.getFirstMessage();
+                        if (first == null || first.getId() != beforeId) return;
+
+                        olderMessagesEndReached = messages.size() < ChatDAO.DEFAULT_PAGE_SIZE;
+                        chatAdapter.prependMessages(messages);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        if (!isChatOpenFor(rideId)) return;
+
+                        // Stop here rather than retrying on every scroll; reopening the chat starts over
+                        loadingOlderMessages = false;
+                        olderMessagesEndReached = true;
+                    }
+                });
+    }
+
+    // Next page below the newest message shown, after scrolling up dropped the newest ones
+    private void loadNewerMessages() {
+        if (loadingNewerMessages || chatDAO == null || selectedRide == null || !chatAdapter.hasNewerMessagesDropped()) return;
+
+        ChatMessage newest = chatAdapter.getLastMessage();
+        if (newest == null || !newest.isStored()) return;
+
+        loadingNewerMessages = true;
+
+        final long rideId = selectedRide.getId();
+        final long afterId = newest.getId();
+        LifecycleTask.execute(getViewLifecycleOwner(), "chat:" + rideId + ":after:" + afterId,
+                TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.USER,
+                signal -> chatDAO.getMessagesAfter(rideId, currentUserId, afterId, ChatDAO.DEFAULT_PAGE_SIZE, signal),
+                new LifecycleTask.Callback<List<ChatMessage>>() {
+                    @Override
+                    public void onResult(List<ChatMessage> messages) {
+                        if (!isChatOpenFor(rideId)) return;
+                        loadingNewerMessages = false;
+
+                        // Drop the page if the list was reloaded or trimmed meanwhile
+                        ChatMessage last = chatAdapter.getLastMessage();
+                        if (last == null || last.getId() != afterId) return;
+
+                        chatAdapter.appendNewerMessages(messages, messages.size() < ChatDAO.DEFAULT_PAGE_SIZE);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        if (!isChatOpenFor(rideId)) return;
+
+                        loadingNewerMessages = false;
+                    }
+                });
+    }
+
     private void sendMessage(String message) {
         try {
-            if (chatMessages == null) {
-                chatMessages = new ArrayList<>();
+            if (chatAdapter == null || selectedRide == null || selectedRide.getId() <= 0 || chatDAO == null) {
+                return;
             }
 
-            chatMessages.add(new ChatMessage("You", message, true));
-            displayChatMessages();
-
-            // Scroll to bottom
-            if (chatContainer != null && chatContainer.getChildCount() > 0) {
-                chatContainer.getChildAt(chatContainer.getChildCount() - 1).requestFocus();
+            // Shown right away under a local ID, and swapped for the stored row once it has its
+            // database ID. With newer messages paged out, the new one would land after a gap;
+            // reload the latest page once it is stored instead
+            final boolean reloadLatest = chatAdapter.hasNewerMessagesDropped();
+            final ChatMessage pending = new ChatMessage("You", message, true);
+            if (!reloadLatest) {
+                chatAdapter.appendMessage(pending);
+                scrollChatToBottom();
             }
+
+            // The write finishes even if the user leaves the screen
+            final long rideId = selectedRide.getId();
+            LifecycleTask.executeToCompletion(getViewLifecycleOwner(),
+                    TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.USER,
+                    signal -> {
+                        // Reply to whoever wrote last; until someone else writes, the message is
+                        // posted to the ride addressed to the sender, and stored as read
+                        long receiverId = chatDAO.getLastCorrespondentId(rideId, currentUserId);
+                        if (receiverId < 0) {
+                            receiverId = currentUserId;
+                        }
+                        return chatDAO.insertMessage(new ChatMessage(rideId, currentUserId, receiverId, message));
+                    },
+                    new LifecycleTask.Callback<ChatMessage>() {
+                        @Override
+                        public void onResult(ChatMessage stored) {
+                            if (stored == null) {
+                                onSendFailed(pending);
+                                return;
+                            }
+                            if (!isChatOpenFor(rideId)) return;
+
+                            if (reloadLatest) {
+                                loadChatMessages(selectedRide);
+                            } else {
+                                chatAdapter.replaceMessage(pending, stored);
+                            }
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            e.printStackTrace();
+                            onSendFailed(pending);
+                        }
+                    });
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private void displayChatMessages() {
-        try {
-            if (chatContainer == null || chatMessages == null || getContext() == null) {
-                return;
-            }
+    // The message was never stored, so it must not stay in the chat looking sent
+    private void onSendFailed(ChatMessage pending) {
+        if (chatAdapter != null) {
+            chatAdapter.removeMessage(pending);
+        }
+        if (getContext() != null) {
+            Toast.makeText(getContext(), "Message could not be saved", Toast.LENGTH_SHORT).show();
+        }
+    }
 
-            chatContainer.removeAllViews();
+    // Everything up to the newest message shown has now been seen
+    private void markChatRead(long rideId) {
+        ChatMessage newest = chatAdapter.getLastMessage();
+        if (newest == null || !newest.isStored()) return;
+
+        final long upToId = newest.getId();
+        LifecycleTask.executeToCompletion(getViewLifecycleOwner(),
+                TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.BACKGROUND,
+                signal -> chatDAO.markAsRead(rideId, currentUserId, upToId),
+                new LifecycleTask.Callback<Integer>() {
+                    @Override
+                    public void onResult(Integer marked) {
+                        if (marked > 0) {
+                            loadUnreadCount();
+                        }
+                    }
 
-            for (ChatMessage message : chatMessages) {
-                View messageView = LayoutInflater.from(getContext()).inflate(R.layout.item_chat_message, chatContainer, false);
-                TextView tvMessage = messageView.findViewById(R.id.tv_message);
+                    @Override
+                    public void onError(Exception e) {
+                        e.printStackTrace();
+                    }
+                });
+    }
 
-                if (tvMessage != null && message != null) {
-                    tvMessage.setText(message.getSender() + ": " + message.getMessage());
+    private void loadUnreadCount() {
+        if (chatDAO == null) return;
+
+        LifecycleTask.execute(getViewLifecycleOwner(), "chat-unread:" + currentUserId,
+                TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.BACKGROUND,
+                signal -> chatDAO.getUnreadCount(currentUserId),
+                new LifecycleTask.Callback<Integer>() {
+                    @Override
+                    public void onResult(Integer count) {
+                        unreadMessageCount = count;
+                        if (ridePageLoader == null || !ridePageLoader.isLoading()) {
+                            updateRideStats();
+                        }
+                    }
 
-                    if (message.isOwnMessage()) {
-                        tvMessage.setBackgroundResource(R.drawable.bg_chat_own);
-                    } else {
-                        tvMessage.setBackgroundResource(R.drawable.bg_chat_other);
+                    @Override
+                    public void onError(Exception e) {
+                        e.printStackTrace();
                     }
+                });
+    }
 
-                    chatContainer.addView(messageView);
-                }
+    // Pending join requests for the ride whose chat is open
+    private void loadRideRequests() {
+        if (selectedRide == null || selectedRide.getId() <= 0 || rideRequestDAO == null) {
+            if (getContext() != null) {
+                Toast.makeText(getContext(), "No requests for this ride", Toast.LENGTH_SHORT).show();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            return;
+        }
+
+        final long rideId = selectedRide.getId();
+        LifecycleTask.execute(getViewLifecycleOwner(), "ride-requests:" + rideId,
+                TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.USER,
+                signal -> rideRequestDAO.getPendingRequestsForRide(rideId),
+                new LifecycleTask.Callback<List<RideRequest>>() {
+                    @Override
+                    public void onResult(List<RideRequest> requests) {
+                        if (isChatOpenFor(rideId)) {
+                            showRideRequestsDialog(rideId, requests);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        if (getContext() != null) {
+                            Toast.makeText(getContext(), "Error loading requests", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                });
+    }
+
+    private void showRideRequestsDialog(long rideId, List<RideRequest> requests) {
+        if (getContext() == null) return;
+
+        if (requests.isEmpty()) {
+            Toast.makeText(getContext(), "No pending requests", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        // All requests start selected, so accepting everyone who fits is one tap
+        String[] items = new String[requests.size()];
+        boolean[] checked = new boolean[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            items[i] = requests.get(i).getDisplayText();
+            checked[i] = true;
+        }
+
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Pending requests (" + requests.size() + ")")
+                .setMultiChoiceItems(items, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton("Accept", (dialog, which) ->
+                        decideRideRequests(rideId, selectedRequestIds(requests, checked), true))
+                .setNegativeButton("Reject", (dialog, which) ->
+                        decideRideRequests(rideId, selectedRequestIds(requests, checked), false))
+                .setNeutralButton("Cancel", null)
+                .show();
+    }
+
+    private static List<Long> selectedRequestIds(List<RideRequest> requests, boolean[] checked) {
+        List<Long> requestIds = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (checked[i]) {
+                requestIds.add(requests.get(i).getId());
+            }
+        }
+        return requestIds;
+    }
+
+    // Accept or reject the selected requests in one transaction
+    private void decideRideRequests(long rideId, List<Long> requestIds, boolean accept) {
+        if (requestIds.isEmpty() || rideRequestDAO == null) return;
+
+        LifecycleTask.executeToCompletion(getViewLifecycleOwner(),
+                TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.USER,
+                signal -> accept
+                        ? rideRequestDAO.acceptRequests(rideId, requestIds).size()
+                        : rideRequestDAO.rejectRequests(rideId, requestIds),
+                new LifecycleTask.Callback<Integer>() {
+                    @Override
+                    public void onResult(Integer decided) {
+                        if (getContext() == null) return;
+
+                        String message;
+                        if (!accept) {
+                            message = decided + " request(s) rejected";
+                        } else if (decided < requestIds.size()) {
+                            message = decided + " of " + requestIds.size() + " request(s) accepted - not enough seats for the rest";
+                        } else {
+                            message = decided + " request(s) accepted";
+                        }
+                        Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show();
+
+                        if (accept && decided > 0) {
+                            loadUserRides(); // Seat counts changed
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        e.printStackTrace();
+                    }
+                });
+    }
+
+    private boolean isChatOpenFor(long rideId) {
+        return selectedRide != null && selectedRide.getId() == rideId && chatAdapter != null;
+    }
+
+    private void scrollChatToBottom() {
+        if (recyclerChat != null && chatAdapter != null && chatAdapter.getItemCount() > 0) {
+            recyclerChat.scrollToPosition(chatAdapter.getItemCount() - 1);
         }
     }
 
@@ -395,9 +736,9 @@ public class MyRidesFragment extends Fragment {
 
     private void updateUI() {
         try {
-            if (myRidesList == null) return;
+            if (adapter == null) return;
 
-            if (myRidesList.isEmpty()) {
+            if (adapter.getItemCount() == 0) {
                 if (tvNoRides != null) {
                     tvNoRides.setVisibility(View.VISIBLE);
                     tvNoRides.setText("No rides found.\nStart by offering a ride or joining one!");
@@ -420,9 +761,13 @@ public class MyRidesFragment extends Fragment {
 
     private void updateRideStats() {
         try {
-            if (tvRideStats != null && myRidesList != null) {
-                int totalRides = myRidesList.size();
-                String stats = String.format("Total rides: %d", totalRides);
+            if (tvRideStats != null && adapter != null) {
+                int totalRides = adapter.getItemCount();
+                boolean morePages = ridePageLoader != null && !ridePageLoader.isEndReached();
+                String stats = String.format("Total rides: %d%s", totalRides, morePages ? "+" : "");
+                if (unreadMessageCount > 0) {
+                    stats += String.format(" • %d unread messages", unreadMessageCount);
+                }
                 tvRideStats.setText(stats);
                 tvRideStats.setVisibility(View.VISIBLE);
             }
@@ -435,6 +780,9 @@ public class MyRidesFragment extends Fragment {
     public void onDestroy() {
         super.onDestroy();
         try {
+            if (ridePageLoader != null) {
+                ridePageLoader.stop();
+            }
             if (rideDAO != null) {
                 rideDAO.close();
             }
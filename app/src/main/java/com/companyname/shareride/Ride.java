@@ -72,9 +72,6 @@ public class Ride {
         this.toLatitude = toLat;
         this.toLongitude = toLng;
         this.departureTime = departureTime;
-
-        // Update legacy fields for compatibility
-        updateLegacyFields();
     }
     public Ride(long id, String fromAddress, double fromLatitude, double fromLongitude,
                 String toAddress, double toLatitude, double toLongitude,
@@ -95,6 +92,38 @@ public class Ride {
         this.updatedAt = System.currentTimeMillis();
     }
 
+    // Full constructor for database rows - assigns fields directly without touching
+    // updatedAt; legacy display strings are built on first access
+    public Ride(long id, long driverId,
+                String fromAddress, double fromLatitude, double fromLongitude,
+                String toAddress, double toLatitude, double toLongitude,
+                long departureTime, int availableSeats, double price, String status,
+                String description, String notes, long createdAt, long updatedAt) {
+        this.id = id;
+        this.driverId = driverId;
+        this.fromAddress = fromAddress;
+        this.fromLatitude = fromLatitude;
+        this.fromLongitude = fromLongitude;
+        this.toAddress = toAddress;
+        this.toLatitude = toLatitude;
+        this.toLongitude = toLongitude;
+        this.departureTime = departureTime;
+        this.availableSeats = availableSeats;
+        this.price = price;
+        this.status = status;
+        this.description = description;
+        this.notes = notes;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    // A separate Ride with the same database fields, for holders that must not see the caller's later edits
+    public Ride copy() {
+        return new Ride(id, driverId, fromAddress, fromLatitude, fromLongitude,
+                toAddress, toLatitude, toLongitude, departureTime, availableSeats, price, status,
+                description, notes, createdAt, updatedAt);
+    }
+
     // Database Getters and Setters
     public long getId() { return id; }
     public void setId(long id) { this.id = id; }
@@ -106,7 +135,7 @@ public class Ride {
     public void setFromAddress(String fromAddress) {
         this.fromAddress = fromAddress;
         this.updatedAt = System.currentTimeMillis();
-        updateLegacyFields();
+        invalidateLegacyFields();
     }
 
     public double getFromLatitude() { return fromLatitude; }
@@ -125,7 +154,7 @@ public class Ride {
     public void setToAddress(String toAddress) {
         this.toAddress = toAddress;
         this.updatedAt = System.currentTimeMillis();
-        updateLegacyFields();
+        invalidateLegacyFields();
     }
 
     public double getToLatitude() { return toLatitude; }
@@ -144,21 +173,21 @@ public class Ride {
     public void setDepartureTime(long departureTime) {
         this.departureTime = departureTime;
         this.updatedAt = System.currentTimeMillis();
-        updateLegacyFields();
+        invalidateLegacyFields();
     }
 
     public int getAvailableSeats() { return availableSeats; }
     public void setAvailableSeats(int availableSeats) {
         this.availableSeats = availableSeats;
         this.updatedAt = System.currentTimeMillis();
-        updateLegacyFields();
+        invalidateLegacyFields();
     }
 
     public double getPrice() { return price; }
     public void setPrice(double price) {
         this.price = price;
         this.updatedAt = System.currentTimeMillis();
-        updateLegacyFields();
+        invalidateLegacyFields();
     }
 
     public String getStatus() { return status; }
@@ -272,26 +301,12 @@ public class Ride {
         }
     }
 
-    // Update legacy fields when database fields change
-    private void updateLegacyFields() {
-        // Update route
-        if (fromAddress != null && toAddress != null) {
-            this.route = fromAddress + " → " + toAddress;
-        }
-
-        // Update fare
-        if (price > 0) {
-            this.fare = "₹" + String.format("%.0f", price);
-        }
-
-        // Update passengers
-        this.passengers = availableSeats + " seats available";
-
-        // Update time
-        if (departureTime > 0) {
-            SimpleDateFormat sdf = new SimpleDateFormat("HH:mm", Locale.getDefault());
-            this.time = sdf.format(new Date(departureTime));
-        }
+    // Reset legacy fields when database fields change; the legacy getters rebuild them on demand
+    private void invalidateLegacyFields() {
+        this.route = null;
+        this.fare = null;
+        this.passengers = null;
+        this.time = null;
     }
 
     // Enhanced Utility methods
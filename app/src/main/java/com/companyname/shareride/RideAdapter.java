@@ -6,26 +6,64 @@ import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.TextView;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
-import com.companyname.shareride.utils.LocationUtils;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import com.companyname.shareride.utils.TaskScheduler;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 public class RideAdapter extends RecyclerView.Adapter<RideAdapter.RideViewHolder> {
 
-    private List<Ride> rides;
+    // Change payloads: only these parts of a row need rebinding
+    private static final int PAYLOAD_SEATS = 1;
+    private static final int PAYLOAD_STATUS = 2;
+
+    // Rows are the same ride by row ID: the database ID, or the content hash of a sample ride
+    private static final DiffUtil.ItemCallback<RideDisplayModel> DIFF_CALLBACK = new DiffUtil.ItemCallback<RideDisplayModel>() {
+        @Override
+        public boolean areItemsTheSame(RideDisplayModel oldRide, RideDisplayModel newRide) {
+            return oldRide.getItemId() == newRide.getItemId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(RideDisplayModel oldRide, RideDisplayModel newRide) {
+            return oldRide.hasSameDetails(newRide) &&
+                    oldRide.hasSamePassengers(newRide) &&
+                    oldRide.hasSameStatus(newRide) &&
+                    oldRide.hasSameJoinButton(newRide);
+        }
+
+        @Override
+        public Object getChangePayload(RideDisplayModel oldRide, RideDisplayModel newRide) {
+            if (!oldRide.hasSameDetails(newRide)) {
+                return null; // Rebind the whole row
+            }
+            int payload = 0;
+            if (!oldRide.hasSamePassengers(newRide)) payload |= PAYLOAD_SEATS;
+            if (!oldRide.hasSameStatus(newRide)) payload |= PAYLOAD_STATUS;
+            return payload; // The join button is always refreshed
+        }
+    };
+
+    private final AsyncListDiffer<RideDisplayModel> differ;
+    private List<RideDisplayModel> latestRides = new ArrayList<>(); // Last list submitted, maybe still being diffed
     private OnRideActionListener listener;
 
     public interface OnRideActionListener {
-        void onJoinRide(Ride ride);
+        void onJoinRide(RideSummary ride);
     }
 
-    // Constructor with backward compatibility
-    public RideAdapter(List<Ride> rides, OnRideActionListener listener) {
-        this.rides = rides;
+    public RideAdapter(OnRideActionListener listener) {
         this.listener = listener;
+        setHasStableIds(true);
+        differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+                new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                        .setBackgroundThreadExecutor(TaskScheduler.getInstance()
+                                .asExecutor(TaskScheduler.Pool.COMPUTE, TaskScheduler.Priority.USER))
+                        .build());
     }
 
     @Override
@@ -36,15 +74,34 @@ public class RideAdapter extends RecyclerView.Adapter<RideAdapter.RideViewHolder
 
     @Override
     public void onBindViewHolder(RideViewHolder holder, int position) {
-        Ride ride = rides.get(position);
-        holder.bind(ride);
+        holder.bind(differ.getCurrentList().get(position));
+    }
+
+    @Override
+    public void onBindViewHolder(RideViewHolder holder, int position, List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+
+        int changes = 0;
+        for (Object payload : payloads) {
+            changes |= (Integer) payload;
+        }
+        holder.bindChanges(differ.getCurrentList().get(position), changes);
     }
 
     @Override
     public int getItemCount() {
-        return rides != null ? rides.size() : 0;
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).getItemId();
     }
 
+    // Binding only assigns the precomputed values of a RideDisplayModel
     class RideViewHolder extends RecyclerView.ViewHolder {
         // UI Components
         TextView tvRoute, tvFare, tvPassengers, tvNames, tvTime, tvStatus, tvDistance;
@@ -52,6 +109,8 @@ public class RideAdapter extends RecyclerView.Adapter<RideAdapter.RideViewHolder
         ImageButton btnMore;
         View statusIndicator;
 
+        private RideDisplayModel model;
+
         public RideViewHolder(View itemView) {
             super(itemView);
 
@@ -66,250 +125,138 @@ public class RideAdapter extends RecyclerView.Adapter<RideAdapter.RideViewHolder
             btnJoin = itemView.findViewById(R.id.btn_join);
             btnMore = itemView.findViewById(R.id.btn_more);
             statusIndicator = itemView.findViewById(R.id.status_indicator);
-        }
 
-        public void bind(Ride ride) {
-            if (ride == null) return;
-
-            try {
-                // Handle both legacy and database rides
-                if (ride.getId() > 0) {
-                    // Database ride - use enhanced fields
-                    bindDatabaseRide(ride);
-                } else {
-                    // Legacy ride - use old fields
-                    bindLegacyRide(ride);
+            // Set once; they act on whichever ride the row shows when clicked
+            View.OnClickListener joinListener = v -> {
+                if (listener != null && model != null) {
+                    listener.onJoinRide(model.getRide());
                 }
-
-                // Set click listeners
-                setupClickListeners(ride);
-
-            } catch (Exception e) {
-                e.printStackTrace();
-                // Fallback to basic display
-                bindBasicRideInfo(ride);
-            }
+            };
+            if (btnJoin != null) btnJoin.setOnClickListener(joinListener);
+            if (btnMore != null) btnMore.setOnClickListener(joinListener); // For now, same as join
+            itemView.setOnClickListener(joinListener); // Whole item click for details
         }
 
-        private void bindDatabaseRide(Ride ride) {
-            // Route information
-            if (tvRoute != null) {
-                String route = ride.getFromAddress() + " → " + ride.getToAddress();
-                if (route.length() > 40) {
-                    route = ride.getShortRoute();
-                }
-                tvRoute.setText(route);
-            }
+        public void bind(RideDisplayModel ride) {
+            model = ride;
 
-            // Fare information
-            if (tvFare != null) {
-                tvFare.setText(ride.getFormattedPrice());
-            }
+            if (tvRoute != null) tvRoute.setText(ride.getRoute());
+            if (tvFare != null) tvFare.setText(ride.getFare());
+            if (tvTime != null) tvTime.setText(ride.getTime());
 
-            // Passengers/Seats information
-            if (tvPassengers != null) {
-                String seatsInfo = ride.getAvailableSeats() + " seats available";
-                tvPassengers.setText(seatsInfo);
-            }
-
-            // Departure time
-            if (tvTime != null) {
-                tvTime.setText(ride.getFormattedDepartureTime());
-            }
-
-            // Status information
-            if (tvStatus != null) {
-                tvStatus.setText(ride.getStatus().toUpperCase());
-                updateStatusColor(ride.getStatus());
-            }
-
-            // Names (if available)
             if (tvNames != null) {
-                if (ride.getNames() != null && !ride.getNames().isEmpty()) {
-                    tvNames.setText("👤 " + ride.getNames());
-                    tvNames.setVisibility(View.VISIBLE);
-                } else {
-                    tvNames.setVisibility(View.GONE);
-                }
+                tvNames.setText(ride.getNames());
+                tvNames.setVisibility(ride.getNamesVisibility());
             }
 
-            // Distance (if coordinates are available)
-            if (tvDistance != null && ride.hasValidCoordinates()) {
-                double distance = LocationUtils.calculateDistance(
-                        ride.getFromLatitude(), ride.getFromLongitude(),
-                        ride.getToLatitude(), ride.getToLongitude()
-                );
-                tvDistance.setText(LocationUtils.formatDistance(distance));
-                tvDistance.setVisibility(View.VISIBLE);
-            } else if (tvDistance != null) {
-                tvDistance.setVisibility(View.GONE);
+            if (tvDistance != null) {
+                tvDistance.setText(ride.getDistance());
+                tvDistance.setVisibility(ride.getDistanceVisibility());
             }
 
-            // Update button text based on ride status and available seats
-            updateJoinButton(ride);
+            bindPassengers(ride);
+            bindStatus(ride);
+            bindJoinButton(ride);
         }
 
-        private void bindLegacyRide(Ride ride) {
-            // Use legacy getters for backward compatibility
-            if (tvRoute != null) {
-                tvRoute.setText(ride.getRoute());
-            }
+        // Update only what changed in the ride shown in this row
+        public void bindChanges(RideDisplayModel ride, int changes) {
+            model = ride;
 
-            if (tvFare != null) {
-                tvFare.setText(ride.getFare());
-            }
-
-            if (tvPassengers != null) {
-                tvPassengers.setText(ride.getPassengers());
-            }
-
-            if (tvTime != null) {
-                tvTime.setText(ride.getTime());
-            }
-
-            if (tvNames != null && ride.getNames() != null) {
-                tvNames.setText("👤 " + ride.getNames());
-                tvNames.setVisibility(View.VISIBLE);
-            }
-
-            // Hide database-specific views
-            if (tvStatus != null) tvStatus.setVisibility(View.GONE);
-            if (tvDistance != null) tvDistance.setVisibility(View.GONE);
-            if (statusIndicator != null) statusIndicator.setVisibility(View.GONE);
-
-            // Standard join button for legacy rides
-            if (btnJoin != null) {
-                btnJoin.setText("Join Ride");
-                btnJoin.setVisibility(View.VISIBLE);
-            }
+            if ((changes & PAYLOAD_SEATS) != 0) bindPassengers(ride);
+            if ((changes & PAYLOAD_STATUS) != 0) bindStatus(ride);
+            bindJoinButton(ride);
         }
 
-        private void bindBasicRideInfo(Ride ride) {
-            // Fallback binding in case of errors
-            if (tvRoute != null) {
-                String route = ride.getRoute() != null ? ride.getRoute() : "Route unavailable";
-                tvRoute.setText(route);
-            }
+        private void bindPassengers(RideDisplayModel ride) {
+            if (tvPassengers != null) tvPassengers.setText(ride.getPassengers());
+        }
 
-            if (tvFare != null) {
-                String fare = ride.getFare() != null ? ride.getFare() : "Fare: N/A";
-                tvFare.setText(fare);
+        private void bindStatus(RideDisplayModel ride) {
+            if (tvStatus != null) {
+                tvStatus.setText(ride.getStatus());
+                tvStatus.setVisibility(ride.getStatusVisibility());
             }
-
-            if (btnJoin != null) {
-                btnJoin.setText("View Details");
-                btnJoin.setVisibility(View.VISIBLE);
+            if (statusIndicator != null) {
+                statusIndicator.setBackgroundColor(ride.getStatusColor());
+                statusIndicator.setVisibility(ride.getStatusColorVisibility());
             }
         }
 
-        private void updateJoinButton(Ride ride) {
+        private void bindJoinButton(RideDisplayModel ride) {
             if (btnJoin == null) return;
 
-            if (!ride.isActive()) {
-                if (ride.isCompleted()) {
-                    btnJoin.setText("Completed");
-                    btnJoin.setEnabled(false);
-                } else if (ride.isCancelled()) {
-                    btnJoin.setText("Cancelled");
-                    btnJoin.setEnabled(false);
-                } else {
-                    btnJoin.setText("Unavailable");
-                    btnJoin.setEnabled(false);
-                }
-            } else if (!ride.hasAvailableSeats()) {
-                btnJoin.setText("Full");
-                btnJoin.setEnabled(false);
-            } else if (!ride.isDepartureInFuture()) {
-                btnJoin.setText("Departed");
-                btnJoin.setEnabled(false);
-            } else {
-                btnJoin.setText("Join Ride");
-                btnJoin.setEnabled(true);
-            }
+            btnJoin.setText(ride.getJoinText());
+            btnJoin.setEnabled(ride.isJoinEnabled());
+            btnJoin.setVisibility(View.VISIBLE);
         }
+    }
 
-        private void updateStatusColor(String status) {
-            if (statusIndicator == null) return;
-
-            int color;
-            switch (status.toLowerCase()) {
-                case "active":
-                    color = 0xFF4CAF50; // Green
-                    break;
-                case "completed":
-                    color = 0xFF2196F3; // Blue
-                    break;
-                case "cancelled":
-                    color = 0xFFF44336; // Red
-                    break;
-                default:
-                    color = 0xFF9E9E9E; // Gray
-                    break;
-            }
-            statusIndicator.setBackgroundColor(color);
-        }
-
-        private void setupClickListeners(Ride ride) {
-            // Main join button click
-            if (btnJoin != null) {
-                btnJoin.setOnClickListener(v -> {
-                    if (listener != null) {
-                        listener.onJoinRide(ride);
-                    }
-                });
-            }
-
-            // More options button (if available)
-            if (btnMore != null) {
-                btnMore.setOnClickListener(v -> {
-                    if (listener != null) {
-                        listener.onJoinRide(ride); // For now, same as join
-                    }
-                });
-            }
+    // Utility methods for adapter management. Build the models with RideDisplayModel.fromSummaries
+    // on the thread that loaded the rides. Changes are diffed in the background and applied when
+    // the diff is ready; onCommitted runs once the adapter shows the new list.
+    public void submitRides(List<RideDisplayModel> newRides, Runnable onCommitted) {
+        latestRides = newRides != null ? new ArrayList<>(newRides) : new ArrayList<>();
+        differ.submitList(latestRides.isEmpty() ? null : latestRides, onCommitted);
+    }
 
-            // Whole item click for details
-            itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onJoinRide(ride);
-                }
-            });
+    public void updateRides(List<RideDisplayModel> newRides) {
+        if (newRides != null) {
+            submitRides(newRides, null);
         }
     }
 
-    // Utility methods for adapter management
-    public void updateRides(List<Ride> newRides) {
-        if (newRides != null) {
-            this.rides = newRides;
-            notifyDataSetChanged();
+    // Append a page of rides below the current ones
+    public void appendRides(List<RideDisplayModel> page, Runnable onCommitted) {
+        List<RideDisplayModel> newRides = new ArrayList<>(latestRides);
+        if (page != null) {
+            newRides.addAll(page);
         }
+        submitRides(newRides, onCommitted);
+    }
+
+    public void appendRides(List<RideDisplayModel> page) {
+        appendRides(page, null);
     }
 
-    public void addRide(Ride ride) {
-        if (ride != null && rides != null) {
-            rides.add(ride);
-            notifyItemInserted(rides.size() - 1);
+    public void clearRides() {
+        submitRides(null, null);
+    }
+
+    public void addRide(RideDisplayModel ride) {
+        if (ride != null) {
+            List<RideDisplayModel> newRides = new ArrayList<>(latestRides);
+            newRides.add(ride);
+            submitRides(newRides, null);
         }
     }
 
     public void removeRide(int position) {
-        if (rides != null && position >= 0 && position < rides.size()) {
-            rides.remove(position);
-            notifyItemRemoved(position);
+        if (position >= 0 && position < latestRides.size()) {
+            List<RideDisplayModel> newRides = new ArrayList<>(latestRides);
+            newRides.remove(position);
+            submitRides(newRides, null);
         }
     }
 
-    public void updateRide(int position, Ride ride) {
-        if (rides != null && ride != null && position >= 0 && position < rides.size()) {
-            rides.set(position, ride);
-            notifyItemChanged(position);
+    public void updateRide(int position, RideDisplayModel ride) {
+        if (ride != null && position >= 0 && position < latestRides.size()) {
+            List<RideDisplayModel> newRides = new ArrayList<>(latestRides);
+            newRides.set(position, ride);
+            submitRides(newRides, null);
         }
     }
 
+    // Rides currently shown, read-only
+    public List<RideDisplayModel> getRides() {
+        return differ.getCurrentList();
+    }
+
     // Get ride at position safely
-    public Ride getRideAtPosition(int position) {
-        if (rides != null && position >= 0 && position < rides.size()) {
-            return rides.get(position);
+    public RideSummary getRideAtPosition(int position) {
+        List<RideDisplayModel> rides = differ.getCurrentList();
+        if (position >= 0 && position < rides.size()) {
+            return rides.get(position).getRide();
         }
         return null;
     }
@@ -0,0 +1,219 @@
+package com.companyname.shareride;
+
+import android.view.View;
+import com.companyname.shareride.utils.LocationUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Everything a ride row shows, worked out once when the results load (on the worker thread)
+ * so RideAdapter only assigns text, colours and visibility while scrolling.
+ * The join button state uses the time the model was built; the next refresh updates it.
+ */
+public final class RideDisplayModel {
+
+    private static final int MAX_ROUTE_LENGTH = 40;
+
+    private static final int COLOR_ACTIVE = 0xFF4CAF50; // Green
+    private static final int COLOR_COMPLETED = 0xFF2196F3; // Blue
+    private static final int COLOR_CANCELLED = 0xFFF44336; // Red
+    private static final int COLOR_OTHER = 0xFF9E9E9E; // Gray
+
+    private final RideSummary ride;
+
+    private final String route;
+    private final String fare;
+    private final String passengers;
+    private final String time;
+    private final String names;
+    private final int namesVisibility;
+    private final String distance;
+    private final int distanceVisibility;
+    private final String status;
+    private final int statusVisibility;
+    private final int statusColor;
+    private final int statusColorVisibility;
+    private final String joinText;
+    private final boolean joinEnabled;
+
+    private RideDisplayModel(RideSummary ride, String route, String fare, String passengers, String time,
+                             String names, int namesVisibility, String distance, int distanceVisibility,
+                             String status, int statusVisibility, int statusColor, int statusColorVisibility,
+                             String joinText, boolean joinEnabled) {
+        this.ride = ride;
+        this.route = route;
+        this.fare = fare;
+        this.passengers = passengers;
+        this.time = time;
+        this.names = names;
+        this.namesVisibility = namesVisibility;
+        this.distance = distance;
+        this.distanceVisibility = distanceVisibility;
+        this.status = status;
+        this.statusVisibility = statusVisibility;
+        this.statusColor = statusColor;
+        this.statusColorVisibility = statusColorVisibility;
+        this.joinText = joinText;
+        this.joinEnabled = joinEnabled;
+    }
+
+    public static RideDisplayModel fromSummary(RideSummary ride) {
+        try {
+            // Handle both legacy and database rides
+            return ride.getId() > 0 ? fromDatabaseRide(ride) : fromLegacyRide(ride);
+        } catch (Exception e) {
+            e.printStackTrace();
+            // Fallback to basic display
+            return fromBasicRideInfo(ride);
+        }
+    }
+
+    public static List<RideDisplayModel> fromSummaries(List<RideSummary> rides) {
+        List<RideDisplayModel> models = new ArrayList<>(rides.size());
+        for (RideSummary ride : rides) {
+            models.add(fromSummary(ride));
+        }
+        return models;
+    }
+
+    private static RideDisplayModel fromDatabaseRide(RideSummary ride) {
+        String route = ride.getFromAddress() + " → " + ride.getToAddress();
+        if (route.length() > MAX_ROUTE_LENGTH) {
+            route = ride.getShortRoute();
+        }
+
+        boolean hasNames = ride.getNames() != null && !ride.getNames().isEmpty();
+
+        String distance = null;
+        if (ride.hasValidCoordinates()) {
+            distance = LocationUtils.formatDistance(LocationUtils.calculateDistance(
+                    ride.getFromLatitude(), ride.getFromLongitude(),
+                    ride.getToLatitude(), ride.getToLongitude()));
+        }
+
+        // Join button text based on ride status and available seats
+        String joinText;
+        boolean joinEnabled = false;
+        if (!ride.isActive()) {
+            if (ride.isCompleted()) {
+                joinText = "Completed";
+            } else if (ride.isCancelled()) {
+                joinText = "Cancelled";
+            } else {
+                joinText = "Unavailable";
+            }
+        } else if (!ride.hasAvailableSeats()) {
+            joinText = "Full";
+        } else if (!ride.isDepartureInFuture()) {
+            joinText = "Departed";
+        } else {
+            joinText = "Join Ride";
+            joinEnabled = true;
+        }
+
+        return new RideDisplayModel(ride,
+                route,
+                ride.getFormattedPrice(),
+                ride.getAvailableSeats() + " seats available",
+                ride.getFormattedDepartureTime(),
+                hasNames ? "👤 " + ride.getNames() : "",
+                hasNames ? View.VISIBLE : View.GONE,
+                distance,
+                distance != null ? View.VISIBLE : View.GONE,
+                ride.getStatus().toUpperCase(Locale.ROOT),
+                View.VISIBLE,
+                statusColor(ride.getStatus()),
+                View.VISIBLE,
+                joinText,
+                joinEnabled);
+    }
+
+    private static RideDisplayModel fromLegacyRide(RideSummary ride) {
+        // Hide database-specific views; standard join button for legacy rides
+        return new RideDisplayModel(ride,
+                ride.getRoute(),
+                ride.getFormattedPrice(),
+                ride.getPassengers(),
+                ride.getFormattedDepartureTime(),
+                ride.getNames() != null ? "👤 " + ride.getNames() : "",
+                ride.getNames() != null ? View.VISIBLE : View.GONE,
+                null, View.GONE,
+                null, View.GONE,
+                COLOR_OTHER, View.GONE,
+                "Join Ride",
+                true);
+    }
+
+    private static RideDisplayModel fromBasicRideInfo(RideSummary ride) {
+        String route = ride.getRoute() != null ? ride.getRoute() : "Route unavailable";
+        String fare = ride.getFormattedPrice() != null ? ride.getFormattedPrice() : "Fare: N/A";
+        return new RideDisplayModel(ride,
+                route, fare, null, null,
+                "", View.GONE,
+                null, View.GONE,
+                null, View.GONE,
+                COLOR_OTHER, View.GONE,
+                "View Details",
+                true);
+    }
+
+    private static int statusColor(String status) {
+        switch (status.toLowerCase(Locale.ROOT)) {
+            case "active":
+                return COLOR_ACTIVE;
+            case "completed":
+                return COLOR_COMPLETED;
+            case "cancelled":
+                return COLOR_CANCELLED;
+            default:
+                return COLOR_OTHER;
+        }
+    }
+
+    // Getters
+    public RideSummary getRide() { return ride; }
+    public long getId() { return ride.getId(); }
+    public long getItemId() { return ride.getItemId(); }
+    public String getRoute() { return route; }
+    public String getFare() { return fare; }
+    public String getPassengers() { return passengers; }
+    public String getTime() { return time; }
+    public String getNames() { return names; }
+    public int getNamesVisibility() { return namesVisibility; }
+    public String getDistance() { return distance; }
+    public int getDistanceVisibility() { return distanceVisibility; }
+    public String getStatus() { return status; }
+    public int getStatusVisibility() { return statusVisibility; }
+    public int getStatusColor() { return statusColor; }
+    public int getStatusColorVisibility() { return statusColorVisibility; }
+    public String getJoinText() { return joinText; }
+    public boolean isJoinEnabled() { return joinEnabled; }
+
+    // Same route, fare, time, names and distance; seats, status and join button may differ
+    public boolean hasSameDetails(RideDisplayModel other) {
+        return Objects.equals(route, other.route) &&
+                Objects.equals(fare, other.fare) &&
+                Objects.equals(time, other.time) &&
+                Objects.equals(names, other.names) &&
+                namesVisibility == other.namesVisibility &&
+                Objects.equals(distance, other.distance) &&
+                distanceVisibility == other.distanceVisibility;
+    }
+
+    public boolean hasSamePassengers(RideDisplayModel other) {
+        return Objects.equals(passengers, other.passengers);
+    }
+
+    public boolean hasSameStatus(RideDisplayModel other) {
+        return Objects.equals(status, other.status) &&
+                statusVisibility == other.statusVisibility &&
+                statusColor == other.statusColor &&
+                statusColorVisibility == other.statusColorVisibility;
+    }
+
+    public boolean hasSameJoinButton(RideDisplayModel other) {
+        return Objects.equals(joinText, other.joinText) && joinEnabled == other.joinEnabled;
+    }
+}
@@ -0,0 +1,192 @@
+package com.companyname.shareride;
+
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import com.companyname.shareride.utils.TaskScheduler;
+import java.util.List;
+
+/**
+ * Loads rides into a RideAdapter one page at a time as the user scrolls.
+ * Each page is fetched on the TaskScheduler database pool through a PageFetcher that seeks past the
+ * last ride already shown (see the RideDAO *Page methods), so only the visible pages are in memory.
+ */
+public class RidePageLoader {
+
+    private static final String TAG = "RidePageLoader";
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    // Start fetching the next page when this many rows are left below the last visible one
+    private static final int PREFETCH_DISTANCE = 5;
+
+    public interface PageFetcher {
+        // Called on a background thread; after is null for the first page.
+        // signal is cancelled when the page is no longer wanted, pass it on to the query
+        List<RideSummary> fetchPage(RideSummary after, int limit, CancellationSignal signal);
+    }
+
+    public interface OnPageLoadedListener {
+        void onPageLoaded(int pageNumber, int rowCount, boolean endReached);
+        void onPageError(int pageNumber, Exception e);
+    }
+
+    private final RideAdapter adapter;
+    private final int pageSize;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private OnPageLoadedListener listener;
+
+    // Paging state, only touched on the main thread
+    private PageFetcher fetcher;
+    private RideSummary lastRide;
+    private int pagesLoaded = 0;
+    private boolean loading = false;
+    private boolean endReached = true;
+    private int generation = 0; // Bumped by start()/stop() so pages of an older source are dropped
+    private TaskScheduler.Task pageTask;
+    private CancellationSignal pageSignal;
+
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            if (dy <= 0) return;
+
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (layoutManager instanceof LinearLayoutManager) {
+                int lastVisible = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+                if (lastVisible >= adapter.getItemCount() - 1 - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        }
+    };
+
+    public RidePageLoader(RideAdapter adapter) {
+        this(adapter, DEFAULT_PAGE_SIZE);
+    }
+
+    public RidePageLoader(RideAdapter adapter, int pageSize) {
+        this.adapter = adapter;
+        this.pageSize = pageSize;
+    }
+
+    public void setOnPageLoadedListener(OnPageLoadedListener listener) {
+        this.listener = listener;
+    }
+
+    public void attachTo(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(scrollListener);
+    }
+
+    public void detachFrom(RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(scrollListener);
+    }
+
+    // Clear the list and start paging from a new source
+    public void start(PageFetcher fetcher) {
+        generation++;
+        cancelPageTask();
+        this.fetcher = fetcher;
+        lastRide = null;
+        pagesLoaded = 0;
+        loading = false;
+        endReached = false;
+
+        adapter.clearRides();
+        loadNextPage();
+    }
+
+    // Stop paging; rows already shown stay, pages still being fetched are dropped
+    public void stop() {
+        generation++;
+        cancelPageTask();
+        fetcher = null;
+        loading = false;
+        endReached = true;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public boolean isEndReached() {
+        return endReached;
+    }
+
+    public void loadNextPage() {
+        if (loading || endReached || fetcher == null) return;
+
+        loading = true;
+        final int requestGeneration = generation;
+        final PageFetcher pageFetcher = fetcher;
+        final RideSummary after = lastRide;
+        final int pageNumber = pagesLoaded + 1;
+        final CancellationSignal signal = new CancellationSignal();
+        pageSignal = signal;
+
+        pageTask = TaskScheduler.getInstance().execute(TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.USER, () -> {
+            try {
+                List<RideSummary> page = pageFetcher.fetchPage(after, pageSize, signal);
+                // Row text is worked out here rather than while scrolling
+                List<RideDisplayModel> rows = RideDisplayModel.fromSummaries(page);
+                mainHandler.post(() -> onPageFetched(requestGeneration, pageNumber, rows));
+            } catch (OperationCanceledException e) {
+                Log.d(TAG, "Page " + pageNumber + " cancelled");
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading page " + pageNumber, e);
+                mainHandler.post(() -> onPageFailed(requestGeneration, pageNumber, e));
+            }
+        });
+    }
+
+    // A page of the old source is not worth fetching: drop it from the queue, or abort its query
+    private void cancelPageTask() {
+        if (pageTask != null) {
+            pageTask.cancel();
+            pageTask = null;
+        }
+        if (pageSignal != null) {
+            pageSignal.cancel();
+            pageSignal = null;
+        }
+    }
+
+    private void onPageFetched(int requestGeneration, int pageNumber, List<RideDisplayModel> page) {
+        if (requestGeneration != generation) return;
+
+        loading = false;
+        pagesLoaded = pageNumber;
+        endReached = page.size() < pageSize;
+
+        // Report the page once its rows are in the adapter, unless a newer source took over meanwhile
+        boolean pageEndReached = endReached;
+        Runnable onCommitted = () -> {
+            if (requestGeneration == generation && listener != null) {
+                listener.onPageLoaded(pageNumber, page.size(), pageEndReached);
+            }
+        };
+
+        if (!page.isEmpty()) {
+            lastRide = page.get(page.size() - 1).getRide();
+            adapter.appendRides(page, onCommitted);
+        } else {
+            onCommitted.run();
+        }
+    }
+
+    private void onPageFailed(int requestGeneration, int pageNumber, Exception e) {
+        if (requestGeneration != generation) return;
+
+        // Stop here rather than retrying on every scroll; a new search starts over
+        loading = false;
+        endReached = true;
+
+        if (listener != null) {
+            listener.onPageError(pageNumber, e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.companyname.shareride;
+
+import com.companyname.shareride.database.DatabaseHelper;
+
+/**
+ * A passenger's request to join a ride.
+ * Requests start out pending; the driver either accepts one, which takes its seats from the ride,
+ * or rejects it. Accepted and rejected requests do not change again.
+ */
+public class RideRequest {
+    private final long id;
+    private final long rideId;
+    private final long passengerId;
+    private final String passengerName;
+    private final String status;
+    private final String message;
+    private final int seatsRequested;
+    private final long createdAt;
+    private final long updatedAt;
+
+    public RideRequest(long id, long rideId, long passengerId, String passengerName, String status,
+                       String message, int seatsRequested, long createdAt, long updatedAt) {
+        this.id = id;
+        this.rideId = rideId;
+        this.passengerId = passengerId;
+        this.passengerName = passengerName;
+        this.status = status;
+        this.message = message;
+        this.seatsRequested = seatsRequested;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    // Getters
+    public long getId() { return id; }
+    public long getRideId() { return rideId; }
+    public long getPassengerId() { return passengerId; }
+    public String getPassengerName() { return passengerName; }
+    public String getStatus() { return status; }
+    public String getMessage() { return message; }
+    public int getSeatsRequested() { return seatsRequested; }
+    public long getCreatedAt() { return createdAt; }
+    public long getUpdatedAt() { return updatedAt; }
+
+    public boolean isPending() {
+        return DatabaseHelper.REQUEST_STATUS_PENDING.equals(status);
+    }
+
+    public boolean isAccepted() {
+        return DatabaseHelper.REQUEST_STATUS_ACCEPTED.equals(status);
+    }
+
+    public boolean isRejected() {
+        return DatabaseHelper.REQUEST_STATUS_REJECTED.equals(status);
+    }
+
+    public String getDisplayText() {
+        String name = passengerName != null ? passengerName : "user_" + passengerId;
+        return name + " • " + seatsRequested + (seatsRequested == 1 ? " seat" : " seats");
+    }
+}
@@ -0,0 +1,166 @@
+package com.companyname.shareride;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Compact, read-only view of a ride holding only what the ride lists display
+ * (route, coordinates, departure time, seats, fare and status).
+ * The full Ride is loaded on demand through RideDAO.getRideById.
+ */
+public class RideSummary {
+    private final long id;
+    private final String fromAddress;
+    private final double fromLatitude;
+    private final double fromLongitude;
+    private final String toAddress;
+    private final double toLatitude;
+    private final double toLongitude;
+    private final long departureTime;
+    private final int availableSeats;
+    private final double price;
+    private final String status;
+
+    // Stable list row ID: the database ID, or for sample rides a negative hash of their content
+    private long itemId;
+
+    // Legacy display text, only set for rides built with the legacy Ride constructor
+    private String names;
+    private String legacyFare;
+    private String legacyPassengers;
+    private String legacyTime;
+
+    public RideSummary(long id, String fromAddress, double fromLatitude, double fromLongitude,
+                       String toAddress, double toLatitude, double toLongitude,
+                       long departureTime, int availableSeats, double price, String status) {
+        this.id = id;
+        this.fromAddress = fromAddress;
+        this.fromLatitude = fromLatitude;
+        this.fromLongitude = fromLongitude;
+        this.toAddress = toAddress;
+        this.toLatitude = toLatitude;
+        this.toLongitude = toLongitude;
+        this.departureTime = departureTime;
+        this.availableSeats = availableSeats;
+        this.price = price;
+        this.status = status;
+        this.itemId = id;
+    }
+
+    // Build a summary from an already loaded ride (search index results, sample rides)
+    public static RideSummary fromRide(Ride ride) {
+        RideSummary summary = new RideSummary(ride.getId(),
+                ride.getFromAddress(), ride.getFromLatitude(), ride.getFromLongitude(),
+                ride.getToAddress(), ride.getToLatitude(), ride.getToLongitude(),
+                ride.getDepartureTime(), ride.getAvailableSeats(), ride.getPrice(), ride.getStatus());
+        summary.names = ride.getNames();
+
+        if (ride.getId() <= 0) {
+            // Keep the legacy strings as entered
+            summary.legacyFare = ride.getFare();
+            summary.legacyPassengers = ride.getPassengers();
+            summary.legacyTime = ride.getTime();
+
+            // Sample rides are rebuilt on every load; the same content keeps the same row ID
+            int hash = Objects.hash(summary.names, summary.fromAddress, summary.toAddress,
+                    summary.legacyFare, summary.legacyPassengers, summary.legacyTime);
+            summary.itemId = -1L - (hash & 0x7fffffffL);
+        }
+        return summary;
+    }
+
+    // Getters
+    public long getId() { return id; }
+    public String getFromAddress() { return fromAddress; }
+    public double getFromLatitude() { return fromLatitude; }
+    public double getFromLongitude() { return fromLongitude; }
+    public String getToAddress() { return toAddress; }
+    public double getToLatitude() { return toLatitude; }
+    public double getToLongitude() { return toLongitude; }
+    public long getDepartureTime() { return departureTime; }
+    public int getAvailableSeats() { return availableSeats; }
+    public double getPrice() { return price; }
+    public String getStatus() { return status != null ? status : Ride.STATUS_ACTIVE; }
+    public String getNames() { return names; }
+    public long getItemId() { return itemId; }
+
+    // Status helpers
+    public boolean isActive() {
+        return Ride.STATUS_ACTIVE.equals(getStatus());
+    }
+
+    public boolean isCompleted() {
+        return Ride.STATUS_COMPLETED.equals(getStatus());
+    }
+
+    public boolean isCancelled() {
+        return Ride.STATUS_CANCELLED.equals(getStatus());
+    }
+
+    public boolean hasAvailableSeats() {
+        return availableSeats > 0;
+    }
+
+    public boolean hasValidCoordinates() {
+        return fromLatitude != 0.0 && fromLongitude != 0.0 &&
+                toLatitude != 0.0 && toLongitude != 0.0;
+    }
+
+    public boolean isDepartureInFuture() {
+        return departureTime > System.currentTimeMillis();
+    }
+
+    // Display helpers
+    public String getRoute() {
+        if (fromAddress == null || toAddress == null) {
+            return fromAddress;
+        }
+        return fromAddress + " → " + toAddress;
+    }
+
+    public String getShortRoute() {
+        if (fromAddress != null && toAddress != null) {
+            String from = fromAddress.length() > 20 ? fromAddress.substring(0, 17) + "..." : fromAddress;
+            String to = toAddress.length() > 20 ? toAddress.substring(0, 17) + "..." : toAddress;
+            return from + " → " + to;
+        }
+        return getRoute();
+    }
+
+    public String getFormattedPrice() {
+        if (legacyFare != null) {
+            return legacyFare;
+        }
+        return "₹" + String.format("%.0f", price);
+    }
+
+    public String getPassengers() {
+        if (legacyPassengers != null) {
+            return legacyPassengers;
+        }
+        return availableSeats + " seats available";
+    }
+
+    public String getFormattedDepartureTime() {
+        if (legacyTime != null || departureTime <= 0) {
+            return legacyTime;
+        }
+        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, HH:mm", Locale.getDefault());
+        return sdf.format(new Date(departureTime));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        RideSummary summary = (RideSummary) obj;
+        return id == summary.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+}
@@ -3,6 +3,7 @@ package com.companyname.shareride;
 import android.content.Context;
 import android.util.Log;
 import com.companyname.shareride.database.RideDAO;
+import com.companyname.shareride.utils.TaskScheduler;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
@@ -182,8 +183,8 @@ public class UserDataManager {
         try {
             RideDAO rideDAO = new RideDAO(context);
 
-            // Calculate stats in background thread
-            new Thread(() -> {
+            // Calculate stats in background, behind anything the user is waiting for
+            TaskScheduler.getInstance().execute(TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.BACKGROUND, () -> {
                 try {
                     long userIdLong = getUserIdAsLong();
 
@@ -223,7 +224,7 @@ public class UserDataManager {
                 } catch (Exception e) {
                     Log.e(TAG, "Error calculating stats from database", e);
                 }
-            }).start();
+            });
 
         } catch (Exception e) {
             Log.e(TAG, "Error initializing database for stats calculation", e);
@@ -0,0 +1,234 @@
+package com.companyname.shareride.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import com.companyname.shareride.ChatMessage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ride chat messages.
+ * Each ride has one conversation. A message is stored once, and receiver_id is the participant it
+ * is addressed to, who sees it as unread. History is read newest first, one page at a time, seeking
+ * past the oldest message already shown. Pages come straight off idx_chat_ride_id, so opening a chat
+ * costs the same no matter how long its history is.
+ */
+public class ChatDAO {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final String MESSAGE_COLUMNS = "m." + DatabaseHelper.KEY_ID + ", " +
+            "m." + DatabaseHelper.KEY_RIDE_ID + ", " +
+            "m." + DatabaseHelper.KEY_SENDER_ID + ", " +
+            "m." + DatabaseHelper.KEY_RECEIVER_ID + ", " +
+            "m." + DatabaseHelper.KEY_MESSAGE + ", " +
+            "m." + DatabaseHelper.KEY_IS_READ + ", " +
+            "m." + DatabaseHelper.KEY_CREATED_AT + ", " +
+            "u." + DatabaseHelper.KEY_USERNAME;
+
+    // The ride index holds (ride_id, id) pairs, so the seek and the ORDER BY need no sort
+    private static final String SELECT_PAGE_SQL = "SELECT " + MESSAGE_COLUMNS +
+            " FROM " + DatabaseHelper.TABLE_CHAT_MESSAGES + " m" +
+            " LEFT JOIN " + DatabaseHelper.TABLE_USERS + " u ON u." + DatabaseHelper.KEY_ID + " = m." + DatabaseHelper.KEY_SENDER_ID +
+            " WHERE m." + DatabaseHelper.KEY_RIDE_ID + " = ? AND m." + DatabaseHelper.KEY_ID + " < ?" +
+            " ORDER BY m." + DatabaseHelper.KEY_ID + " DESC LIMIT ?";
+
+    private static final String SELECT_AFTER_SQL = "SELECT " + MESSAGE_COLUMNS +
+            " FROM " + DatabaseHelper.TABLE_CHAT_MESSAGES + " m" +
+            " LEFT JOIN " + DatabaseHelper.TABLE_USERS + " u ON u." + DatabaseHelper.KEY_ID + " = m." + DatabaseHelper.KEY_SENDER_ID +
+            " WHERE m." + DatabaseHelper.KEY_RIDE_ID + " = ? AND m." + DatabaseHelper.KEY_ID + " > ?" +
+            " ORDER BY m." + DatabaseHelper.KEY_ID + " ASC LIMIT ?";
+
+    private static final String SELECT_LAST_CORRESPONDENT_SQL = "SELECT " + DatabaseHelper.KEY_SENDER_ID +
+            " FROM " + DatabaseHelper.TABLE_CHAT_MESSAGES +
+            " WHERE " + DatabaseHelper.KEY_RIDE_ID + " = ? AND " + DatabaseHelper.KEY_SENDER_ID + " != ?" +
+            " ORDER BY " + DatabaseHelper.KEY_ID + " DESC LIMIT 1";
+
+    // Both unread counts look up (is_read, receiver_id) in idx_chat_unread
+    private static final String COUNT_UNREAD_SQL = "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_CHAT_MESSAGES +
+            " WHERE " + DatabaseHelper.KEY_IS_READ + " = 0 AND " + DatabaseHelper.KEY_RECEIVER_ID + " = ?";
+
+    private static final String COUNT_UNREAD_FOR_RIDE_SQL = COUNT_UNREAD_SQL +
+            " AND " + DatabaseHelper.KEY_RIDE_ID + " = ?";
+
+    private static final String INSERT_MESSAGE_SQL = "INSERT INTO " + DatabaseHelper.TABLE_CHAT_MESSAGES + " (" +
+            DatabaseHelper.KEY_RIDE_ID + ", " + DatabaseHelper.KEY_SENDER_ID + ", " + DatabaseHelper.KEY_RECEIVER_ID + ", " +
+            DatabaseHelper.KEY_MESSAGE + ", " + DatabaseHelper.KEY_IS_READ + ", " + DatabaseHelper.KEY_CREATED_AT + ")" +
+            " VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String MARK_READ_SQL = "UPDATE " + DatabaseHelper.TABLE_CHAT_MESSAGES +
+            " SET " + DatabaseHelper.KEY_IS_READ + " = 1" +
+            " WHERE " + DatabaseHelper.KEY_IS_READ + " = 0 AND " + DatabaseHelper.KEY_RECEIVER_ID + " = ?" +
+            " AND " + DatabaseHelper.KEY_RIDE_ID + " = ? AND " + DatabaseHelper.KEY_ID + " <= ?";
+
+    private DatabaseHelper dbHelper;
+
+    public ChatDAO(Context context) {
+        dbHelper = DatabaseHelper.getInstance(context);
+    }
+
+    // Store one message; returns it with its new ID, or null if it could not be stored
+    public ChatMessage insertMessage(ChatMessage message) {
+        long id = insertMessages(Collections.singletonList(message))[0];
+        return id > 0 ? message.withId(id) : null;
+    }
+
+    /**
+     * Store messages in one transaction, e.g. a batch received from the server.
+     * Returns the new IDs in the same order; all -1 if the batch could not be stored.
+     */
+    public long[] insertMessages(List<ChatMessage> messages) {
+        long[] ids = new long[messages.size()];
+        Arrays.fill(ids, -1);
+        if (messages.isEmpty()) {
+            return ids;
+        }
+
+        // Before the transaction, so no other statement lock is taken while it holds the write lock
+        Set<Long> users = new HashSet<>();
+        for (ChatMessage message : messages) {
+            users.add(message.getSenderId());
+            users.add(message.getReceiverId());
+        }
+        for (long userId : users) {
+            dbHelper.ensureUserExists(userId);
+        }
+
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement insert = dbHelper.getCachedStatement(INSERT_MESSAGE_SQL);
+        synchronized (insert) {
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < messages.size(); i++) {
+                    ChatMessage message = messages.get(i);
+                    insert.bindLong(1, message.getRideId());
+                    insert.bindLong(2, message.getSenderId());
+                    insert.bindLong(3, message.getReceiverId());
+                    insert.bindString(4, message.getMessage());
+                    insert.bindLong(5, message.isRead() ? 1 : 0);
+                    insert.bindLong(6, message.getTimestamp());
+                    ids[i] = insert.executeInsert();
+                }
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                e.printStackTrace();
+                Arrays.fill(ids, -1);
+            } finally {
+                insert.clearBindings();
+                db.endTransaction();
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * One page of a ride's chat as seen by viewerId, oldest first.
+     * @param beforeId ID of the oldest message already shown, or 0 for the latest page
+     */
+    public List<ChatMessage> getMessagesPage(long rideId, long viewerId, long beforeId, int limit,
+                                             CancellationSignal signal) {
+        String[] args = {
+                String.valueOf(rideId),
+                String.valueOf(beforeId > 0 ? beforeId : Long.MAX_VALUE),
+                String.valueOf(limit)
+        };
+
+        List<ChatMessage> messages = new ArrayList<>();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SELECT_PAGE_SQL, args, signal);
+        try {
+            while (cursor.moveToNext()) {
+                messages.add(readMessage(cursor, viewerId));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    // The page of a ride's chat right after afterId, oldest first; for paging back down to the latest
+    public List<ChatMessage> getMessagesAfter(long rideId, long viewerId, long afterId, int limit,
+                                              CancellationSignal signal) {
+        String[] args = {String.valueOf(rideId), String.valueOf(afterId), String.valueOf(limit)};
+
+        List<ChatMessage> messages = new ArrayList<>();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SELECT_AFTER_SQL, args, signal);
+        try {
+            while (cursor.moveToNext()) {
+                messages.add(readMessage(cursor, viewerId));
+            }
+        } finally {
+            cursor.close();
+        }
+        return messages;
+    }
+
+    public List<ChatMessage> getLatestMessages(long rideId, long viewerId, CancellationSignal signal) {
+        return getMessagesPage(rideId, viewerId, 0, DEFAULT_PAGE_SIZE, signal);
+    }
+
+    // The last other participant who wrote in the ride's chat, or -1 if nobody else has
+    public long getLastCorrespondentId(long rideId, long userId) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SELECT_LAST_CORRESPONDENT_SQL,
+                new String[]{String.valueOf(rideId), String.valueOf(userId)});
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Mark everything addressed to receiverId in the ride's chat, up to and including upToId, as read.
+     * Returns the number of messages marked.
+     */
+    public int markAsRead(long rideId, long receiverId, long upToId) {
+        SQLiteStatement update = dbHelper.getCachedStatement(MARK_READ_SQL);
+        synchronized (update) {
+            update.bindLong(1, receiverId);
+            update.bindLong(2, rideId);
+            update.bindLong(3, upToId);
+            int marked = update.executeUpdateDelete();
+            update.clearBindings();
+            return marked;
+        }
+    }
+
+    // Unread messages addressed to the user across all rides
+    public int getUnreadCount(long receiverId) {
+        return countRows(COUNT_UNREAD_SQL, String.valueOf(receiverId));
+    }
+
+    public int getUnreadCount(long rideId, long receiverId) {
+        return countRows(COUNT_UNREAD_FOR_RIDE_SQL, String.valueOf(receiverId), String.valueOf(rideId));
+    }
+
+    private int countRows(String sql, String... args) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery(sql, args);
+        int count = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        cursor.close();
+        return count;
+    }
+
+    // Reads a MESSAGE_COLUMNS row
+    private static ChatMessage readMessage(Cursor cursor, long viewerId) {
+        long senderId = cursor.getLong(2);
+        boolean own = senderId == viewerId;
+        String sender = own ? "You" : (cursor.isNull(7) ? "user_" + senderId : cursor.getString(7));
+
+        return new ChatMessage(cursor.getLong(0), cursor.getLong(1), senderId, cursor.getLong(3),
+                sender, cursor.getString(4), own, cursor.getInt(5) != 0, cursor.getLong(6));
+    }
+}
@@ -3,18 +3,26 @@ package com.companyname.shareride.database;
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+import com.companyname.shareride.utils.RideSpatialIndex;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     // Database Info
     private static final String DATABASE_NAME = "ShareRideDB";
-    private static final int DATABASE_VERSION = 2; // Incremented for schema change
+    private static final int DATABASE_VERSION = 9; // Added the geocode cache tables
 
     // Table Names
     public static final String TABLE_RIDES = "rides";
     public static final String TABLE_USERS = "users";
     public static final String TABLE_RIDE_REQUESTS = "ride_requests";
     public static final String TABLE_CHAT_MESSAGES = "chat_messages";
+    public static final String TABLE_PLACES = "places";
+    public static final String TABLE_PLACES_FTS = "places_fts";
+    public static final String TABLE_GEOCODE_FORWARD = "geocode_forward";
+    public static final String TABLE_GEOCODE_REVERSE = "geocode_reverse";
+    public static final String TABLE_RIDES_RTREE = "rides_rtree"; // R*Tree over ride endpoints
 
     // Common column names
     public static final String KEY_ID = "id";
@@ -35,6 +43,10 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String KEY_RIDE_STATUS = "status"; // Changed from "ride_status" to "status"
     public static final String KEY_DESCRIPTION = "description"; // Added description field
     public static final String KEY_NOTES = "notes"; // Keep for backward compatibility
+    public static final String KEY_FROM_CELL = "from_cell"; // Grid cell of the pickup point
+    public static final String KEY_TO_CELL = "to_cell"; // Grid cell of the drop point
+    public static final String KEY_FROM_PLACE_ID = "from_place_id"; // places row of the pickup address
+    public static final String KEY_TO_PLACE_ID = "to_place_id"; // places row of the drop address
 
     // Alternative column constants for RideDAO compatibility
     public static final String COLUMN_ID = KEY_ID;
@@ -66,6 +78,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String KEY_PASSENGER_ID = "passenger_id";
     public static final String KEY_REQUEST_STATUS = "request_status"; // pending, accepted, rejected
     public static final String KEY_REQUEST_MESSAGE = "request_message";
+    public static final String KEY_SEATS_REQUESTED = "seats_requested";
+
+    // Ride request status values
+    public static final String REQUEST_STATUS_PENDING = "pending";
+    public static final String REQUEST_STATUS_ACCEPTED = "accepted";
+    public static final String REQUEST_STATUS_REJECTED = "rejected";
 
     // CHAT_MESSAGES Table - Column names
     public static final String KEY_SENDER_ID = "sender_id";
@@ -74,6 +92,41 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String KEY_MESSAGE_TYPE = "message_type"; // text, location, etc.
     public static final String KEY_IS_READ = "is_read";
 
+    // PLACES Table - Column names (one row per distinct pickup or drop address, see PlaceDAO)
+    public static final String KEY_ADDRESS = "address";
+    public static final String KEY_LATITUDE = "latitude";
+    public static final String KEY_LONGITUDE = "longitude";
+    public static final String KEY_CELL_ID = "cell_id";
+    public static final String KEY_USE_COUNT = "use_count"; // Rides using the place at either end
+    public static final String KEY_PICKUP_COUNT = "pickup_count"; // Rides starting at the place
+    public static final String KEY_LAST_USED_AT = "last_used_at";
+
+    // GEOCODE_FORWARD / GEOCODE_REVERSE Tables - Column names (see GeocodeCacheDAO)
+    public static final String KEY_QUERY = "query"; // Normalized forward geocoding query
+    public static final String KEY_RESULT_RANK = "result_rank"; // Position in the geocoder's result list
+    public static final String KEY_MAX_RESULTS = "max_results"; // Result limit the query was geocoded with
+    public static final String KEY_LATITUDE_KEY = "latitude_key"; // Quantized reverse geocoding latitude
+    public static final String KEY_LONGITUDE_KEY = "longitude_key"; // Quantized reverse geocoding longitude
+    public static final String KEY_FEATURE_NAME = "feature_name";
+    public static final String KEY_SUB_THOROUGHFARE = "sub_thoroughfare";
+    public static final String KEY_THOROUGHFARE = "thoroughfare";
+    public static final String KEY_SUB_LOCALITY = "sub_locality";
+    public static final String KEY_LOCALITY = "locality";
+    public static final String KEY_ADMIN_AREA = "admin_area";
+    public static final String KEY_POSTAL_CODE = "postal_code";
+    public static final String KEY_ADDRESS_LINE = "address_line"; // All address lines, comma separated
+    public static final String KEY_CACHED_AT = "cached_at";
+
+    // RIDES_RTREE virtual table - Column names (min/max pairs per dimension)
+    public static final String KEY_MIN_FROM_LATITUDE = "min_from_lat";
+    public static final String KEY_MAX_FROM_LATITUDE = "max_from_lat";
+    public static final String KEY_MIN_FROM_LONGITUDE = "min_from_lng";
+    public static final String KEY_MAX_FROM_LONGITUDE = "max_from_lng";
+    public static final String KEY_MIN_TO_LATITUDE = "min_to_lat";
+    public static final String KEY_MAX_TO_LATITUDE = "max_to_lat";
+    public static final String KEY_MIN_TO_LONGITUDE = "min_to_lng";
+    public static final String KEY_MAX_TO_LONGITUDE = "max_to_lng";
+
     // Table Create Statements
 
     // RIDES table create statement (Updated with description field)
@@ -92,8 +145,14 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             + KEY_RIDE_STATUS + " TEXT NOT NULL DEFAULT 'active',"
             + KEY_DESCRIPTION + " TEXT DEFAULT ''," // Added description field
             + KEY_NOTES + " TEXT,"
+            + KEY_FROM_CELL + " INTEGER NOT NULL DEFAULT 0,"
+            + KEY_TO_CELL + " INTEGER NOT NULL DEFAULT 0,"
+            + KEY_FROM_PLACE_ID + " INTEGER,"
+            + KEY_TO_PLACE_ID + " INTEGER,"
             + KEY_CREATED_AT + " INTEGER NOT NULL DEFAULT (strftime('%s', 'now') * 1000),"
-            + KEY_UPDATED_AT + " INTEGER NOT NULL DEFAULT (strftime('%s', 'now') * 1000)"
+            + KEY_UPDATED_AT + " INTEGER NOT NULL DEFAULT (strftime('%s', 'now') * 1000),"
+            + "FOREIGN KEY(" + KEY_FROM_PLACE_ID + ") REFERENCES " + TABLE_PLACES + "(" + KEY_ID + ") ON DELETE SET NULL,"
+            + "FOREIGN KEY(" + KEY_TO_PLACE_ID + ") REFERENCES " + TABLE_PLACES + "(" + KEY_ID + ") ON DELETE SET NULL"
             + ")";
 
     // USERS table create statement
@@ -114,8 +173,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
             + KEY_RIDE_ID + " INTEGER NOT NULL,"
             + KEY_PASSENGER_ID + " INTEGER NOT NULL,"
-            + KEY_REQUEST_STATUS + " TEXT NOT NULL DEFAULT 'pending',"
+            + KEY_REQUEST_STATUS + " TEXT NOT NULL DEFAULT '" + REQUEST_STATUS_PENDING + "',"
             + KEY_REQUEST_MESSAGE + " TEXT,"
+            + KEY_SEATS_REQUESTED + " INTEGER NOT NULL DEFAULT 1,"
             + KEY_CREATED_AT + " INTEGER NOT NULL DEFAULT (strftime('%s', 'now') * 1000),"
             + KEY_UPDATED_AT + " INTEGER NOT NULL DEFAULT (strftime('%s', 'now') * 1000),"
             + "FOREIGN KEY(" + KEY_RIDE_ID + ") REFERENCES " + TABLE_RIDES + "(" + KEY_ID + ") ON DELETE CASCADE,"
@@ -137,8 +197,120 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             + "FOREIGN KEY(" + KEY_RECEIVER_ID + ") REFERENCES " + TABLE_USERS + "(" + KEY_ID + ") ON DELETE CASCADE"
             + ")";
 
+    // RIDES_RTREE create statement - each ride is stored as a degenerate 4-D box
+    // (pickup point x drop point), so one lookup can match both ends of a route
+    private static final String CREATE_TABLE_RIDES_RTREE = "CREATE VIRTUAL TABLE " + TABLE_RIDES_RTREE + " USING rtree("
+            + KEY_ID + ","
+            + KEY_MIN_FROM_LATITUDE + ", " + KEY_MAX_FROM_LATITUDE + ","
+            + KEY_MIN_FROM_LONGITUDE + ", " + KEY_MAX_FROM_LONGITUDE + ","
+            + KEY_MIN_TO_LATITUDE + ", " + KEY_MAX_TO_LATITUDE + ","
+            + KEY_MIN_TO_LONGITUDE + ", " + KEY_MAX_TO_LONGITUDE
+            + ")";
+
+    private static final String RTREE_ROW_VALUES = "NEW." + KEY_ID + ", "
+            + "NEW." + KEY_FROM_LATITUDE + ", NEW." + KEY_FROM_LATITUDE + ", "
+            + "NEW." + KEY_FROM_LONGITUDE + ", NEW." + KEY_FROM_LONGITUDE + ", "
+            + "NEW." + KEY_TO_LATITUDE + ", NEW." + KEY_TO_LATITUDE + ", "
+            + "NEW." + KEY_TO_LONGITUDE + ", NEW." + KEY_TO_LONGITUDE;
+
+    // Triggers keeping the R*Tree in sync with every write to the rides table
+    private static final String CREATE_TRIGGER_RTREE_INSERT = "CREATE TRIGGER IF NOT EXISTS rides_rtree_insert"
+            + " AFTER INSERT ON " + TABLE_RIDES + " BEGIN"
+            + " INSERT INTO " + TABLE_RIDES_RTREE + " VALUES (" + RTREE_ROW_VALUES + ");"
+            + " END";
+
+    private static final String CREATE_TRIGGER_RTREE_UPDATE = "CREATE TRIGGER IF NOT EXISTS rides_rtree_update"
+            + " AFTER UPDATE OF " + KEY_FROM_LATITUDE + ", " + KEY_FROM_LONGITUDE + ", "
+            + KEY_TO_LATITUDE + ", " + KEY_TO_LONGITUDE + " ON " + TABLE_RIDES + " BEGIN"
+            + " DELETE FROM " + TABLE_RIDES_RTREE + " WHERE " + KEY_ID + " = OLD." + KEY_ID + ";"
+            + " INSERT INTO " + TABLE_RIDES_RTREE + " VALUES (" + RTREE_ROW_VALUES + ");"
+            + " END";
+
+    private static final String CREATE_TRIGGER_RTREE_DELETE = "CREATE TRIGGER IF NOT EXISTS rides_rtree_delete"
+            + " AFTER DELETE ON " + TABLE_RIDES + " BEGIN"
+            + " DELETE FROM " + TABLE_RIDES_RTREE + " WHERE " + KEY_ID + " = OLD." + KEY_ID + ";"
+            + " END";
+
+    // PLACES table create statement - NOCASE so the unique index also serves case-insensitive prefix ranges
+    private static final String CREATE_TABLE_PLACES = "CREATE TABLE " + TABLE_PLACES + "("
+            + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+            + KEY_ADDRESS + " TEXT NOT NULL COLLATE NOCASE UNIQUE,"
+            + KEY_LATITUDE + " REAL NOT NULL,"
+            + KEY_LONGITUDE + " REAL NOT NULL,"
+            + KEY_CELL_ID + " INTEGER NOT NULL DEFAULT 0,"
+            + KEY_USE_COUNT + " INTEGER NOT NULL DEFAULT 0,"
+            + KEY_PICKUP_COUNT + " INTEGER NOT NULL DEFAULT 0,"
+            + KEY_LAST_USED_AT + " INTEGER NOT NULL DEFAULT 0"
+            + ")";
+
+    // PLACES_FTS create statement - word-prefix index over the places table's address text
+    private static final String CREATE_TABLE_PLACES_FTS = "CREATE VIRTUAL TABLE " + TABLE_PLACES_FTS
+            + " USING fts4(content=\"" + TABLE_PLACES + "\", " + KEY_ADDRESS + ")";
+
+    // Place rows are only ever inserted, counted and deleted; the address text itself never changes
+    private static final String CREATE_TRIGGER_PLACES_FTS_INSERT = "CREATE TRIGGER IF NOT EXISTS places_fts_insert"
+            + " AFTER INSERT ON " + TABLE_PLACES + " BEGIN"
+            + " INSERT INTO " + TABLE_PLACES_FTS + "(docid, " + KEY_ADDRESS + ") VALUES (NEW." + KEY_ID + ", NEW." + KEY_ADDRESS + ");"
+            + " END";
+
+    // BEFORE, so FTS can still read the indexed text from the content row
+    private static final String CREATE_TRIGGER_PLACES_FTS_DELETE = "CREATE TRIGGER IF NOT EXISTS places_fts_delete"
+            + " BEFORE DELETE ON " + TABLE_PLACES + " BEGIN"
+            + " DELETE FROM " + TABLE_PLACES_FTS + " WHERE docid = OLD." + KEY_ID + ";"
+            + " END";
+
+    // Address fields kept for each geocoder result, enough for every address formatter in the app
+    private static final String GEOCODE_ADDRESS_COLUMNS = KEY_FEATURE_NAME + " TEXT,"
+            + KEY_SUB_THOROUGHFARE + " TEXT,"
+            + KEY_THOROUGHFARE + " TEXT,"
+            + KEY_SUB_LOCALITY + " TEXT,"
+            + KEY_LOCALITY + " TEXT,"
+            + KEY_ADMIN_AREA + " TEXT,"
+            + KEY_POSTAL_CODE + " TEXT,"
+            + KEY_ADDRESS_LINE + " TEXT,"
+            + KEY_LATITUDE + " REAL NOT NULL,"
+            + KEY_LONGITUDE + " REAL NOT NULL,"
+            + KEY_CACHED_AT + " INTEGER NOT NULL,"
+            + KEY_LAST_USED_AT + " INTEGER NOT NULL,";
+
+    // GEOCODE_FORWARD table create statement - one row per result of a query
+    private static final String CREATE_TABLE_GEOCODE_FORWARD = "CREATE TABLE " + TABLE_GEOCODE_FORWARD + "("
+            + KEY_QUERY + " TEXT NOT NULL,"
+            + KEY_RESULT_RANK + " INTEGER NOT NULL,"
+            + KEY_MAX_RESULTS + " INTEGER NOT NULL,"
+            + GEOCODE_ADDRESS_COLUMNS
+            + "PRIMARY KEY(" + KEY_QUERY + ", " + KEY_RESULT_RANK + ")"
+            + ")";
+
+    // GEOCODE_REVERSE table create statement - one row per quantized coordinate pair
+    private static final String CREATE_TABLE_GEOCODE_REVERSE = "CREATE TABLE " + TABLE_GEOCODE_REVERSE + "("
+            + KEY_LATITUDE_KEY + " INTEGER NOT NULL,"
+            + KEY_LONGITUDE_KEY + " INTEGER NOT NULL,"
+            + GEOCODE_ADDRESS_COLUMNS
+            + "PRIMARY KEY(" + KEY_LATITUDE_KEY + ", " + KEY_LONGITUDE_KEY + ")"
+            + ")";
+
+    private static final String INSERT_PLACEHOLDER_USER_SQL = "INSERT OR IGNORE INTO " + TABLE_USERS + " ("
+            + KEY_ID + ", " + KEY_USERNAME + ", " + KEY_EMAIL + ", " + KEY_CREATED_AT + ", " + KEY_UPDATED_AT
+            + ") VALUES (?, ?, ?, ?, ?)";
+
+    // Write-ahead log tuning (see configureWriteAheadLog)
+    private static final int WAL_AUTOCHECKPOINT_PAGES = 1000;
+    private static final long WAL_SIZE_LIMIT_BYTES = 4 * 1024 * 1024;
+    private static final String WAL_SYNCHRONOUS_MODE = "NORMAL"; // Durable at checkpoints; never corrupts in WAL mode
+    private static final long IDLE_CONNECTION_TIMEOUT_MS = 30 * 1000;
+
     private static DatabaseHelper instance;
 
+    // Cached result of the R*Tree availability check
+    private volatile Boolean spatialIndexAvailable;
+
+    // Cached result of the FTS address index availability check
+    private volatile Boolean addressSearchIndexAvailable;
+
+    // Precompiled write statements for the open database (see getCachedStatement)
+    private final StatementCache statementCache = new StatementCache();
+
     public static synchronized DatabaseHelper getInstance(Context context) {
         if (instance == null) {
             instance = new DatabaseHelper(context.getApplicationContext());
@@ -147,19 +319,42 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     }
 
     private DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME);
+    }
+
+    // A helper on its own database file, so instrumented tests never touch the app's data
+    DatabaseHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            // Release pooled reader connections that sit idle
+            setOpenParams(new SQLiteDatabase.OpenParams.Builder()
+                    .setIdleConnectionTimeout(IDLE_CONNECTION_TIMEOUT_MS)
+                    .setSynchronousMode(WAL_SYNCHRONOUS_MODE)
+                    .build());
+        }
+
+        // Write-ahead logging: readers see the last committed state and run on their own pooled
+        // connections while a writer appends to the WAL, instead of waiting for the write lock.
+        // The framework sizes the reader pool (typically 4 connections); it cannot be set per app
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
         // Create all tables
         db.execSQL(CREATE_TABLE_USERS);
+        db.execSQL(CREATE_TABLE_PLACES);
         db.execSQL(CREATE_TABLE_RIDES);
         db.execSQL(CREATE_TABLE_RIDE_REQUESTS);
         db.execSQL(CREATE_TABLE_CHAT_MESSAGES);
+        db.execSQL(CREATE_TABLE_GEOCODE_FORWARD);
+        db.execSQL(CREATE_TABLE_GEOCODE_REVERSE);
 
         // Create indexes for better performance
         createIndexes(db);
+        createSpatialIndex(db);
+        createAddressSearchIndex(db);
 
         // Insert sample data for testing
         insertSampleData(db);
@@ -185,9 +380,16 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     private void recreateTables(SQLiteDatabase db) {
         // Drop older tables if existed (in reverse order due to foreign keys)
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_GEOCODE_REVERSE);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_GEOCODE_FORWARD);
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHAT_MESSAGES);
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_RIDE_REQUESTS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_RIDES_RTREE);
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_RIDES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_PLACES_FTS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_PLACES);
+        db.execSQL("DROP TABLE IF EXISTS addresses_fts"); // Version 7 address index, replaced by places
+        db.execSQL("DROP TABLE IF EXISTS addresses");
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
 
         // Create tables again
@@ -201,6 +403,38 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.setForeignKeyConstraintsEnabled(true);
     }
 
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        configureWriteAheadLog(db);
+    }
+
+    // Checkpoint policy for the primary (writer) connection
+    private void configureWriteAheadLog(SQLiteDatabase db) {
+        try {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) {
+                // Set through OpenParams on newer releases
+                db.execSQL("PRAGMA synchronous = " + WAL_SYNCHRONOUS_MODE);
+            }
+
+            // The framework default checkpoints every 100 pages, which stalls write bursts
+            // (bulk imports, seat updates) on frequent checkpoints; let the WAL grow a little further
+            runPragma(db, "PRAGMA wal_autocheckpoint = " + WAL_AUTOCHECKPOINT_PAGES);
+
+            // Truncate the WAL file back down after a checkpoint instead of leaving it at its peak size
+            runPragma(db, "PRAGMA journal_size_limit = " + WAL_SIZE_LIMIT_BYTES);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // PRAGMAs that report their new value have to be run as queries
+    private void runPragma(SQLiteDatabase db, String pragma) {
+        android.database.Cursor cursor = db.rawQuery(pragma, null);
+        cursor.moveToFirst();
+        cursor.close();
+    }
+
     private void createIndexes(SQLiteDatabase db) {
         try {
             // Index for location-based searches on rides (composite index for better performance)
@@ -210,6 +444,13 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             db.execSQL("CREATE INDEX IF NOT EXISTS idx_rides_to_location ON " + TABLE_RIDES +
                     "(" + KEY_TO_LATITUDE + ", " + KEY_TO_LONGITUDE + ")");
 
+            // Grid cell indexes used by proximity searches (one range scan per grid row)
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_rides_from_cell ON " + TABLE_RIDES +
+                    "(" + KEY_FROM_CELL + ")");
+
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_rides_to_cell ON " + TABLE_RIDES +
+                    "(" + KEY_TO_CELL + ")");
+
             // Index for departure time searches
             db.execSQL("CREATE INDEX IF NOT EXISTS idx_rides_departure_time ON " + TABLE_RIDES +
                     "(" + KEY_DEPARTURE_TIME + ")");
@@ -218,9 +459,34 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             db.execSQL("CREATE INDEX IF NOT EXISTS idx_rides_status_seats ON " + TABLE_RIDES +
                     "(" + KEY_RIDE_STATUS + ", " + KEY_AVAILABLE_SEATS + ")");
 
-            // Index for driver searches
-            db.execSQL("CREATE INDEX IF NOT EXISTS idx_rides_driver_id ON " + TABLE_RIDES +
-                    "(" + KEY_DRIVER_ID + ")");
+            // Keyset pagination on (departure_time, id); id is the rowid, so it is implied in both indexes
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_rides_status_departure ON " + TABLE_RIDES +
+                    "(" + KEY_RIDE_STATUS + ", " + KEY_DEPARTURE_TIME + ")");
+
+            // Index for driver searches, ordered for the paged driver list
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_rides_driver_departure ON " + TABLE_RIDES +
+                    "(" + KEY_DRIVER_ID + ", " + KEY_DEPARTURE_TIME + ")");
+
+            // Rides by pickup or drop place (also keeps the places foreign key checks cheap)
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_rides_from_place ON " + TABLE_RIDES +
+                    "(" + KEY_FROM_PLACE_ID + ")");
+
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_rides_to_place ON " + TABLE_RIDES +
+                    "(" + KEY_TO_PLACE_ID + ")");
+
+            // Popular pickup points, overall and per grid cell range
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_places_pickup_count ON " + TABLE_PLACES +
+                    "(" + KEY_PICKUP_COUNT + ")");
+
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_places_cell ON " + TABLE_PLACES +
+                    "(" + KEY_CELL_ID + ")");
+
+            // Least recently used geocode cache entries, for trimming (rank 0 carries the query's use time)
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_geocode_forward_used ON " + TABLE_GEOCODE_FORWARD +
+                    "(" + KEY_RESULT_RANK + ", " + KEY_LAST_USED_AT + ")");
+
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_geocode_reverse_used ON " + TABLE_GEOCODE_REVERSE +
+                    "(" + KEY_LAST_USED_AT + ")");
 
             // Index for user email (login purposes)
             db.execSQL("CREATE INDEX IF NOT EXISTS idx_users_email ON " + TABLE_USERS +
@@ -257,6 +523,51 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
     }
 
+    private void createSpatialIndex(SQLiteDatabase db) {
+        // The R*Tree module is optional in SQLite builds; without it searches use the grid cell indexes
+        try {
+            db.execSQL(CREATE_TABLE_RIDES_RTREE);
+            db.execSQL(CREATE_TRIGGER_RTREE_INSERT);
+            db.execSQL(CREATE_TRIGGER_RTREE_UPDATE);
+            db.execSQL(CREATE_TRIGGER_RTREE_DELETE);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        spatialIndexAvailable = null;
+    }
+
+    // Whether the R*Tree spatial index exists in this database
+    public boolean hasSpatialIndex() {
+        Boolean available = spatialIndexAvailable;
+        if (available == null) {
+            available = isTableExists(TABLE_RIDES_RTREE);
+            spatialIndexAvailable = available;
+        }
+        return available;
+    }
+
+    private void createAddressSearchIndex(SQLiteDatabase db) {
+        // FTS4 may be missing from the SQLite build; address searches then use prefix ranges on the places table
+        try {
+            db.execSQL(CREATE_TABLE_PLACES_FTS);
+            db.execSQL(CREATE_TRIGGER_PLACES_FTS_INSERT);
+            db.execSQL(CREATE_TRIGGER_PLACES_FTS_DELETE);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        addressSearchIndexAvailable = null;
+    }
+
+    // Whether the FTS address index exists in this database
+    public boolean hasAddressSearchIndex() {
+        Boolean available = addressSearchIndexAvailable;
+        if (available == null) {
+            available = isTableExists(TABLE_PLACES_FTS);
+            addressSearchIndexAvailable = available;
+        }
+        return available;
+    }
+
     private void insertSampleData(SQLiteDatabase db) {
         try {
             // Insert sample users
@@ -282,6 +593,28 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
     }
 
+    /**
+     * Make sure a users row exists for the given ID, adding a placeholder if needed.
+     * Rows that reference a user (ride requests, chat messages) fail the foreign key check
+     * for IDs derived from the signed-in account until the user has a local row.
+     * Call it before taking another cached statement's lock or beginning a transaction: it locks
+     * its own statement and waits for the primary connection, so calling it from inside a
+     * transaction can deadlock with a thread that holds this lock and is waiting for that connection.
+     */
+    public void ensureUserExists(long userId) {
+        SQLiteStatement statement = getCachedStatement(INSERT_PLACEHOLDER_USER_SQL);
+        synchronized (statement) {
+            long now = getCurrentTimestamp();
+            statement.bindLong(1, userId);
+            statement.bindString(2, "user_" + userId);
+            statement.bindString(3, "user_" + userId + "@shareride.local");
+            statement.bindLong(4, now);
+            statement.bindLong(5, now);
+            statement.executeInsert();
+            statement.clearBindings();
+        }
+    }
+
     // Helper methods for getting current timestamp
     public static long getCurrentTimestamp() {
         return System.currentTimeMillis();
@@ -350,13 +683,20 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
     }
 
+    /**
+     * Precompiled statement for the writable database, compiled on first use.
+     * Synchronize on the returned statement while binding and executing it, and fetch it before
+     * beginning a transaction: a first-use compile waits for the primary connection.
+     */
+    public SQLiteStatement getCachedStatement(String sql) {
+        return statementCache.get(getWritableDatabase(), sql);
+    }
+
     // Method to close database properly
     public synchronized void closeDB() {
-        if (instance != null) {
-            SQLiteDatabase db = instance.getReadableDatabase();
-            if (db != null && db.isOpen()) {
-                db.close();
-            }
+        statementCache.clear();
+        close();
+        if (instance == this) {
             instance = null;
         }
     }
@@ -367,12 +707,18 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         try {
             db.execSQL("DELETE FROM " + TABLE_CHAT_MESSAGES);
             db.execSQL("DELETE FROM " + TABLE_RIDE_REQUESTS);
-            db.execSQL("DELETE FROM " + TABLE_RIDES);
+            db.execSQL("DELETE FROM " + TABLE_RIDES); // Triggers clear the R*Tree rows
+            db.execSQL("DELETE FROM " + TABLE_PLACES); // Triggers clear the FTS rows
             db.execSQL("DELETE FROM " + TABLE_USERS);
+            db.execSQL("DELETE FROM " + TABLE_GEOCODE_FORWARD);
+            db.execSQL("DELETE FROM " + TABLE_GEOCODE_REVERSE);
 
             // Reset auto-increment counters
-            db.execSQL("DELETE FROM sqlite_sequence WHERE name IN (?, ?, ?, ?)",
-                    new String[]{TABLE_USERS, TABLE_RIDES, TABLE_RIDE_REQUESTS, TABLE_CHAT_MESSAGES});
+            db.execSQL("DELETE FROM sqlite_sequence WHERE name IN (?, ?, ?, ?, ?)",
+                    new String[]{TABLE_USERS, TABLE_RIDES, TABLE_RIDE_REQUESTS, TABLE_CHAT_MESSAGES, TABLE_PLACES});
+
+            // Drop the in-memory copy of the rides as well
+            RideSpatialIndex.getInstance().clear();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -0,0 +1,410 @@
+package com.companyname.shareride.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.location.Address;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Geocoder results persisted in the database, so lookups made in earlier runs of the app
+ * are answered without calling the platform Geocoder again.
+ * Forward lookups are keyed by the normalized query text, reverse lookups by coordinates
+ * snapped to the reverse geocoding grid (see quantize). Entries older than MAX_AGE_MS are
+ * ignored, and the least recently used entries are trimmed once a table holds more than its limit.
+ * Last use is recorded to within TOUCH_INTERVAL_MS, so most hits are read-only.
+ */
+public class GeocodeCacheDAO {
+
+    // Lookup counters since the process started, plus the number of cached entries
+    public static class Stats {
+        public final long forwardHits;
+        public final long forwardMisses;
+        public final long reverseHits;
+        public final long reverseMisses;
+        public final int forwardQueries;
+        public final int reverseEntries;
+
+        public Stats(long forwardHits, long forwardMisses, long reverseHits, long reverseMisses,
+                     int forwardQueries, int reverseEntries) {
+            this.forwardHits = forwardHits;
+            this.forwardMisses = forwardMisses;
+            this.reverseHits = reverseHits;
+            this.reverseMisses = reverseMisses;
+            this.forwardQueries = forwardQueries;
+            this.reverseEntries = reverseEntries;
+        }
+
+        public double getHitRate() {
+            long lookups = forwardHits + forwardMisses + reverseHits + reverseMisses;
+            return lookups > 0 ? (double) (forwardHits + reverseHits) / lookups : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return "GeocodeCache{forward=" + forwardHits + "/" + (forwardHits + forwardMisses) +
+                    " hits, reverse=" + reverseHits + "/" + (reverseHits + reverseMisses) +
+                    " hits, " + forwardQueries + " queries, " + reverseEntries + " locations}";
+        }
+    }
+
+    // Reverse lookups in the same grid cell share an entry, so GPS jitter does not cause new lookups
+    public static final double DEFAULT_REVERSE_CELL_METERS = 50;
+    private static final double METERS_PER_DEGREE = 111320; // Along a meridian
+    private static final double KEY_PRECISION = 1000000; // Keys hold micro-degrees
+
+    private static volatile double reverseCellDegrees = DEFAULT_REVERSE_CELL_METERS / METERS_PER_DEGREE;
+
+    private static final int MAX_FORWARD_QUERIES = 500;
+    private static final int MAX_REVERSE_ENTRIES = 500;
+    private static final long MAX_AGE_MS = 30L * 24 * 60 * 60 * 1000;
+    // A hit only rewrites last_used_at once it is this old; the trim needs no finer order
+    private static final long TOUCH_INTERVAL_MS = 60L * 60 * 1000;
+
+    private static final String ADDRESS_COLUMNS = DatabaseHelper.KEY_FEATURE_NAME + ", " +
+            DatabaseHelper.KEY_SUB_THOROUGHFARE + ", " + DatabaseHelper.KEY_THOROUGHFARE + ", " +
+            DatabaseHelper.KEY_SUB_LOCALITY + ", " + DatabaseHelper.KEY_LOCALITY + ", " +
+            DatabaseHelper.KEY_ADMIN_AREA + ", " + DatabaseHelper.KEY_POSTAL_CODE + ", " +
+            DatabaseHelper.KEY_ADDRESS_LINE + ", " + DatabaseHelper.KEY_LATITUDE + ", " +
+            DatabaseHelper.KEY_LONGITUDE;
+
+    private static final int ADDRESS_COLUMN_COUNT = 10;
+
+    private static final String SELECT_FORWARD_SQL = "SELECT " + ADDRESS_COLUMNS + ", " +
+            DatabaseHelper.KEY_MAX_RESULTS + ", " + DatabaseHelper.KEY_CACHED_AT + ", " + DatabaseHelper.KEY_LAST_USED_AT +
+            " FROM " + DatabaseHelper.TABLE_GEOCODE_FORWARD +
+            " WHERE " + DatabaseHelper.KEY_QUERY + " = ?" +
+            " ORDER BY " + DatabaseHelper.KEY_RESULT_RANK;
+
+    private static final String SELECT_REVERSE_SQL = "SELECT " + ADDRESS_COLUMNS + ", " + DatabaseHelper.KEY_CACHED_AT +
+            ", " + DatabaseHelper.KEY_LAST_USED_AT + " FROM " + DatabaseHelper.TABLE_GEOCODE_REVERSE +
+            " WHERE " + DatabaseHelper.KEY_LATITUDE_KEY + " = ? AND " + DatabaseHelper.KEY_LONGITUDE_KEY + " = ?";
+
+    private static final String TOUCH_FORWARD_SQL = "UPDATE " + DatabaseHelper.TABLE_GEOCODE_FORWARD +
+            " SET " + DatabaseHelper.KEY_LAST_USED_AT + " = ? WHERE " + DatabaseHelper.KEY_QUERY + " = ?";
+
+    private static final String TOUCH_REVERSE_SQL = "UPDATE " + DatabaseHelper.TABLE_GEOCODE_REVERSE +
+            " SET " + DatabaseHelper.KEY_LAST_USED_AT + " = ?" +
+            " WHERE " + DatabaseHelper.KEY_LATITUDE_KEY + " = ? AND " + DatabaseHelper.KEY_LONGITUDE_KEY + " = ?";
+
+    // Only run inside putForward's transaction
+    private static final String DELETE_FORWARD_SQL = "DELETE FROM " + DatabaseHelper.TABLE_GEOCODE_FORWARD +
+            " WHERE " + DatabaseHelper.KEY_QUERY + " = ?";
+
+    private static final String INSERT_FORWARD_SQL = "INSERT INTO " + DatabaseHelper.TABLE_GEOCODE_FORWARD + " (" +
+            DatabaseHelper.KEY_QUERY + ", " + DatabaseHelper.KEY_RESULT_RANK + ", " + DatabaseHelper.KEY_MAX_RESULTS + ", " +
+            ADDRESS_COLUMNS + ", " + DatabaseHelper.KEY_CACHED_AT + ", " + DatabaseHelper.KEY_LAST_USED_AT + ")" +
+            " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_REVERSE_SQL = "INSERT OR REPLACE INTO " + DatabaseHelper.TABLE_GEOCODE_REVERSE + " (" +
+            DatabaseHelper.KEY_LATITUDE_KEY + ", " + DatabaseHelper.KEY_LONGITUDE_KEY + ", " +
+            ADDRESS_COLUMNS + ", " + DatabaseHelper.KEY_CACHED_AT + ", " + DatabaseHelper.KEY_LAST_USED_AT + ")" +
+            " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Drops expired entries and everything past the newest `limit` (OFFSET walks the last-used index)
+    private static final String TRIM_FORWARD_SQL = "DELETE FROM " + DatabaseHelper.TABLE_GEOCODE_FORWARD +
+            " WHERE " + DatabaseHelper.KEY_CACHED_AT + " < ? OR " + DatabaseHelper.KEY_QUERY + " IN (" +
+            "SELECT " + DatabaseHelper.KEY_QUERY + " FROM " + DatabaseHelper.TABLE_GEOCODE_FORWARD +
+            " WHERE " + DatabaseHelper.KEY_RESULT_RANK + " = 0" +
+            " ORDER BY " + DatabaseHelper.KEY_LAST_USED_AT + " DESC LIMIT -1 OFFSET ?)";
+
+    private static final String TRIM_REVERSE_SQL = "DELETE FROM " + DatabaseHelper.TABLE_GEOCODE_REVERSE +
+            " WHERE " + DatabaseHelper.KEY_CACHED_AT + " < ? OR rowid IN (" +
+            "SELECT rowid FROM " + DatabaseHelper.TABLE_GEOCODE_REVERSE +
+            " ORDER BY " + DatabaseHelper.KEY_LAST_USED_AT + " DESC LIMIT -1 OFFSET ?)";
+
+    // Shared by every instance, so the stats cover the whole process
+    private static final AtomicLong forwardHits = new AtomicLong();
+    private static final AtomicLong forwardMisses = new AtomicLong();
+    private static final AtomicLong reverseHits = new AtomicLong();
+    private static final AtomicLong reverseMisses = new AtomicLong();
+
+    private DatabaseHelper dbHelper;
+
+    public GeocodeCacheDAO(Context context) {
+        dbHelper = DatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * Cached results of Geocoder.getFromLocationName(query, maxResults), or null on a miss.
+     * Results cached with a smaller limit than maxResults count as a miss.
+     */
+    public List<Address> getForward(String query, int maxResults) {
+        String key = normalizeQuery(query);
+        if (key.isEmpty()) {
+            return null;
+        }
+
+        List<Address> addresses = null;
+        long lastUsedAt = 0;
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SELECT_FORWARD_SQL, new String[]{key});
+        try {
+            if (cursor.moveToFirst()
+                    && cursor.getInt(ADDRESS_COLUMN_COUNT) >= maxResults
+                    && !isExpired(cursor.getLong(ADDRESS_COLUMN_COUNT + 1))) {
+                lastUsedAt = cursor.getLong(ADDRESS_COLUMN_COUNT + 2);
+                addresses = new ArrayList<>();
+                do {
+                    addresses.add(readAddress(cursor));
+                } while (addresses.size() < maxResults && cursor.moveToNext());
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (addresses == null) {
+            forwardMisses.incrementAndGet();
+            return null;
+        }
+
+        forwardHits.incrementAndGet();
+        long now = DatabaseHelper.getCurrentTimestamp();
+        if (now - lastUsedAt >= TOUCH_INTERVAL_MS) {
+            try {
+                SQLiteStatement touch = dbHelper.getCachedStatement(TOUCH_FORWARD_SQL);
+                synchronized (touch) {
+                    try {
+                        touch.bindLong(1, now);
+                        touch.bindString(2, key);
+                        touch.executeUpdateDelete();
+                    } finally {
+                        touch.clearBindings();
+                    }
+                }
+            } catch (Exception e) {
+                // The hit still counts; the entry just looks older to the trim
+                e.printStackTrace();
+            }
+        }
+        return addresses;
+    }
+
+    // Store the results of Geocoder.getFromLocationName(query, maxResults), replacing older ones
+    public void putForward(String query, int maxResults, List<Address> addresses) {
+        String key = normalizeQuery(query);
+        if (key.isEmpty() || addresses == null || addresses.isEmpty()) {
+            return;
+        }
+
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement delete = dbHelper.getCachedStatement(DELETE_FORWARD_SQL);
+        SQLiteStatement insert = dbHelper.getCachedStatement(INSERT_FORWARD_SQL);
+        db.beginTransaction();
+        try {
+            long now = DatabaseHelper.getCurrentTimestamp();
+
+            synchronized (delete) {
+                delete.bindString(1, key);
+                delete.executeUpdateDelete();
+                delete.clearBindings();
+            }
+
+            synchronized (insert) {
+                for (int rank = 0; rank < addresses.size(); rank++) {
+                    insert.bindString(1, key);
+                    insert.bindLong(2, rank);
+                    insert.bindLong(3, maxResults);
+                    int index = bindAddress(insert, 4, addresses.get(rank));
+                    insert.bindLong(index++, now);
+                    insert.bindLong(index, now);
+                    insert.executeInsert();
+                }
+                insert.clearBindings();
+            }
+
+            db.execSQL(TRIM_FORWARD_SQL, new Object[]{now - MAX_AGE_MS, MAX_FORWARD_QUERIES});
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Cached result of Geocoder.getFromLocation(latitude, longitude, 1), or null on a miss
+    public Address getReverse(double latitude, double longitude) {
+        long latitudeKey = quantize(latitude);
+        long longitudeKey = quantize(longitude);
+
+        Address address = null;
+        long lastUsedAt = 0;
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SELECT_REVERSE_SQL,
+                new String[]{String.valueOf(latitudeKey), String.valueOf(longitudeKey)});
+        try {
+            if (cursor.moveToFirst() && !isExpired(cursor.getLong(ADDRESS_COLUMN_COUNT))) {
+                address = readAddress(cursor);
+                lastUsedAt = cursor.getLong(ADDRESS_COLUMN_COUNT + 1);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (address == null) {
+            reverseMisses.incrementAndGet();
+            return null;
+        }
+
+        reverseHits.incrementAndGet();
+        long now = DatabaseHelper.getCurrentTimestamp();
+        if (now - lastUsedAt >= TOUCH_INTERVAL_MS) {
+            try {
+                SQLiteStatement touch = dbHelper.getCachedStatement(TOUCH_REVERSE_SQL);
+                synchronized (touch) {
+                    try {
+                        touch.bindLong(1, now);
+                        touch.bindLong(2, latitudeKey);
+                        touch.bindLong(3, longitudeKey);
+                        touch.executeUpdateDelete();
+                    } finally {
+                        touch.clearBindings();
+                    }
+                }
+            } catch (Exception e) {
+                // The hit still counts; the entry just looks older to the trim
+                e.printStackTrace();
+            }
+        }
+        return address;
+    }
+
+    public void putReverse(double latitude, double longitude, Address address) {
+        if (address == null) {
+            return;
+        }
+
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement insert = dbHelper.getCachedStatement(INSERT_REVERSE_SQL);
+        db.beginTransaction();
+        try {
+            long now = DatabaseHelper.getCurrentTimestamp();
+
+            synchronized (insert) {
+                insert.bindLong(1, quantize(latitude));
+                insert.bindLong(2, quantize(longitude));
+                int index = bindAddress(insert, 3, address);
+                insert.bindLong(index++, now);
+                insert.bindLong(index, now);
+                insert.executeInsert();
+                insert.clearBindings();
+            }
+
+            db.execSQL(TRIM_REVERSE_SQL, new Object[]{now - MAX_AGE_MS, MAX_REVERSE_ENTRIES});
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public Stats getStats() {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        int forwardQueries = countRows(db, "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_GEOCODE_FORWARD +
+                " WHERE " + DatabaseHelper.KEY_RESULT_RANK + " = 0");
+        int reverseEntries = countRows(db, "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_GEOCODE_REVERSE);
+
+        return new Stats(forwardHits.get(), forwardMisses.get(), reverseHits.get(), reverseMisses.get(),
+                forwardQueries, reverseEntries);
+    }
+
+    public void clear() {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_GEOCODE_FORWARD);
+        db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_GEOCODE_REVERSE);
+    }
+
+    /**
+     * Size of the reverse geocoding grid cells. Keys are the snapped cell corner in micro-degrees,
+     * so entries stored under another cell size simply stop matching instead of being misread.
+     */
+    public static void setReverseCellSizeMeters(double meters) {
+        if (meters > 0) {
+            reverseCellDegrees = meters / METERS_PER_DEGREE;
+        }
+    }
+
+    public static double getReverseCellSizeMeters() {
+        return reverseCellDegrees * METERS_PER_DEGREE;
+    }
+
+    // Snaps a latitude or longitude to the reverse geocoding grid
+    public static long quantize(double coordinate) {
+        double cellDegrees = reverseCellDegrees;
+        return Math.round(Math.floor(coordinate / cellDegrees) * cellDegrees * KEY_PRECISION);
+    }
+
+    private static String normalizeQuery(String query) {
+        return query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isExpired(long cachedAt) {
+        return cachedAt < DatabaseHelper.getCurrentTimestamp() - MAX_AGE_MS;
+    }
+
+    private static int countRows(SQLiteDatabase db, String sql) {
+        Cursor cursor = db.rawQuery(sql, null);
+        int count = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        cursor.close();
+        return count;
+    }
+
+    // Binds the ADDRESS_COLUMNS values starting at the given index; returns the next free index
+    private static int bindAddress(SQLiteStatement statement, int index, Address address) {
+        bindStringOrNull(statement, index++, address.getFeatureName());
+        bindStringOrNull(statement, index++, address.getSubThoroughfare());
+        bindStringOrNull(statement, index++, address.getThoroughfare());
+        bindStringOrNull(statement, index++, address.getSubLocality());
+        bindStringOrNull(statement, index++, address.getLocality());
+        bindStringOrNull(statement, index++, address.getAdminArea());
+        bindStringOrNull(statement, index++, address.getPostalCode());
+        bindStringOrNull(statement, index++, joinAddressLines(address));
+        statement.bindDouble(index++, address.getLatitude());
+        statement.bindDouble(index++, address.getLongitude());
+        return index;
+    }
+
+    // Reads the ADDRESS_COLUMNS at the start of the current row; all address lines come back as line 0
+    private static Address readAddress(Cursor cursor) {
+        Address address = new Address(Locale.getDefault());
+        address.setFeatureName(cursor.getString(0));
+        address.setSubThoroughfare(cursor.getString(1));
+        address.setThoroughfare(cursor.getString(2));
+        address.setSubLocality(cursor.getString(3));
+        address.setLocality(cursor.getString(4));
+        address.setAdminArea(cursor.getString(5));
+        address.setPostalCode(cursor.getString(6));
+        if (!cursor.isNull(7)) {
+            address.setAddressLine(0, cursor.getString(7));
+        }
+        address.setLatitude(cursor.getDouble(8));
+        address.setLongitude(cursor.getDouble(9));
+        return address;
+    }
+
+    private static String joinAddressLines(Address address) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i <= address.getMaxAddressLineIndex(); i++) {
+            String line = address.getAddressLine(i);
+            if (line == null) continue;
+            if (lines.length() > 0) {
+                lines.append(", ");
+            }
+            lines.append(line);
+        }
+        return lines.length() > 0 ? lines.toString() : null;
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+}
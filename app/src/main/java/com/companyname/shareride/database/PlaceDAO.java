@@ -0,0 +1,274 @@
+package com.companyname.shareride.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.companyname.shareride.utils.LocationUtils;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The places dictionary: one row per distinct pickup or drop address, with its coordinates,
+ * grid cell and how often rides use it. RideDAO resolves every ride's addresses to places
+ * as it writes the ride (see resolvePlaceId), so autocomplete and popularity queries
+ * work on the deduplicated set instead of scanning rides.
+ */
+public class PlaceDAO {
+
+    public static class Place {
+        public final long id;
+        public final String address;
+        public final double latitude;
+        public final double longitude;
+        public final int useCount;
+        public final int pickupCount;
+
+        public Place(long id, String address, double latitude, double longitude, int useCount, int pickupCount) {
+            this.id = id;
+            this.address = address;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.useCount = useCount;
+            this.pickupCount = pickupCount;
+        }
+    }
+
+    private static final String PLACE_COLUMNS = "p." + DatabaseHelper.KEY_ID + ", p." + DatabaseHelper.KEY_ADDRESS +
+            ", p." + DatabaseHelper.KEY_LATITUDE + ", p." + DatabaseHelper.KEY_LONGITUDE +
+            ", p." + DatabaseHelper.KEY_USE_COUNT + ", p." + DatabaseHelper.KEY_PICKUP_COUNT;
+
+    private static final String MATCH_ORDER = " ORDER BY p." + DatabaseHelper.KEY_USE_COUNT + " DESC, p." +
+            DatabaseHelper.KEY_LAST_USED_AT + " DESC LIMIT ?";
+
+    private static final String PICKUP_ORDER = " ORDER BY p." + DatabaseHelper.KEY_PICKUP_COUNT + " DESC LIMIT ?";
+
+    // Any word of the address starting with each word of the query
+    private static final String SEARCH_FTS_SQL = "SELECT " + PLACE_COLUMNS +
+            " FROM " + DatabaseHelper.TABLE_PLACES_FTS + " f" +
+            " JOIN " + DatabaseHelper.TABLE_PLACES + " p ON p." + DatabaseHelper.KEY_ID + " = f.docid" +
+            " WHERE " + DatabaseHelper.TABLE_PLACES_FTS + " MATCH ?" + MATCH_ORDER;
+
+    // Whole address starting with the query; a range on the NOCASE unique index
+    private static final String SEARCH_PREFIX_SQL = "SELECT " + PLACE_COLUMNS +
+            " FROM " + DatabaseHelper.TABLE_PLACES + " p" +
+            " WHERE p." + DatabaseHelper.KEY_ADDRESS + " >= ? AND p." + DatabaseHelper.KEY_ADDRESS + " < ?" + MATCH_ORDER;
+
+    private static final String MOST_USED_SQL = "SELECT " + PLACE_COLUMNS +
+            " FROM " + DatabaseHelper.TABLE_PLACES + " p" + MATCH_ORDER;
+
+    // Walks idx_places_pickup_count from the top, so only `limit` rows are read
+    private static final String POPULAR_PICKUPS_SQL = "SELECT " + PLACE_COLUMNS +
+            " FROM " + DatabaseHelper.TABLE_PLACES + " p" +
+            " WHERE p." + DatabaseHelper.KEY_PICKUP_COUNT + " > 0" + PICKUP_ORDER;
+
+    // Write statements, only run inside RideDAO's write transactions
+    private static final String INSERT_PLACE_SQL = "INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_PLACES + " (" +
+            DatabaseHelper.KEY_ADDRESS + ", " + DatabaseHelper.KEY_LATITUDE + ", " + DatabaseHelper.KEY_LONGITUDE + ", " +
+            DatabaseHelper.KEY_CELL_ID + ", " + DatabaseHelper.KEY_USE_COUNT + ", " + DatabaseHelper.KEY_PICKUP_COUNT + ", " +
+            DatabaseHelper.KEY_LAST_USED_AT + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_PLACE_ID_SQL = "SELECT " + DatabaseHelper.KEY_ID +
+            " FROM " + DatabaseHelper.TABLE_PLACES + " WHERE " + DatabaseHelper.KEY_ADDRESS + " = ?";
+
+    // The latest coordinates win, so a place follows corrections to its geocoding
+    private static final String COUNT_PLACE_USE_SQL = "UPDATE " + DatabaseHelper.TABLE_PLACES + " SET " +
+            DatabaseHelper.KEY_USE_COUNT + " = " + DatabaseHelper.KEY_USE_COUNT + " + 1, " +
+            DatabaseHelper.KEY_PICKUP_COUNT + " = " + DatabaseHelper.KEY_PICKUP_COUNT + " + ?, " +
+            DatabaseHelper.KEY_LATITUDE + " = ?, " + DatabaseHelper.KEY_LONGITUDE + " = ?, " +
+            DatabaseHelper.KEY_CELL_ID + " = ?, " + DatabaseHelper.KEY_LAST_USED_AT + " = ?" +
+            " WHERE " + DatabaseHelper.KEY_ID + " = ?";
+
+    private DatabaseHelper dbHelper;
+
+    public PlaceDAO(Context context) {
+        this(DatabaseHelper.getInstance(context));
+    }
+
+    PlaceDAO(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    /**
+     * Places matching what the user has typed so far, most used first.
+     * Uses the FTS index when available, otherwise a prefix range over the whole address.
+     */
+    public List<Place> searchPlaces(String query, int limit) {
+        if (query == null || query.trim().isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        String sql;
+        String[] args;
+        if (dbHelper.hasAddressSearchIndex()) {
+            String matchExpression = buildMatchExpression(query);
+            if (matchExpression.isEmpty()) {
+                return new ArrayList<>();
+            }
+            sql = SEARCH_FTS_SQL;
+            args = new String[]{matchExpression, String.valueOf(limit)};
+        } else {
+            String prefix = query.trim();
+            sql = SEARCH_PREFIX_SQL;
+            args = new String[]{prefix, prefix + '\uffff', String.valueOf(limit)};
+        }
+
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        return readPlaces(db.rawQuery(sql, args));
+    }
+
+    // Most used places at either end of a ride, e.g. to preload autocomplete
+    public List<Place> getMostUsedPlaces(int limit) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        return readPlaces(db.rawQuery(MOST_USED_SQL, new String[]{String.valueOf(limit)}));
+    }
+
+    // Most frequent pickup points across all rides
+    public List<Place> getPopularPickupPlaces(int limit) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        return readPlaces(db.rawQuery(POPULAR_PICKUPS_SQL, new String[]{String.valueOf(limit)}));
+    }
+
+    /**
+     * Most frequent pickup points within radiusKm of a location.
+     * Candidates come from grid cell ranges on idx_places_cell, then the exact distance is checked.
+     */
+    public List<Place> getPopularPickupPlacesNear(double latitude, double longitude, double radiusKm, int limit) {
+        List<String> args = new ArrayList<>();
+        StringBuilder cellClause = new StringBuilder();
+        for (long[] range : LocationUtils.getGridCellRanges(LocationUtils.getLocationBounds(latitude, longitude, radiusKm))) {
+            if (cellClause.length() > 0) {
+                cellClause.append(" OR ");
+            }
+            cellClause.append("p.").append(DatabaseHelper.KEY_CELL_ID).append(" BETWEEN ? AND ?");
+            args.add(String.valueOf(range[0]));
+            args.add(String.valueOf(range[1]));
+        }
+
+        String selectQuery = "SELECT " + PLACE_COLUMNS +
+                " FROM " + DatabaseHelper.TABLE_PLACES + " p" +
+                " WHERE p." + DatabaseHelper.KEY_PICKUP_COUNT + " > 0 AND (" + cellClause + ")" +
+                " ORDER BY p." + DatabaseHelper.KEY_PICKUP_COUNT + " DESC";
+
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        List<Place> places = new ArrayList<>();
+        for (Place place : readPlaces(db.rawQuery(selectQuery, args.toArray(new String[0])))) {
+            if (LocationUtils.isWithinRadius(latitude, longitude, place.latitude, place.longitude, radiusKm)) {
+                places.add(place);
+                if (places.size() >= limit) break;
+            }
+        }
+        return places;
+    }
+
+    // The cached statements resolvePlaceId runs; fetched before the caller's transaction begins
+    static final class Statements {
+        final SQLiteStatement insert;
+        final SQLiteStatement select;
+        final SQLiteStatement countUse;
+
+        private Statements(SQLiteStatement insert, SQLiteStatement select, SQLiteStatement countUse) {
+            this.insert = insert;
+            this.select = select;
+            this.countUse = countUse;
+        }
+    }
+
+    Statements getStatements() {
+        return new Statements(dbHelper.getCachedStatement(INSERT_PLACE_SQL),
+                dbHelper.getCachedStatement(SELECT_PLACE_ID_SQL),
+                dbHelper.getCachedStatement(COUNT_PLACE_USE_SQL));
+    }
+
+    /**
+     * ID of the place for an address, adding the place if it is new.
+     * Must run inside the caller's write transaction, so a rolled back ride leaves no place
+     * or count behind. Addresses are trimmed and matched case-insensitively.
+     * @param statements From getStatements, fetched before the transaction began
+     * @param pickup Whether the ride starts at this address (counts towards pickupCount)
+     * @param countUse Whether to count this as a new use of the place
+     * @return The place ID, or 0 when the address is blank or has no usable coordinates
+     */
+    long resolvePlaceId(Statements statements, String address, double latitude, double longitude,
+                        boolean pickup, boolean countUse, long now) {
+        if (address == null || address.trim().isEmpty() ||
+                !LocationUtils.isValidCoordinate(latitude, longitude) || (latitude == 0 && longitude == 0)) {
+            return 0;
+        }
+
+        String canonicalAddress = address.trim();
+        long cellId = LocationUtils.getGridCellId(latitude, longitude);
+        int uses = countUse ? 1 : 0;
+        int pickups = countUse && pickup ? 1 : 0;
+
+        SQLiteStatement insert = statements.insert;
+        long placeId;
+        synchronized (insert) {
+            insert.bindString(1, canonicalAddress);
+            insert.bindDouble(2, latitude);
+            insert.bindDouble(3, longitude);
+            insert.bindLong(4, cellId);
+            insert.bindLong(5, uses);
+            insert.bindLong(6, pickups);
+            insert.bindLong(7, now);
+            placeId = insert.executeInsert(); // -1 when the place already exists
+            insert.clearBindings();
+        }
+        if (placeId > 0) {
+            return placeId;
+        }
+
+        SQLiteStatement select = statements.select;
+        synchronized (select) {
+            select.bindString(1, canonicalAddress);
+            placeId = select.simpleQueryForLong();
+            select.clearBindings();
+        }
+
+        if (countUse) {
+            SQLiteStatement update = statements.countUse;
+            synchronized (update) {
+                update.bindLong(1, pickups);
+                update.bindDouble(2, latitude);
+                update.bindDouble(3, longitude);
+                update.bindLong(4, cellId);
+                update.bindLong(5, now);
+                update.bindLong(6, placeId);
+                update.executeUpdateDelete();
+                update.clearBindings();
+            }
+        }
+        return placeId;
+    }
+
+    // Read every row of a PLACE_COLUMNS cursor, then close it
+    private List<Place> readPlaces(Cursor cursor) {
+        List<Place> places = new ArrayList<>(cursor.getCount());
+        if (cursor.moveToFirst()) {
+            do {
+                places.add(new Place(
+                        cursor.getLong(0),
+                        cursor.getString(1),
+                        cursor.getDouble(2),
+                        cursor.getDouble(3),
+                        cursor.getInt(4),
+                        cursor.getInt(5)));
+            } while (cursor.moveToNext());
+        }
+        cursor.close();
+        return places;
+    }
+
+    // "electronic cit" -> "electronic* cit*"; punctuation is dropped so user input cannot form FTS syntax
+    private static String buildMatchExpression(String query) {
+        StringBuilder expression = new StringBuilder();
+        for (String word : query.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            if (expression.length() > 0) {
+                expression.append(' ');
+            }
+            expression.append(word).append('*');
+        }
+        return expression.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.companyname.shareride.database;
+
+import android.database.Cursor;
+import com.companyname.shareride.Ride;
+import com.companyname.shareride.RideSummary;
+
+/**
+ * Maps rows of a rides cursor to Ride or RideSummary objects.
+ * Column indices are resolved once per cursor instead of once per row and field;
+ * columns missing from the query's projection map to default values.
+ */
+public class RideCursorMapper {
+
+    private final int idIndex;
+    private final int driverIdIndex;
+    private final int fromAddressIndex;
+    private final int fromLatitudeIndex;
+    private final int fromLongitudeIndex;
+    private final int toAddressIndex;
+    private final int toLatitudeIndex;
+    private final int toLongitudeIndex;
+    private final int departureTimeIndex;
+    private final int availableSeatsIndex;
+    private final int priceIndex;
+    private final int statusIndex;
+    private final int descriptionIndex;
+    private final int notesIndex;
+    private final int createdAtIndex;
+    private final int updatedAtIndex;
+
+    public RideCursorMapper(Cursor cursor) {
+        idIndex = cursor.getColumnIndex(DatabaseHelper.KEY_ID);
+        driverIdIndex = cursor.getColumnIndex(DatabaseHelper.KEY_DRIVER_ID);
+        fromAddressIndex = cursor.getColumnIndex(DatabaseHelper.KEY_FROM_ADDRESS);
+        fromLatitudeIndex = cursor.getColumnIndex(DatabaseHelper.KEY_FROM_LATITUDE);
+        fromLongitudeIndex = cursor.getColumnIndex(DatabaseHelper.KEY_FROM_LONGITUDE);
+        toAddressIndex = cursor.getColumnIndex(DatabaseHelper.KEY_TO_ADDRESS);
+        toLatitudeIndex = cursor.getColumnIndex(DatabaseHelper.KEY_TO_LATITUDE);
+        toLongitudeIndex = cursor.getColumnIndex(DatabaseHelper.KEY_TO_LONGITUDE);
+        departureTimeIndex = cursor.getColumnIndex(DatabaseHelper.KEY_DEPARTURE_TIME);
+        availableSeatsIndex = cursor.getColumnIndex(DatabaseHelper.KEY_AVAILABLE_SEATS);
+        priceIndex = cursor.getColumnIndex(DatabaseHelper.KEY_PRICE);
+        statusIndex = cursor.getColumnIndex(DatabaseHelper.KEY_RIDE_STATUS);
+        descriptionIndex = cursor.getColumnIndex(DatabaseHelper.KEY_DESCRIPTION);
+        notesIndex = cursor.getColumnIndex(DatabaseHelper.KEY_NOTES);
+        createdAtIndex = cursor.getColumnIndex(DatabaseHelper.KEY_CREATED_AT);
+        updatedAtIndex = cursor.getColumnIndex(DatabaseHelper.KEY_UPDATED_AT);
+    }
+
+    // Map the cursor's current row
+    public Ride map(Cursor cursor) {
+        String status = getString(cursor, statusIndex);
+
+        return new Ride(
+                getLong(cursor, idIndex),
+                getLong(cursor, driverIdIndex),
+                getString(cursor, fromAddressIndex),
+                getDouble(cursor, fromLatitudeIndex),
+                getDouble(cursor, fromLongitudeIndex),
+                getString(cursor, toAddressIndex),
+                getDouble(cursor, toLatitudeIndex),
+                getDouble(cursor, toLongitudeIndex),
+                getLong(cursor, departureTimeIndex),
+                availableSeatsIndex >= 0 ? cursor.getInt(availableSeatsIndex) : 0,
+                getDouble(cursor, priceIndex),
+                status != null ? status : Ride.STATUS_ACTIVE,
+                getString(cursor, descriptionIndex),
+                getString(cursor, notesIndex),
+                getLong(cursor, createdAtIndex),
+                getLong(cursor, updatedAtIndex)
+        );
+    }
+
+    // Map the cursor's current row to a list summary; only the summary columns are read
+    public RideSummary mapSummary(Cursor cursor) {
+        String status = getString(cursor, statusIndex);
+
+        return new RideSummary(
+                getLong(cursor, idIndex),
+                getString(cursor, fromAddressIndex),
+                getDouble(cursor, fromLatitudeIndex),
+                getDouble(cursor, fromLongitudeIndex),
+                getString(cursor, toAddressIndex),
+                getDouble(cursor, toLatitudeIndex),
+                getDouble(cursor, toLongitudeIndex),
+                getLong(cursor, departureTimeIndex),
+                availableSeatsIndex >= 0 ? cursor.getInt(availableSeatsIndex) : 0,
+                getDouble(cursor, priceIndex),
+                status != null ? status : Ride.STATUS_ACTIVE
+        );
+    }
+
+    // Single columns of the current row, for filtering before a row is mapped
+    public long getId(Cursor cursor) {
+        return getLong(cursor, idIndex);
+    }
+
+    public double getFromLatitude(Cursor cursor) {
+        return getDouble(cursor, fromLatitudeIndex);
+    }
+
+    public double getFromLongitude(Cursor cursor) {
+        return getDouble(cursor, fromLongitudeIndex);
+    }
+
+    public double getToLatitude(Cursor cursor) {
+        return getDouble(cursor, toLatitudeIndex);
+    }
+
+    public double getToLongitude(Cursor cursor) {
+        return getDouble(cursor, toLongitudeIndex);
+    }
+
+    public long getDepartureTime(Cursor cursor) {
+        return getLong(cursor, departureTimeIndex);
+    }
+
+    private static long getLong(Cursor cursor, int index) {
+        return index >= 0 ? cursor.getLong(index) : 0;
+    }
+
+    private static double getDouble(Cursor cursor, int index) {
+        return index >= 0 ? cursor.getDouble(index) : 0.0;
+    }
+
+    private static String getString(Cursor cursor, int index) {
+        return index >= 0 ? cursor.getString(index) : null;
+    }
+}
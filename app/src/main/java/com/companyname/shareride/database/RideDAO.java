@@ -1,69 +1,272 @@
 package com.companyname.shareride.database;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
 import com.companyname.shareride.Ride;
+import com.companyname.shareride.RideSummary;
+import com.companyname.shareride.utils.LocationUtils;
+import com.companyname.shareride.utils.RideSpatialIndex;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-
+import java.util.function.BiFunction;
+
+/**
+ * Ride queries and writes.
+ *
+ * Concurrency: the database runs in write-ahead-log mode (see DatabaseHelper), and a RideDAO
+ * may be shared across threads.
+ * <ul>
+ * <li>Each write method is atomic, and createRides commits one chunk at a time.
+ * Writes from different threads are serialized by SQLite.</li>
+ * <li>Reads never wait for a writer. Each query sees the state as of the last commit before it
+ * started, and never sees a partially applied write.</li>
+ * <li>Two separate calls are not isolated from each other: a ride read by one call may have
+ * changed by the next.</li>
+ * <li>The in-memory RideSpatialIndex is refreshed from the database after each write commits.
+ * Refreshes of one ride take turns, so once they are done the index holds the ride's last committed
+ * state; a search between a commit and its refresh still finds the previous state.</li>
+ * </ul>
+ */
 public class RideDAO {
 
+    // How proximity searches prefilter candidates before the exact distance check
+    public enum SearchMode {
+        GRID_CELLS,     // Grid cell ranges on the rides table indexes
+        SPATIAL_INDEX   // Bounding box lookup in the R*Tree (falls back to grid cells if unavailable)
+    }
+
+    // Columns read by the ride lists (see RideSummary); leaves out notes, description and audit columns
+    private static final String[] SUMMARY_COLUMNS = {
+            DatabaseHelper.KEY_ID,
+            DatabaseHelper.KEY_FROM_ADDRESS,
+            DatabaseHelper.KEY_FROM_LATITUDE,
+            DatabaseHelper.KEY_FROM_LONGITUDE,
+            DatabaseHelper.KEY_TO_ADDRESS,
+            DatabaseHelper.KEY_TO_LATITUDE,
+            DatabaseHelper.KEY_TO_LONGITUDE,
+            DatabaseHelper.KEY_DEPARTURE_TIME,
+            DatabaseHelper.KEY_AVAILABLE_SEATS,
+            DatabaseHelper.KEY_PRICE,
+            DatabaseHelper.KEY_RIDE_STATUS
+    };
+
+    // Ride columns written by both createRide and updateRide, in bindRideColumns order
+    private static final String[] RIDE_WRITE_COLUMNS = {
+            DatabaseHelper.KEY_FROM_ADDRESS,
+            DatabaseHelper.KEY_FROM_LATITUDE,
+            DatabaseHelper.KEY_FROM_LONGITUDE,
+            DatabaseHelper.KEY_TO_ADDRESS,
+            DatabaseHelper.KEY_TO_LATITUDE,
+            DatabaseHelper.KEY_TO_LONGITUDE,
+            DatabaseHelper.KEY_DEPARTURE_TIME,
+            DatabaseHelper.KEY_AVAILABLE_SEATS,
+            DatabaseHelper.KEY_PRICE,
+            DatabaseHelper.KEY_RIDE_STATUS,
+            DatabaseHelper.KEY_DESCRIPTION,
+            DatabaseHelper.KEY_NOTES,
+            DatabaseHelper.KEY_FROM_CELL,
+            DatabaseHelper.KEY_TO_CELL,
+            DatabaseHelper.KEY_FROM_PLACE_ID,
+            DatabaseHelper.KEY_TO_PLACE_ID
+    };
+
+    // Statement text is fixed so the compiled statements can be reused (see DatabaseHelper.getCachedStatement)
+    private static final String INSERT_RIDE_SQL = "INSERT INTO " + DatabaseHelper.TABLE_RIDES + " (" +
+            DatabaseHelper.KEY_DRIVER_ID + ", " + selectColumns(RIDE_WRITE_COLUMNS, null) + ", " +
+            DatabaseHelper.KEY_CREATED_AT + ", " + DatabaseHelper.KEY_UPDATED_AT + ")" +
+            " VALUES (" + placeholders(RIDE_WRITE_COLUMNS.length + 3) + ")";
+
+    private static final String UPDATE_RIDE_SQL = "UPDATE " + DatabaseHelper.TABLE_RIDES +
+            " SET " + assignments(RIDE_WRITE_COLUMNS) + ", " + DatabaseHelper.KEY_UPDATED_AT + " = ?" +
+            " WHERE " + DatabaseHelper.KEY_ID + " = ?";
+
+    private static final String UPDATE_RIDE_STATUS_SQL = "UPDATE " + DatabaseHelper.TABLE_RIDES +
+            " SET " + DatabaseHelper.KEY_RIDE_STATUS + " = ?, " + DatabaseHelper.KEY_UPDATED_AT + " = ?" +
+            " WHERE " + DatabaseHelper.KEY_ID + " = ?";
+
+    private static final String UPDATE_AVAILABLE_SEATS_SQL = "UPDATE " + DatabaseHelper.TABLE_RIDES +
+            " SET " + DatabaseHelper.KEY_AVAILABLE_SEATS + " = ?, " + DatabaseHelper.KEY_UPDATED_AT + " = ?" +
+            " WHERE " + DatabaseHelper.KEY_ID + " = ?";
+
+    // Only takes seats that are still free, so accepting requests can never oversell a ride
+    // (RideRequestDAO books seats through it)
+    static final String RESERVE_SEATS_SQL = "UPDATE " + DatabaseHelper.TABLE_RIDES +
+            " SET " + DatabaseHelper.KEY_AVAILABLE_SEATS + " = " + DatabaseHelper.KEY_AVAILABLE_SEATS + " - ?, " +
+            DatabaseHelper.KEY_UPDATED_AT + " = ?" +
+            " WHERE " + DatabaseHelper.KEY_ID + " = ?" +
+            " AND " + DatabaseHelper.KEY_RIDE_STATUS + " = '" + Ride.STATUS_ACTIVE + "'" +
+            " AND " + DatabaseHelper.KEY_AVAILABLE_SEATS + " >= ?";
+
+    // Read by id returns a full row, which a SQLiteStatement cannot; a constant query string
+    // lets the connection's own prepared-statement cache reuse the compiled query instead
+    private static final String SELECT_RIDE_BY_ID_SQL = "SELECT * FROM " + DatabaseHelper.TABLE_RIDES +
+            " WHERE " + DatabaseHelper.KEY_ID + " = ?";
+
+    // Rides inserted per transaction by createRides
+    public static final int IMPORT_CHUNK_SIZE = 500;
+
+    // Progress of a bulk import, reported after each committed chunk on the importing thread
+    public interface OnImportProgressListener {
+        void onProgress(int insertedCount);
+    }
+
+    // Refreshes of one ride take turns on its lock (see refreshSpatialIndex); striped by ride ID
+    // and shared by every RideDAO, since all of them write through to the one index
+    private static final Object[] SPATIAL_INDEX_LOCKS = new Object[16];
+
+    static {
+        for (int i = 0; i < SPATIAL_INDEX_LOCKS.length; i++) {
+            SPATIAL_INDEX_LOCKS[i] = new Object();
+        }
+    }
+
     private DatabaseHelper dbHelper;
+    private PlaceDAO placeDAO;
+    private SearchMode searchMode = SearchMode.SPATIAL_INDEX;
 
     public RideDAO(Context context) {
-        dbHelper = DatabaseHelper.getInstance(context);
+        this(DatabaseHelper.getInstance(context));
+    }
+
+    RideDAO(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+        placeDAO = new PlaceDAO(dbHelper);
     }
 
-    // Create a new ride
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    public void setSearchMode(SearchMode searchMode) {
+        this.searchMode = searchMode;
+    }
+
+    // Create a new ride, adding or counting its places in the same transaction
     public long createRide(Ride ride) {
         SQLiteDatabase db = dbHelper.getWritableDatabase();
-        ContentValues values = new ContentValues();
-
-        values.put(DatabaseHelper.KEY_DRIVER_ID, ride.getDriverId());
-        values.put(DatabaseHelper.KEY_FROM_ADDRESS, ride.getFromAddress());
-        values.put(DatabaseHelper.KEY_FROM_LATITUDE, ride.getFromLatitude());
-        values.put(DatabaseHelper.KEY_FROM_LONGITUDE, ride.getFromLongitude());
-        values.put(DatabaseHelper.KEY_TO_ADDRESS, ride.getToAddress());
-        values.put(DatabaseHelper.KEY_TO_LATITUDE, ride.getToLatitude());
-        values.put(DatabaseHelper.KEY_TO_LONGITUDE, ride.getToLongitude());
-        values.put(DatabaseHelper.KEY_DEPARTURE_TIME, ride.getDepartureTime());
-        values.put(DatabaseHelper.KEY_AVAILABLE_SEATS, ride.getAvailableSeats());
-        values.put(DatabaseHelper.KEY_PRICE, ride.getPrice());
-        values.put(DatabaseHelper.KEY_RIDE_STATUS, ride.getStatus());
-        values.put(DatabaseHelper.KEY_NOTES, ride.getNotes());
-        values.put(DatabaseHelper.KEY_CREATED_AT, DatabaseHelper.getCurrentTimestamp());
-        values.put(DatabaseHelper.KEY_UPDATED_AT, DatabaseHelper.getCurrentTimestamp());
-
-        long rideId = db.insert(DatabaseHelper.TABLE_RIDES, null, values);
+        SQLiteStatement statement = dbHelper.getCachedStatement(INSERT_RIDE_SQL);
+        PlaceDAO.Statements placeStatements = placeDAO.getStatements();
+        long rideId = -1;
+        synchronized (statement) {
+            db.beginTransaction();
+            try {
+                long now = DatabaseHelper.getCurrentTimestamp();
+                statement.bindLong(1, ride.getDriverId());
+                int index = bindRideColumns(statement, 2, ride, placeStatements, true, now);
+                statement.bindLong(index++, now);
+                statement.bindLong(index, now);
+
+                rideId = statement.executeInsert();
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                e.printStackTrace();
+                rideId = -1;
+            } finally {
+                statement.clearBindings();
+                db.endTransaction();
+            }
+        }
+
+        if (rideId > 0) {
+            ride.setId(rideId);
+            refreshSpatialIndex(rideId);
+        }
         return rideId;
     }
 
+    // Bulk insert; see createRides(Iterator, OnImportProgressListener)
+    public int createRides(List<Ride> rides) {
+        return createRides(rides.iterator(), null);
+    }
+
+    /**
+     * Insert rides in chunks of IMPORT_CHUNK_SIZE, one transaction per chunk, reusing the
+     * compiled insert statement. Rides are read from the iterator as they are inserted, so
+     * an import does not need the whole data set in memory.
+     * Places are resolved and counted within the same chunk.
+     * Each committed ride gets its new ID. If an insert fails, its chunk is rolled back and
+     * the import stops there.
+     * @return Number of rides inserted
+     */
+    public int createRides(Iterator<Ride> rides, OnImportProgressListener progressListener) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement statement = dbHelper.getCachedStatement(INSERT_RIDE_SQL);
+        PlaceDAO.Statements placeStatements = placeDAO.getStatements();
+        RideSpatialIndex index = RideSpatialIndex.getInstance();
+
+        int insertedCount = 0;
+        List<Ride> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        long[] chunkIds = new long[IMPORT_CHUNK_SIZE];
+
+        while (rides.hasNext()) {
+            chunk.clear();
+            boolean committed = false;
+
+            synchronized (statement) {
+                db.beginTransaction();
+                try {
+                    long now = DatabaseHelper.getCurrentTimestamp();
+                    while (chunk.size() < IMPORT_CHUNK_SIZE && rides.hasNext()) {
+                        Ride ride = rides.next();
+                        statement.bindLong(1, ride.getDriverId());
+                        int bindIndex = bindRideColumns(statement, 2, ride, placeStatements, true, now);
+                        statement.bindLong(bindIndex++, now);
+                        statement.bindLong(bindIndex, now);
+
+                        chunkIds[chunk.size()] = statement.executeInsert();
+                        chunk.add(ride);
+                    }
+                    db.setTransactionSuccessful();
+                    committed = true;
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    statement.clearBindings();
+                    db.endTransaction();
+                }
+            }
+
+            if (!committed) {
+                break;
+            }
+
+            // IDs are only handed out once the chunk is durable
+            for (int i = 0; i < chunk.size(); i++) {
+                Ride ride = chunk.get(i);
+                ride.setId(chunkIds[i]);
+                if (index.markChanged(ride.getId())) {
+                    index.put(ride);
+                }
+            }
+
+            insertedCount += chunk.size();
+            if (progressListener != null) {
+                progressListener.onProgress(insertedCount);
+            }
+        }
+        return insertedCount;
+    }
+
     // Get ride by ID
     public Ride getRideById(long rideId) {
         SQLiteDatabase db = dbHelper.getReadableDatabase();
-        Cursor cursor = db.query(DatabaseHelper.TABLE_RIDES,
-                null,
-                DatabaseHelper.KEY_ID + "=?",
-                new String[]{String.valueOf(rideId)},
-                null, null, null);
-
-        if (cursor != null && cursor.moveToFirst()) {
-            Ride ride = cursorToRide(cursor);
-            cursor.close();
-            return ride;
-        }
+        Cursor cursor = db.rawQuery(SELECT_RIDE_BY_ID_SQL, new String[]{String.valueOf(rideId)});
 
-        if (cursor != null) {
-            cursor.close();
+        Ride ride = null;
+        if (cursor.moveToFirst()) {
+            ride = new RideCursorMapper(cursor).map(cursor);
         }
-        return null;
+        cursor.close();
+        return ride;
     }
 
     // Get all active rides
     public List<Ride> getAllActiveRides() {
-        List<Ride> rides = new ArrayList<>();
         String selectQuery = "SELECT * FROM " + DatabaseHelper.TABLE_RIDES +
                 " WHERE " + DatabaseHelper.KEY_RIDE_STATUS + " = 'active'" +
                 " ORDER BY " + DatabaseHelper.KEY_DEPARTURE_TIME + " ASC";
@@ -71,20 +274,11 @@ public class RideDAO {
         SQLiteDatabase db = dbHelper.getReadableDatabase();
         Cursor cursor = db.rawQuery(selectQuery, null);
 
-        if (cursor.moveToFirst()) {
-            do {
-                Ride ride = cursorToRide(cursor);
-                rides.add(ride);
-            } while (cursor.moveToNext());
-        }
-
-        cursor.close();
-        return rides;
+        return readRides(cursor);
     }
 
     // Get rides by driver ID
     public List<Ride> getRidesByDriverId(long driverId) {
-        List<Ride> rides = new ArrayList<>();
         String selectQuery = "SELECT * FROM " + DatabaseHelper.TABLE_RIDES +
                 " WHERE " + DatabaseHelper.KEY_DRIVER_ID + " = ?" +
                 " ORDER BY " + DatabaseHelper.KEY_DEPARTURE_TIME + " DESC";
@@ -92,65 +286,91 @@ public class RideDAO {
         SQLiteDatabase db = dbHelper.getReadableDatabase();
         Cursor cursor = db.rawQuery(selectQuery, new String[]{String.valueOf(driverId)});
 
-        if (cursor.moveToFirst()) {
-            do {
-                Ride ride = cursorToRide(cursor);
-                rides.add(ride);
-            } while (cursor.moveToNext());
-        }
+        return readRides(cursor);
+    }
 
-        cursor.close();
-        return rides;
+    // Get all active rides, list columns only
+    public List<RideSummary> getActiveRideSummaries() {
+        String selectQuery = "SELECT " + selectColumns(SUMMARY_COLUMNS, null) +
+                " FROM " + DatabaseHelper.TABLE_RIDES +
+                " WHERE " + DatabaseHelper.KEY_RIDE_STATUS + " = 'active'" +
+                " ORDER BY " + DatabaseHelper.KEY_DEPARTURE_TIME + " ASC";
+
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery(selectQuery, null);
+
+        return readRideSummaries(cursor);
     }
 
-    // Search rides by location proximity - FIXED HAVING ERROR
-    public List<Ride> searchRidesByLocation(double fromLat, double fromLng,
-                                            double toLat, double toLng,
-                                            double radiusKm) {
-        List<Ride> rides = new ArrayList<>();
-
-        // Using Haversine formula for distance calculation - FIXED
-        String selectQuery = "SELECT *, " +
-                "(6371 * acos(cos(radians(?)) * cos(radians(" + DatabaseHelper.KEY_FROM_LATITUDE + ")) * " +
-                "cos(radians(" + DatabaseHelper.KEY_FROM_LONGITUDE + ") - radians(?)) + " +
-                "sin(radians(?)) * sin(radians(" + DatabaseHelper.KEY_FROM_LATITUDE + ")))) AS from_distance, " +
-
-                "(6371 * acos(cos(radians(?)) * cos(radians(" + DatabaseHelper.KEY_TO_LATITUDE + ")) * " +
-                "cos(radians(" + DatabaseHelper.KEY_TO_LONGITUDE + ") - radians(?)) + " +
-                "sin(radians(?)) * sin(radians(" + DatabaseHelper.KEY_TO_LATITUDE + ")))) AS to_distance " +
-
-                "FROM " + DatabaseHelper.TABLE_RIDES + " " +
-                "WHERE " + DatabaseHelper.KEY_RIDE_STATUS + " = 'active' " +
-                "AND (6371 * acos(cos(radians(?)) * cos(radians(" + DatabaseHelper.KEY_FROM_LATITUDE + ")) * " +
-                "cos(radians(" + DatabaseHelper.KEY_FROM_LONGITUDE + ") - radians(?)) + " +
-                "sin(radians(?)) * sin(radians(" + DatabaseHelper.KEY_FROM_LATITUDE + ")))) < ? " +
-                "AND (6371 * acos(cos(radians(?)) * cos(radians(" + DatabaseHelper.KEY_TO_LATITUDE + ")) * " +
-                "cos(radians(" + DatabaseHelper.KEY_TO_LONGITUDE + ") - radians(?)) + " +
-                "sin(radians(?)) * sin(radians(" + DatabaseHelper.KEY_TO_LATITUDE + ")))) < ? " +
-                "ORDER BY from_distance ASC";
+    // Get rides by driver ID, list columns only
+    public List<RideSummary> getRideSummariesByDriverId(long driverId) {
+        String selectQuery = "SELECT " + selectColumns(SUMMARY_COLUMNS, null) +
+                " FROM " + DatabaseHelper.TABLE_RIDES +
+                " WHERE " + DatabaseHelper.KEY_DRIVER_ID + " = ?" +
+                " ORDER BY " + DatabaseHelper.KEY_DEPARTURE_TIME + " DESC";
 
         SQLiteDatabase db = dbHelper.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, new String[]{
-                String.valueOf(fromLat), String.valueOf(fromLng), String.valueOf(fromLat),
-                String.valueOf(toLat), String.valueOf(toLng), String.valueOf(toLat),
-                String.valueOf(fromLat), String.valueOf(fromLng), String.valueOf(fromLat), String.valueOf(radiusKm),
-                String.valueOf(toLat), String.valueOf(toLng), String.valueOf(toLat), String.valueOf(radiusKm)
-        });
+        Cursor cursor = db.rawQuery(selectQuery, new String[]{String.valueOf(driverId)});
 
-        if (cursor.moveToFirst()) {
-            do {
-                Ride ride = cursorToRide(cursor);
-                rides.add(ride);
-            } while (cursor.moveToNext());
-        }
+        return readRideSummaries(cursor);
+    }
 
-        cursor.close();
-        return rides;
+    /**
+     * One page of active rides, soonest departure first.
+     * Seeks past the (departure_time, id) of the last ride already shown instead of using OFFSET,
+     * so every page costs the same however deep the user scrolls.
+     * @param after Last ride of the previous page, or null for the first page
+     * @param signal Aborts the query when cancelled, or null
+     */
+    public List<RideSummary> getActiveRideSummariesPage(RideSummary after, int limit, CancellationSignal signal) {
+        List<String> args = new ArrayList<>();
+        String selectQuery = "SELECT " + selectColumns(SUMMARY_COLUMNS, null) +
+                " FROM " + DatabaseHelper.TABLE_RIDES +
+                " WHERE " + DatabaseHelper.KEY_RIDE_STATUS + " = 'active'" +
+                (after != null ? buildKeysetClause(null, after.getDepartureTime(), after.getId(), true, args) : "") +
+                " ORDER BY " + DatabaseHelper.KEY_DEPARTURE_TIME + " ASC, " + DatabaseHelper.KEY_ID + " ASC" +
+                " LIMIT " + limit;
+
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery(selectQuery, args.toArray(new String[0]), signal);
+
+        return readRideSummaries(cursor);
+    }
+
+    /**
+     * One page of a driver's rides, latest departure first (same order as getRidesByDriverId).
+     * @param after Last ride of the previous page, or null for the first page
+     * @param signal Aborts the query when cancelled, or null
+     */
+    public List<RideSummary> getRideSummariesByDriverIdPage(long driverId, RideSummary after, int limit,
+                                                           CancellationSignal signal) {
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(driverId));
+        String selectQuery = "SELECT " + selectColumns(SUMMARY_COLUMNS, null) +
+                " FROM " + DatabaseHelper.TABLE_RIDES +
+                " WHERE " + DatabaseHelper.KEY_DRIVER_ID + " = ?" +
+                (after != null ? buildKeysetClause(null, after.getDepartureTime(), after.getId(), false, args) : "") +
+                " ORDER BY " + DatabaseHelper.KEY_DEPARTURE_TIME + " DESC, " + DatabaseHelper.KEY_ID + " DESC" +
+                " LIMIT " + limit;
+
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery(selectQuery, args.toArray(new String[0]), signal);
+
+        return readRideSummaries(cursor);
+    }
+
+    // Search rides by location proximity
+    public List<Ride> searchRidesByLocation(double fromLat, double fromLng,
+                                            double toLat, double toLng,
+                                            double radiusKm) {
+        return searchNearby(null, RideCursorMapper::map,
+                fromLat, fromLng, toLat, toLng, radiusKm,
+                DatabaseHelper.KEY_RIDE_STATUS + " = 'active'",
+                new ArrayList<>(), Integer.MAX_VALUE, null);
     }
 
     // Search rides by departure time range
     public List<Ride> searchRidesByTimeRange(long startTime, long endTime) {
-        List<Ride> rides = new ArrayList<>();
         String selectQuery = "SELECT * FROM " + DatabaseHelper.TABLE_RIDES +
                 " WHERE " + DatabaseHelper.KEY_RIDE_STATUS + " = 'active'" +
                 " AND " + DatabaseHelper.KEY_DEPARTURE_TIME + " BETWEEN ? AND ?" +
@@ -161,111 +381,269 @@ public class RideDAO {
                 String.valueOf(startTime), String.valueOf(endTime)
         });
 
-        if (cursor.moveToFirst()) {
-            do {
-                Ride ride = cursorToRide(cursor);
-                rides.add(ride);
-            } while (cursor.moveToNext());
-        }
-
-        cursor.close();
-        return rides;
+        return readRides(cursor);
     }
 
-    // Combined search: location + time + available seats - FIXED HAVING ERROR
+    // Combined search: location + time + available seats
     public List<Ride> searchRides(double fromLat, double fromLng,
                                   double toLat, double toLng,
                                   double radiusKm,
                                   long startTime, long endTime,
                                   int minSeats) {
-        List<Ride> rides = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        return searchNearby(null, RideCursorMapper::map,
+                fromLat, fromLng, toLat, toLng, radiusKm,
+                buildSearchFilter(startTime, endTime, minSeats, args), args, Integer.MAX_VALUE, null);
+    }
 
-        String selectQuery = "SELECT *, " +
-                "(6371 * acos(cos(radians(?)) * cos(radians(" + DatabaseHelper.KEY_FROM_LATITUDE + ")) * " +
-                "cos(radians(" + DatabaseHelper.KEY_FROM_LONGITUDE + ") - radians(?)) + " +
-                "sin(radians(?)) * sin(radians(" + DatabaseHelper.KEY_FROM_LATITUDE + ")))) AS from_distance, " +
+    /**
+     * Combined search for the ride lists, list columns only: the same rides, in the same order,
+     * as RideSpatialIndex.findNearestRides, for when the index is not loaded.
+     * @param signal Aborts the query when cancelled; or null
+     * @return Up to limit rides, nearest pickup first, then earliest departure
+     */
+    public List<RideSummary> searchRideSummaries(double fromLat, double fromLng,
+                                                 double toLat, double toLng,
+                                                 double radiusKm,
+                                                 long startTime, long endTime,
+                                                 int minSeats, int limit,
+                                                 CancellationSignal signal) {
+        List<String> args = new ArrayList<>();
+        return searchNearby(SUMMARY_COLUMNS, RideCursorMapper::mapSummary,
+                fromLat, fromLng, toLat, toLng, radiusKm,
+                buildSearchFilter(startTime, endTime, minSeats, args), args, limit, signal);
+    }
 
-                "(6371 * acos(cos(radians(?)) * cos(radians(" + DatabaseHelper.KEY_TO_LATITUDE + ")) * " +
-                "cos(radians(" + DatabaseHelper.KEY_TO_LONGITUDE + ") - radians(?)) + " +
-                "sin(radians(?)) * sin(radians(" + DatabaseHelper.KEY_TO_LATITUDE + ")))) AS to_distance " +
+    private String buildSearchFilter(long startTime, long endTime, int minSeats, List<String> args) {
+        args.add(String.valueOf(startTime));
+        args.add(String.valueOf(endTime));
+        args.add(String.valueOf(minSeats));
 
-                "FROM " + DatabaseHelper.TABLE_RIDES + " " +
-                "WHERE " + DatabaseHelper.KEY_RIDE_STATUS + " = 'active' " +
+        return DatabaseHelper.KEY_RIDE_STATUS + " = 'active' " +
                 "AND " + DatabaseHelper.KEY_DEPARTURE_TIME + " BETWEEN ? AND ? " +
-                "AND " + DatabaseHelper.KEY_AVAILABLE_SEATS + " >= ? " +
-                "AND (6371 * acos(cos(radians(?)) * cos(radians(" + DatabaseHelper.KEY_FROM_LATITUDE + ")) * " +
-                "cos(radians(" + DatabaseHelper.KEY_FROM_LONGITUDE + ") - radians(?)) + " +
-                "sin(radians(?)) * sin(radians(" + DatabaseHelper.KEY_FROM_LATITUDE + ")))) < ? " +
-                "AND (6371 * acos(cos(radians(?)) * cos(radians(" + DatabaseHelper.KEY_TO_LATITUDE + ")) * " +
-                "cos(radians(" + DatabaseHelper.KEY_TO_LONGITUDE + ") - radians(?)) + " +
-                "sin(radians(?)) * sin(radians(" + DatabaseHelper.KEY_TO_LATITUDE + ")))) < ? " +
-                "ORDER BY from_distance ASC, " + DatabaseHelper.KEY_DEPARTURE_TIME + " ASC";
+                "AND " + DatabaseHelper.KEY_AVAILABLE_SEATS + " >= ?";
+    }
+
+    // Proximity search: an index narrows the scan to rides near both points,
+    // then the exact Haversine check runs on those candidates only.
+    // columns is the projection (null for every column); only rows that pass the check are mapped.
+    // Returns the nearest limit rows
+    private <T> List<T> searchNearby(String[] columns, BiFunction<RideCursorMapper, Cursor, T> rowMapper,
+                                     double fromLat, double fromLng,
+                                     double toLat, double toLng,
+                                     double radiusKm,
+                                     String filter, List<String> filterArgs,
+                                     int limit, CancellationSignal signal) {
+        List<T> rows = new ArrayList<>();
+
+        LocationUtils.LocationBounds fromBounds = LocationUtils.getLocationBounds(fromLat, fromLng, radiusKm);
+        LocationUtils.LocationBounds toBounds = LocationUtils.getLocationBounds(toLat, toLng, radiusKm);
+        if (fromBounds == null || toBounds == null) {
+            return rows;
+        }
+
+        List<String> args = new ArrayList<>(filterArgs);
+        String selectQuery = buildNearbyQuery(columns, filter, fromBounds, toBounds, args);
 
         SQLiteDatabase db = dbHelper.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, new String[]{
-                String.valueOf(fromLat), String.valueOf(fromLng), String.valueOf(fromLat),
-                String.valueOf(toLat), String.valueOf(toLng), String.valueOf(toLat),
-                String.valueOf(startTime), String.valueOf(endTime), String.valueOf(minSeats),
-                String.valueOf(fromLat), String.valueOf(fromLng), String.valueOf(fromLat), String.valueOf(radiusKm),
-                String.valueOf(toLat), String.valueOf(toLng), String.valueOf(toLat), String.valueOf(radiusKm)
-        });
+        Cursor cursor = db.rawQuery(selectQuery, args.toArray(new String[0]), signal);
 
+        List<NearbyMatch<T>> matches = new ArrayList<>();
         if (cursor.moveToFirst()) {
+            RideCursorMapper mapper = new RideCursorMapper(cursor);
             do {
-                Ride ride = cursorToRide(cursor);
-                rides.add(ride);
+                double fromDistance = LocationUtils.calculateDistance(fromLat, fromLng,
+                        mapper.getFromLatitude(cursor), mapper.getFromLongitude(cursor));
+                if (fromDistance < radiusKm &&
+                        LocationUtils.calculateDistance(toLat, toLng,
+                                mapper.getToLatitude(cursor), mapper.getToLongitude(cursor)) < radiusKm) {
+                    matches.add(new NearbyMatch<>(rowMapper.apply(mapper, cursor),
+                            fromDistance, mapper.getDepartureTime(cursor)));
+                }
             } while (cursor.moveToNext());
         }
-
         cursor.close();
-        return rides;
+
+        // Nearest pickup first, then earliest departure
+        Collections.sort(matches, (a, b) -> {
+            int byDistance = Double.compare(a.fromDistance, b.fromDistance);
+            return byDistance != 0 ? byDistance : Long.compare(a.departureTime, b.departureTime);
+        });
+        for (NearbyMatch<T> match : matches) {
+            if (rows.size() >= limit) break;
+            rows.add(match.row);
+        }
+        return rows;
+    }
+
+    // Selects rides (aliased "r") whose pickup and drop points fall inside the two bounding boxes,
+    // through the R*Tree when enabled, otherwise through the grid cell indexes
+    private String buildNearbyQuery(String[] columns, String filter,
+                                    LocationUtils.LocationBounds fromBounds,
+                                    LocationUtils.LocationBounds toBounds,
+                                    List<String> args) {
+        if (searchMode == SearchMode.SPATIAL_INDEX && dbHelper.hasSpatialIndex()) {
+            return buildSpatialIndexQuery(selectColumns(columns, "r"), filter, fromBounds, toBounds, args);
+        }
+        return "SELECT " + selectColumns(columns, "r") + " FROM " + DatabaseHelper.TABLE_RIDES + " r" +
+                " WHERE " + filter +
+                " AND (" + buildCellRangeClause(DatabaseHelper.KEY_FROM_CELL, fromBounds, args) + ")" +
+                " AND (" + buildCellRangeClause(DatabaseHelper.KEY_TO_CELL, toBounds, args) + ")";
+    }
+
+    // Selects rides whose pickup and drop points fall inside the two bounding boxes, via the R*Tree
+    private String buildSpatialIndexQuery(String columns, String filter,
+                                          LocationUtils.LocationBounds fromBounds,
+                                          LocationUtils.LocationBounds toBounds,
+                                          List<String> args) {
+        List<String> boxArgs = new ArrayList<>();
+        boxArgs.add(String.valueOf(fromBounds.minLatitude));
+        boxArgs.add(String.valueOf(fromBounds.maxLatitude));
+        boxArgs.add(String.valueOf(fromBounds.minLongitude));
+        boxArgs.add(String.valueOf(fromBounds.maxLongitude));
+        boxArgs.add(String.valueOf(toBounds.minLatitude));
+        boxArgs.add(String.valueOf(toBounds.maxLatitude));
+        boxArgs.add(String.valueOf(toBounds.minLongitude));
+        boxArgs.add(String.valueOf(toBounds.maxLongitude));
+
+        // The box arguments come first in the statement, ahead of the filter arguments
+        args.addAll(0, boxArgs);
+
+        return "SELECT " + columns + " FROM " + DatabaseHelper.TABLE_RIDES_RTREE + " s" +
+                " JOIN " + DatabaseHelper.TABLE_RIDES + " r ON r." + DatabaseHelper.KEY_ID + " = s." + DatabaseHelper.KEY_ID +
+                " WHERE s." + DatabaseHelper.KEY_MAX_FROM_LATITUDE + " >= ? AND s." + DatabaseHelper.KEY_MIN_FROM_LATITUDE + " <= ?" +
+                " AND s." + DatabaseHelper.KEY_MAX_FROM_LONGITUDE + " >= ? AND s." + DatabaseHelper.KEY_MIN_FROM_LONGITUDE + " <= ?" +
+                " AND s." + DatabaseHelper.KEY_MAX_TO_LATITUDE + " >= ? AND s." + DatabaseHelper.KEY_MIN_TO_LATITUDE + " <= ?" +
+                " AND s." + DatabaseHelper.KEY_MAX_TO_LONGITUDE + " >= ? AND s." + DatabaseHelper.KEY_MIN_TO_LONGITUDE + " <= ?" +
+                " AND " + filter;
+    }
+
+    // Builds "cell BETWEEN ? AND ? OR ..." with one range per grid row covered by the bounds
+    private String buildCellRangeClause(String column, LocationUtils.LocationBounds bounds, List<String> args) {
+        StringBuilder clause = new StringBuilder();
+        for (long[] range : LocationUtils.getGridCellRanges(bounds)) {
+            if (clause.length() > 0) {
+                clause.append(" OR ");
+            }
+            clause.append(column).append(" BETWEEN ? AND ?");
+            args.add(String.valueOf(range[0]));
+            args.add(String.valueOf(range[1]));
+        }
+        return clause.toString();
+    }
+
+    // " AND (departure_time > ? OR (departure_time = ? AND id > ?))" - rows after the given key in the page order
+    private static String buildKeysetClause(String alias, long departureTime, long id,
+                                            boolean ascending, List<String> args) {
+        String prefix = alias != null ? alias + "." : "";
+        String comparison = ascending ? " > ?" : " < ?";
+        args.add(String.valueOf(departureTime));
+        args.add(String.valueOf(departureTime));
+        args.add(String.valueOf(id));
+
+        return " AND (" + prefix + DatabaseHelper.KEY_DEPARTURE_TIME + comparison +
+                " OR (" + prefix + DatabaseHelper.KEY_DEPARTURE_TIME + " = ? AND " + prefix + DatabaseHelper.KEY_ID + comparison + "))";
+    }
+
+    // "?, ?, ?" for count parameters
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+
+    // "a = ?, b = ?" for an UPDATE ... SET
+    private static String assignments(String[] columns) {
+        StringBuilder assignments = new StringBuilder();
+        for (String column : columns) {
+            if (assignments.length() > 0) {
+                assignments.append(", ");
+            }
+            assignments.append(column).append(" = ?");
+        }
+        return assignments.toString();
+    }
+
+    // "a, b, c" (optionally qualified with a table alias), or "*" for every column
+    private static String selectColumns(String[] columns, String alias) {
+        String prefix = alias != null ? alias + "." : "";
+        if (columns == null) {
+            return prefix + "*";
+        }
+
+        StringBuilder select = new StringBuilder();
+        for (String column : columns) {
+            if (select.length() > 0) {
+                select.append(", ");
+            }
+            select.append(prefix).append(column);
+        }
+        return select.toString();
     }
 
     // Update ride
     public int updateRide(Ride ride) {
         SQLiteDatabase db = dbHelper.getWritableDatabase();
-        ContentValues values = new ContentValues();
-
-        values.put(DatabaseHelper.KEY_FROM_ADDRESS, ride.getFromAddress());
-        values.put(DatabaseHelper.KEY_FROM_LATITUDE, ride.getFromLatitude());
-        values.put(DatabaseHelper.KEY_FROM_LONGITUDE, ride.getFromLongitude());
-        values.put(DatabaseHelper.KEY_TO_ADDRESS, ride.getToAddress());
-        values.put(DatabaseHelper.KEY_TO_LATITUDE, ride.getToLatitude());
-        values.put(DatabaseHelper.KEY_TO_LONGITUDE, ride.getToLongitude());
-        values.put(DatabaseHelper.KEY_DEPARTURE_TIME, ride.getDepartureTime());
-        values.put(DatabaseHelper.KEY_AVAILABLE_SEATS, ride.getAvailableSeats());
-        values.put(DatabaseHelper.KEY_PRICE, ride.getPrice());
-        values.put(DatabaseHelper.KEY_RIDE_STATUS, ride.getStatus());
-        values.put(DatabaseHelper.KEY_NOTES, ride.getNotes());
-        values.put(DatabaseHelper.KEY_UPDATED_AT, DatabaseHelper.getCurrentTimestamp());
-
-        return db.update(DatabaseHelper.TABLE_RIDES, values,
-                DatabaseHelper.KEY_ID + " = ?",
-                new String[]{String.valueOf(ride.getId())});
+        SQLiteStatement statement = dbHelper.getCachedStatement(UPDATE_RIDE_SQL);
+        PlaceDAO.Statements placeStatements = placeDAO.getStatements();
+        int rows = 0;
+        synchronized (statement) {
+            db.beginTransaction();
+            try {
+                long now = DatabaseHelper.getCurrentTimestamp();
+                int index = bindRideColumns(statement, 1, ride, placeStatements, false, now);
+                statement.bindLong(index++, now);
+                statement.bindLong(index, ride.getId());
+
+                rows = statement.executeUpdateDelete();
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                e.printStackTrace();
+                rows = 0;
+            } finally {
+                statement.clearBindings();
+                db.endTransaction();
+            }
+        }
+
+        refreshSpatialIndex(ride.getId());
+        return rows;
     }
 
     // Update ride status
     public int updateRideStatus(long rideId, String status) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(DatabaseHelper.KEY_RIDE_STATUS, status);
-        values.put(DatabaseHelper.KEY_UPDATED_AT, DatabaseHelper.getCurrentTimestamp());
+        SQLiteStatement statement = dbHelper.getCachedStatement(UPDATE_RIDE_STATUS_SQL);
+        int rows;
+        synchronized (statement) {
+            bindStringOrNull(statement, 1, status);
+            statement.bindLong(2, DatabaseHelper.getCurrentTimestamp());
+            statement.bindLong(3, rideId);
+
+            rows = statement.executeUpdateDelete();
+            statement.clearBindings();
+        }
 
-        return db.update(DatabaseHelper.TABLE_RIDES, values,
-                DatabaseHelper.KEY_ID + " = ?",
-                new String[]{String.valueOf(rideId)});
+        refreshSpatialIndex(rideId);
+        return rows;
     }
 
     // Update available seats
     public int updateAvailableSeats(long rideId, int seats) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(DatabaseHelper.KEY_AVAILABLE_SEATS, seats);
-        values.put(DatabaseHelper.KEY_UPDATED_AT, DatabaseHelper.getCurrentTimestamp());
+        SQLiteStatement statement = dbHelper.getCachedStatement(UPDATE_AVAILABLE_SEATS_SQL);
+        int rows;
+        synchronized (statement) {
+            statement.bindLong(1, seats);
+            statement.bindLong(2, DatabaseHelper.getCurrentTimestamp());
+            statement.bindLong(3, rideId);
+
+            rows = statement.executeUpdateDelete();
+            statement.clearBindings();
+        }
 
-        return db.update(DatabaseHelper.TABLE_RIDES, values,
-                DatabaseHelper.KEY_ID + " = ?",
-                new String[]{String.valueOf(rideId)});
+        refreshSpatialIndex(rideId);
+        return rows;
     }
 
     // Delete ride
@@ -274,6 +652,7 @@ public class RideDAO {
         db.delete(DatabaseHelper.TABLE_RIDES,
                 DatabaseHelper.KEY_ID + " = ?",
                 new String[]{String.valueOf(rideId)});
+        refreshSpatialIndex(rideId);
     }
 
     // Get ride count for a driver
@@ -292,31 +671,127 @@ public class RideDAO {
         return count;
     }
 
-    // Helper method to convert cursor to Ride object
-    private Ride cursorToRide(Cursor cursor) {
-        Ride ride = new Ride();
-
-        ride.setId(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_ID)));
-        ride.setDriverId(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_DRIVER_ID)));
-        ride.setFromAddress(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_FROM_ADDRESS)));
-        ride.setFromLatitude(cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_FROM_LATITUDE)));
-        ride.setFromLongitude(cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_FROM_LONGITUDE)));
-        ride.setToAddress(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_TO_ADDRESS)));
-        ride.setToLatitude(cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_TO_LATITUDE)));
-        ride.setToLongitude(cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_TO_LONGITUDE)));
-        ride.setDepartureTime(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_DEPARTURE_TIME)));
-        ride.setAvailableSeats(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_AVAILABLE_SEATS)));
-        ride.setPrice(cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_PRICE)));
-        ride.setStatus(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_RIDE_STATUS)));
-        ride.setNotes(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_NOTES)));
-        ride.setCreatedAt(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_CREATED_AT)));
-        ride.setUpdatedAt(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_UPDATED_AT)));
+    // Load the in-memory spatial index from the active rides
+    public void loadSpatialIndex() {
+        RideSpatialIndex index = RideSpatialIndex.getInstance();
+        index.beginLoad();
+        List<Ride> activeRides = getAllActiveRides();
 
-        return ride;
+        // Rides written while the snapshot was read are re-read from the database
+        for (long rideId : index.finishLoad(activeRides)) {
+            refreshSpatialIndex(rideId);
+        }
+    }
+
+    // Mirror a ride write into the in-memory spatial index; RideRequestDAO also calls this after taking seats.
+    // Call it after the write commits. Reading the row and putting it happen under the ride's lock, so a
+    // refresh that read an older row can never put it after one that read the newer row
+    void refreshSpatialIndex(long rideId) {
+        RideSpatialIndex index = RideSpatialIndex.getInstance();
+        synchronized (SPATIAL_INDEX_LOCKS[(int) (rideId & (SPATIAL_INDEX_LOCKS.length - 1))]) {
+            if (!index.markChanged(rideId)) {
+                return;
+            }
+
+            Ride ride = getRideById(rideId);
+            if (ride != null) {
+                index.put(ride);
+            } else {
+                index.remove(rideId);
+            }
+        }
+    }
+
+    // Binds the RIDE_WRITE_COLUMNS values starting at the given index; returns the next free index.
+    // The grid cell and place columns are derived from the addresses and coordinates so they always
+    // stay in step. Resolving places writes to the places table, so this must run inside a transaction,
+    // with place statements fetched before it began; only new rides count as a use of their places,
+    // edits just link the (possibly new) places
+    private int bindRideColumns(SQLiteStatement statement, int index, Ride ride, PlaceDAO.Statements placeStatements,
+                                boolean countPlaceUse, long now) {
+        bindStringOrNull(statement, index++, ride.getFromAddress());
+        statement.bindDouble(index++, ride.getFromLatitude());
+        statement.bindDouble(index++, ride.getFromLongitude());
+        bindStringOrNull(statement, index++, ride.getToAddress());
+        statement.bindDouble(index++, ride.getToLatitude());
+        statement.bindDouble(index++, ride.getToLongitude());
+        statement.bindLong(index++, ride.getDepartureTime());
+        statement.bindLong(index++, ride.getAvailableSeats());
+        statement.bindDouble(index++, ride.getPrice());
+        bindStringOrNull(statement, index++, ride.getStatus());
+        bindStringOrNull(statement, index++, ride.getDescription());
+        bindStringOrNull(statement, index++, ride.getNotes());
+        statement.bindLong(index++, LocationUtils.getGridCellId(ride.getFromLatitude(), ride.getFromLongitude()));
+        statement.bindLong(index++, LocationUtils.getGridCellId(ride.getToLatitude(), ride.getToLongitude()));
+        bindPlaceId(statement, index++, placeDAO.resolvePlaceId(placeStatements, ride.getFromAddress(),
+                ride.getFromLatitude(), ride.getFromLongitude(), true, countPlaceUse, now));
+        bindPlaceId(statement, index++, placeDAO.resolvePlaceId(placeStatements, ride.getToAddress(),
+                ride.getToLatitude(), ride.getToLongitude(), false, countPlaceUse, now));
+        return index;
+    }
+
+    private static void bindPlaceId(SQLiteStatement statement, int index, long placeId) {
+        if (placeId > 0) {
+            statement.bindLong(index, placeId);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    // Read every row of a rides cursor, then close it
+    private List<Ride> readRides(Cursor cursor) {
+        List<Ride> rides = new ArrayList<>(cursor.getCount());
+
+        if (cursor.moveToFirst()) {
+            RideCursorMapper mapper = new RideCursorMapper(cursor);
+            do {
+                rides.add(mapper.map(cursor));
+            } while (cursor.moveToNext());
+        }
+
+        cursor.close();
+        return rides;
+    }
+
+    // Read every row of a summary cursor, then close it
+    private List<RideSummary> readRideSummaries(Cursor cursor) {
+        List<RideSummary> summaries = new ArrayList<>(cursor.getCount());
+
+        if (cursor.moveToFirst()) {
+            RideCursorMapper mapper = new RideCursorMapper(cursor);
+            do {
+                summaries.add(mapper.mapSummary(cursor));
+            } while (cursor.moveToNext());
+        }
+
+        cursor.close();
+        return summaries;
+    }
+
+    // A search hit with the values it is ordered by
+    private static class NearbyMatch<T> {
+        final T row;
+        final double fromDistance;
+        final long departureTime;
+
+        NearbyMatch(T row, double fromDistance, long departureTime) {
+            this.row = row;
+            this.fromDistance = fromDistance;
+            this.departureTime = departureTime;
+        }
     }
 
-    // Close database connection
+    // Release this DAO. The database is shared by every DAO and background thread, so it stays open;
+    // closing it here would pull the connection out from under searches still running elsewhere.
+    // DatabaseHelper.closeDB() closes it for good.
     public void close() {
-        dbHelper.closeDB();
     }
 }
\ No newline at end of file
@@ -0,0 +1,363 @@
+package com.companyname.shareride.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.companyname.shareride.Ride;
+import com.companyname.shareride.RideRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Requests to join rides: pending -> accepted, or pending -> rejected.
+ * Only pending requests change state, so a request is never accepted twice or accepted after
+ * being rejected. Accepting takes the requested seats from the ride in the same transaction,
+ * with RideDAO's conditional decrement, so a ride never has fewer than zero seats.
+ * This is the only way seats are booked.
+ * A batch of requests is decided with a fixed number of statements, however many are accepted.
+ */
+public class RideRequestDAO {
+
+    // Returned by createRequest when the ride cannot take the request
+    public static final long REQUEST_FAILED = -1;
+
+    // Request IDs per IN (...) list, well below SQLite's bound parameter limit
+    private static final int MAX_IDS_PER_STATEMENT = 500;
+
+    private static final String REQUEST_COLUMNS = "r." + DatabaseHelper.KEY_ID + ", " +
+            "r." + DatabaseHelper.KEY_RIDE_ID + ", " +
+            "r." + DatabaseHelper.KEY_PASSENGER_ID + ", " +
+            "u." + DatabaseHelper.KEY_USERNAME + ", " +
+            "r." + DatabaseHelper.KEY_REQUEST_STATUS + ", " +
+            "r." + DatabaseHelper.KEY_REQUEST_MESSAGE + ", " +
+            "r." + DatabaseHelper.KEY_SEATS_REQUESTED + ", " +
+            "r." + DatabaseHelper.KEY_CREATED_AT + ", " +
+            "r." + DatabaseHelper.KEY_UPDATED_AT;
+
+    private static final String SELECT_REQUESTS_SQL = "SELECT " + REQUEST_COLUMNS +
+            " FROM " + DatabaseHelper.TABLE_RIDE_REQUESTS + " r" +
+            " LEFT JOIN " + DatabaseHelper.TABLE_USERS + " u ON u." + DatabaseHelper.KEY_ID + " = r." + DatabaseHelper.KEY_PASSENGER_ID;
+
+    // Pending lists are read from the ride_id and passenger_id indexes, which already hold them in
+    // ID order (oldest first); counts and duplicate checks are answered from idx_ride_requests_composite alone
+    private static final String SELECT_PENDING_FOR_RIDE_SQL = SELECT_REQUESTS_SQL +
+            " WHERE r." + DatabaseHelper.KEY_RIDE_ID + " = ?" +
+            " AND r." + DatabaseHelper.KEY_REQUEST_STATUS + " = '" + DatabaseHelper.REQUEST_STATUS_PENDING + "'" +
+            " ORDER BY r." + DatabaseHelper.KEY_ID;
+
+    private static final String SELECT_PENDING_FOR_PASSENGER_SQL = SELECT_REQUESTS_SQL +
+            " WHERE r." + DatabaseHelper.KEY_PASSENGER_ID + " = ?" +
+            " AND r." + DatabaseHelper.KEY_REQUEST_STATUS + " = '" + DatabaseHelper.REQUEST_STATUS_PENDING + "'" +
+            " ORDER BY r." + DatabaseHelper.KEY_ID;
+
+    private static final String COUNT_PENDING_FOR_RIDE_SQL = "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_RIDE_REQUESTS +
+            " WHERE " + DatabaseHelper.KEY_RIDE_ID + " = ?" +
+            " AND " + DatabaseHelper.KEY_REQUEST_STATUS + " = '" + DatabaseHelper.REQUEST_STATUS_PENDING + "'";
+
+    // Seat counts of the ride's pending requests, read inside the accept transaction
+    private static final String SELECT_PENDING_SEATS_SQL = "SELECT " + DatabaseHelper.KEY_ID + ", " + DatabaseHelper.KEY_SEATS_REQUESTED +
+            " FROM " + DatabaseHelper.TABLE_RIDE_REQUESTS +
+            " WHERE " + DatabaseHelper.KEY_RIDE_ID + " = ?" +
+            " AND " + DatabaseHelper.KEY_REQUEST_STATUS + " = '" + DatabaseHelper.REQUEST_STATUS_PENDING + "'" +
+            " ORDER BY " + DatabaseHelper.KEY_ID;
+
+    private static final String SELECT_ACTIVE_RIDE_SEATS_SQL = "SELECT " + DatabaseHelper.KEY_AVAILABLE_SEATS +
+            " FROM " + DatabaseHelper.TABLE_RIDES +
+            " WHERE " + DatabaseHelper.KEY_ID + " = ?" +
+            " AND " + DatabaseHelper.KEY_RIDE_STATUS + " = '" + Ride.STATUS_ACTIVE + "'";
+
+    // A passenger has one open (pending or accepted) request per ride; looked up on idx_ride_requests_composite
+    private static final String SELECT_OPEN_REQUEST_SQL = "SELECT " + DatabaseHelper.KEY_ID +
+            " FROM " + DatabaseHelper.TABLE_RIDE_REQUESTS +
+            " WHERE " + DatabaseHelper.KEY_RIDE_ID + " = ? AND " + DatabaseHelper.KEY_PASSENGER_ID + " = ?" +
+            " AND " + DatabaseHelper.KEY_REQUEST_STATUS + " IN ('" + DatabaseHelper.REQUEST_STATUS_PENDING + "', '" + DatabaseHelper.REQUEST_STATUS_ACCEPTED + "')";
+
+    // Inserts nothing unless the ride is active, has the seats free and is not the passenger's own
+    private static final String INSERT_REQUEST_SQL = "INSERT INTO " + DatabaseHelper.TABLE_RIDE_REQUESTS + " (" +
+            DatabaseHelper.KEY_RIDE_ID + ", " + DatabaseHelper.KEY_PASSENGER_ID + ", " +
+            DatabaseHelper.KEY_REQUEST_STATUS + ", " + DatabaseHelper.KEY_REQUEST_MESSAGE + ", " +
+            DatabaseHelper.KEY_SEATS_REQUESTED + ", " + DatabaseHelper.KEY_CREATED_AT + ", " + DatabaseHelper.KEY_UPDATED_AT + ")" +
+            " SELECT " + DatabaseHelper.KEY_ID + ", ?, '" + DatabaseHelper.REQUEST_STATUS_PENDING + "', ?, ?, ?, ?" +
+            " FROM " + DatabaseHelper.TABLE_RIDES +
+            " WHERE " + DatabaseHelper.KEY_ID + " = ?" +
+            " AND " + DatabaseHelper.KEY_RIDE_STATUS + " = '" + Ride.STATUS_ACTIVE + "'" +
+            " AND " + DatabaseHelper.KEY_AVAILABLE_SEATS + " >= ?" +
+            " AND " + DatabaseHelper.KEY_DRIVER_ID + " != ?";
+
+    private DatabaseHelper dbHelper;
+    private RideDAO rideDAO;
+
+    public RideRequestDAO(Context context) {
+        this(DatabaseHelper.getInstance(context));
+    }
+
+    RideRequestDAO(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+        rideDAO = new RideDAO(dbHelper);
+    }
+
+    /**
+     * Ask to join a ride. Seats are only taken once the driver accepts.
+     * @return ID of the new pending request, the ID of the passenger's open request if there is one
+     *         already, or REQUEST_FAILED if the ride is not active, lacks the seats, does not exist
+     *         or is the passenger's own
+     */
+    public long createRequest(long rideId, long passengerId, int seats, String message) {
+        if (seats <= 0) {
+            return REQUEST_FAILED;
+        }
+
+        // Before the transaction, so no other statement lock is taken while it holds the write lock
+        dbHelper.ensureUserExists(passengerId);
+
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement insert = dbHelper.getCachedStatement(INSERT_REQUEST_SQL);
+        long requestId = REQUEST_FAILED;
+
+        synchronized (insert) {
+            db.beginTransaction();
+            try {
+                Cursor cursor = db.rawQuery(SELECT_OPEN_REQUEST_SQL,
+                        new String[]{String.valueOf(rideId), String.valueOf(passengerId)});
+                try {
+                    if (cursor.moveToFirst()) {
+                        requestId = cursor.getLong(0);
+                    }
+                } finally {
+                    cursor.close();
+                }
+
+                if (requestId == REQUEST_FAILED) {
+                    long now = DatabaseHelper.getCurrentTimestamp();
+                    insert.bindLong(1, passengerId);
+                    bindStringOrNull(insert, 2, message);
+                    insert.bindLong(3, seats);
+                    insert.bindLong(4, now);
+                    insert.bindLong(5, now);
+                    insert.bindLong(6, rideId);
+                    insert.bindLong(7, seats);
+                    insert.bindLong(8, passengerId);
+                    requestId = insert.executeInsert(); // -1 when the ride cannot take the request
+                }
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                e.printStackTrace();
+                requestId = REQUEST_FAILED;
+            } finally {
+                insert.clearBindings();
+                db.endTransaction();
+            }
+        }
+        return requestId;
+    }
+
+    /**
+     * Accept the given pending requests of a ride, in order, while the ride has seats for them.
+     * Requests that do not fit, or are no longer pending, are left as they are.
+     * @return IDs of the requests accepted
+     */
+    public List<Long> acceptRequests(long rideId, List<Long> requestIds) {
+        return acceptPendingRequests(rideId, requestIds, Integer.MAX_VALUE);
+    }
+
+    // Accept up to maxRequests of the ride's pending requests, oldest first, while seats last
+    public List<Long> acceptOldestRequests(long rideId, int maxRequests) {
+        return acceptPendingRequests(rideId, null, maxRequests);
+    }
+
+    public boolean acceptRequest(long rideId, long requestId) {
+        return !acceptRequests(rideId, Collections.singletonList(requestId)).isEmpty();
+    }
+
+    // Reject the given pending requests of a ride; returns the number rejected
+    public int rejectRequests(long rideId, List<Long> requestIds) {
+        if (requestIds.isEmpty()) {
+            return 0;
+        }
+
+        int rejected = 0;
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            rejected = updatePendingStatus(db, rideId, requestIds, DatabaseHelper.REQUEST_STATUS_REJECTED,
+                    DatabaseHelper.getCurrentTimestamp());
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            e.printStackTrace();
+            rejected = 0;
+        } finally {
+            db.endTransaction();
+        }
+        return rejected;
+    }
+
+    public boolean rejectRequest(long rideId, long requestId) {
+        return rejectRequests(rideId, Collections.singletonList(requestId)) > 0;
+    }
+
+    // Pending requests for a ride, oldest first
+    public List<RideRequest> getPendingRequestsForRide(long rideId) {
+        return readRequests(SELECT_PENDING_FOR_RIDE_SQL, rideId);
+    }
+
+    // The passenger's pending requests across all rides, oldest first
+    public List<RideRequest> getPendingRequestsForPassenger(long passengerId) {
+        return readRequests(SELECT_PENDING_FOR_PASSENGER_SQL, passengerId);
+    }
+
+    public int getPendingRequestCount(long rideId) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery(COUNT_PENDING_FOR_RIDE_SQL, new String[]{String.valueOf(rideId)});
+        int count = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        cursor.close();
+        return count;
+    }
+
+    /**
+     * Decide which pending requests fit in the ride's free seats, then accept them with one UPDATE
+     * of the requests and one conditional decrement of the ride's seats. The write transaction keeps
+     * other writers out between reading the seats and taking them; should the decrement still find
+     * too few seats, nothing is accepted.
+     * @param requestIds Requests to consider in this order, or null for all pending, oldest first
+     */
+    private List<Long> acceptPendingRequests(long rideId, List<Long> requestIds, int maxRequests) {
+        List<Long> accepted = new ArrayList<>();
+        if (maxRequests <= 0 || (requestIds != null && requestIds.isEmpty())) {
+            return accepted;
+        }
+
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement reserveSeats = dbHelper.getCachedStatement(RideDAO.RESERVE_SEATS_SQL);
+
+        synchronized (reserveSeats) {
+            db.beginTransaction();
+            try {
+                int seatsLeft = -1;
+                Cursor rideCursor = db.rawQuery(SELECT_ACTIVE_RIDE_SEATS_SQL, new String[]{String.valueOf(rideId)});
+                try {
+                    if (rideCursor.moveToFirst()) {
+                        seatsLeft = rideCursor.getInt(0);
+                    }
+                } finally {
+                    rideCursor.close();
+                }
+
+                int seatsTaken = 0;
+                if (seatsLeft > 0) {
+                    // Pending request ID -> seats requested, oldest first
+                    Map<Long, Integer> pendingSeats = new LinkedHashMap<>();
+                    Cursor cursor = db.rawQuery(SELECT_PENDING_SEATS_SQL, new String[]{String.valueOf(rideId)});
+                    try {
+                        while (cursor.moveToNext()) {
+                            pendingSeats.put(cursor.getLong(0), cursor.getInt(1));
+                        }
+                    } finally {
+                        cursor.close();
+                    }
+
+                    Iterable<Long> candidates = requestIds != null ? requestIds : pendingSeats.keySet();
+                    for (Long requestId : candidates) {
+                        if (accepted.size() >= maxRequests) break;
+
+                        Integer seats = pendingSeats.remove(requestId); // remove() also skips duplicate IDs
+                        if (seats != null && seats <= seatsLeft) {
+                            accepted.add(requestId);
+                            seatsLeft -= seats;
+                            seatsTaken += seats;
+                        }
+                    }
+                }
+
+                boolean booked = true;
+                if (!accepted.isEmpty()) {
+                    long now = DatabaseHelper.getCurrentTimestamp();
+                    updatePendingStatus(db, rideId, accepted, DatabaseHelper.REQUEST_STATUS_ACCEPTED, now);
+
+                    reserveSeats.bindLong(1, seatsTaken);
+                    reserveSeats.bindLong(2, now);
+                    reserveSeats.bindLong(3, rideId);
+                    reserveSeats.bindLong(4, seatsTaken);
+                    booked = reserveSeats.executeUpdateDelete() == 1;
+                }
+
+                if (booked) {
+                    db.setTransactionSuccessful();
+                } else {
+                    // The seats are gone; the status changes roll back with the transaction
+                    accepted.clear();
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                accepted.clear();
+            } finally {
+                reserveSeats.clearBindings();
+                db.endTransaction();
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            rideDAO.refreshSpatialIndex(rideId);
+        }
+        return accepted;
+    }
+
+    // Moves the listed pending requests of the ride to the new status; run inside a transaction
+    private static int updatePendingStatus(SQLiteDatabase db, long rideId, List<Long> requestIds, String status, long now) {
+        int updated = 0;
+        for (int start = 0; start < requestIds.size(); start += MAX_IDS_PER_STATEMENT) {
+            List<Long> chunk = requestIds.subList(start, Math.min(start + MAX_IDS_PER_STATEMENT, requestIds.size()));
+
+            StringBuilder sql = new StringBuilder("UPDATE " + DatabaseHelper.TABLE_RIDE_REQUESTS +
+                    " SET " + DatabaseHelper.KEY_REQUEST_STATUS + " = ?, " + DatabaseHelper.KEY_UPDATED_AT + " = ?" +
+                    " WHERE " + DatabaseHelper.KEY_RIDE_ID + " = ?" +
+                    " AND " + DatabaseHelper.KEY_REQUEST_STATUS + " = '" + DatabaseHelper.REQUEST_STATUS_PENDING + "'" +
+                    " AND " + DatabaseHelper.KEY_ID + " IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(")");
+
+            SQLiteStatement update = db.compileStatement(sql.toString());
+            try {
+                update.bindString(1, status);
+                update.bindLong(2, now);
+                update.bindLong(3, rideId);
+                for (int i = 0; i < chunk.size(); i++) {
+                    update.bindLong(4 + i, chunk.get(i));
+                }
+                updated += update.executeUpdateDelete();
+            } finally {
+                update.close();
+            }
+        }
+        return updated;
+    }
+
+    private List<RideRequest> readRequests(String sql, long id) {
+        List<RideRequest> requests = new ArrayList<>();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery(sql, new String[]{String.valueOf(id)});
+        try {
+            while (cursor.moveToNext()) {
+                requests.add(new RideRequest(cursor.getLong(0), cursor.getLong(1), cursor.getLong(2),
+                        cursor.getString(3), cursor.getString(4), cursor.getString(5),
+                        cursor.getInt(6), cursor.getLong(7), cursor.getLong(8)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return requests;
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+}
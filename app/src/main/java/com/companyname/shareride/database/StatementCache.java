@@ -0,0 +1,74 @@
+package com.companyname.shareride.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precompiled statements for one open database, keyed by their SQL text.
+ * The cache follows the database it was last used with: if the database is closed and
+ * reopened, the old statements are closed and compiled again against the new connection.
+ *
+ * A SQLiteStatement holds its bindings, so callers must synchronize on the statement
+ * from the first bind until the statement has executed.
+ *
+ * Compiling a statement needs the primary connection, which a thread in a write transaction
+ * holds until it ends. Statements are therefore compiled outside the cache's lock, so a lookup
+ * never waits behind another thread's compile, and callers fetch every statement they need
+ * before beginning a transaction.
+ */
+public class StatementCache {
+
+    private SQLiteDatabase database;
+    private final Map<String, SQLiteStatement> statements = new HashMap<>();
+
+    public SQLiteStatement get(SQLiteDatabase db, String sql) {
+        synchronized (this) {
+            if (db != database) {
+                clear();
+                database = db;
+            }
+
+            SQLiteStatement statement = statements.get(sql);
+            if (statement != null) {
+                return statement;
+            }
+        }
+
+        SQLiteStatement compiled = db.compileStatement(sql);
+        SQLiteStatement cached;
+        synchronized (this) {
+            if (db != database) {
+                // The database was reopened meanwhile; the caller still gets a working statement
+                return compiled;
+            }
+            cached = statements.get(sql);
+            if (cached == null) {
+                statements.put(sql, compiled);
+                return compiled;
+            }
+        }
+
+        // Another thread compiled the same statement first
+        compiled.close();
+        return cached;
+    }
+
+    // Close every cached statement
+    public synchronized void clear() {
+        for (SQLiteStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        statements.clear();
+        database = null;
+    }
+
+    public synchronized int size() {
+        return statements.size();
+    }
+}
@@ -0,0 +1,236 @@
+package com.companyname.shareride.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory answers for location autocomplete, so most keystrokes never reach the database
+ * or the Geocoder.
+ * <ul>
+ * <li>Result sets of earlier queries live in GeocodeCache. A query that is not cached is
+ * answered by narrowing the results of its longest cached prefix ("kora" from "kor"), but only
+ * when that prefix's lookup came back with fewer than the limit, i.e. found every match.</li>
+ * <li>A trie of every place name seen so far (database places and geocoder results) gives
+ * instant suggestions while a full lookup is still running.</li>
+ * </ul>
+ */
+public class AutocompleteEngine {
+
+    // Shortest prefix worth narrowing from; matches the AutoCompleteTextView threshold
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    // Best suggestions kept per trie node, and the total number of names indexed
+    private static final int MAX_SUGGESTIONS_PER_NODE = 8;
+    private static final int MAX_INDEXED_NAMES = 2000;
+
+    private static AutocompleteEngine instance;
+
+    private static class TrieNode {
+        final Map<Character, TrieNode> children = new HashMap<>(4);
+        final List<TrieEntry> best = new ArrayList<>(2); // Highest weight first
+    }
+
+    private static class TrieEntry {
+        final LocationSearchHelper.LocationSuggestion suggestion;
+        final String[] words; // Name and address words, split once for matching
+        int weight;
+
+        TrieEntry(LocationSearchHelper.LocationSuggestion suggestion, int weight) {
+            this.suggestion = suggestion;
+            this.words = suggestionWords(suggestion);
+            this.weight = weight;
+        }
+    }
+
+    // Guarded by this
+    private final TrieNode root = new TrieNode();
+    private final Map<String, TrieEntry> indexedNames = new HashMap<>();
+
+    public static synchronized AutocompleteEngine getInstance() {
+        if (instance == null) {
+            instance = new AutocompleteEngine();
+        }
+        return instance;
+    }
+
+    /**
+     * Results for the query from memory: the cached result set, or the narrowed results of
+     * its longest cached prefix whose result set is complete. Returns null when the query needs a
+     * full lookup.
+     */
+    public List<LocationSearchHelper.LocationSuggestion> suggest(String query, int limit) {
+        String normalized = normalize(query);
+        List<LocationSearchHelper.LocationSuggestion> cached = GeocodeCache.getSuggestions(normalized);
+        if (cached != null) {
+            return cached;
+        }
+
+        String[] words = splitWords(normalized);
+        for (int length = normalized.length() - 1; length >= MIN_PREFIX_LENGTH; length--) {
+            List<LocationSearchHelper.LocationSuggestion> prefixResults =
+                    GeocodeCache.getSuggestions(normalized.substring(0, length));
+            // A full result set was cut off at the limit; matches for this query may be missing from it
+            if (prefixResults == null || prefixResults.size() >= limit) continue;
+
+            List<LocationSearchHelper.LocationSuggestion> narrowed = new ArrayList<>();
+            for (LocationSearchHelper.LocationSuggestion suggestion : prefixResults) {
+                if (matchesAllWords(suggestionWords(suggestion), words)) {
+                    narrowed.add(suggestion);
+                    if (narrowed.size() >= limit) break;
+                }
+            }
+
+            // Nothing left means the prefix results do not cover this query; look it up instead.
+            // Narrowed sets are not cached, only complete lookups are narrowed from
+            return narrowed.isEmpty() ? null : narrowed;
+        }
+        return null;
+    }
+
+    // Known place names matching the query, best first; for showing while a lookup runs
+    public synchronized List<LocationSearchHelper.LocationSuggestion> suggestKnownPlaces(String query, int limit) {
+        List<LocationSearchHelper.LocationSuggestion> matches = new ArrayList<>();
+        String[] words = splitWords(normalize(query));
+        if (words.length == 0) {
+            return matches;
+        }
+
+        // Walk the longest word, it leads to the smallest candidate set
+        String longest = words[0];
+        for (String word : words) {
+            if (word.length() > longest.length()) longest = word;
+        }
+
+        TrieNode node = root;
+        for (int i = 0; i < longest.length() && node != null; i++) {
+            node = node.children.get(longest.charAt(i));
+        }
+        if (node == null) {
+            return matches;
+        }
+
+        for (TrieEntry entry : node.best) {
+            if (matchesAllWords(entry.words, words)) {
+                matches.add(entry.suggestion);
+                if (matches.size() >= limit) break;
+            }
+        }
+        return matches;
+    }
+
+    // Cache a full lookup's results and index their names
+    public void addResults(String query, List<LocationSearchHelper.LocationSuggestion> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        GeocodeCache.putSuggestions(normalize(query), new ArrayList<>(results));
+        for (LocationSearchHelper.LocationSuggestion suggestion : results) {
+            indexPlace(suggestion, 0);
+        }
+    }
+
+    /**
+     * Add a place name to the trie under every word of its display name.
+     * @param weight Ranking among suggestions for the same prefix, e.g. how often rides used the place
+     */
+    public synchronized void indexPlace(LocationSearchHelper.LocationSuggestion suggestion, int weight) {
+        if (suggestion.displayName == null) {
+            return;
+        }
+
+        String key = normalize(suggestion.displayName);
+        TrieEntry entry = indexedNames.get(key);
+        if (entry != null) {
+            if (weight > entry.weight) {
+                entry.weight = weight;
+                // Re-offer so nodes along each path re-rank the entry
+                for (String word : splitWords(key)) {
+                    insertWord(word, entry);
+                }
+            }
+            return;
+        }
+
+        if (indexedNames.size() >= MAX_INDEXED_NAMES) {
+            return;
+        }
+
+        entry = new TrieEntry(suggestion, weight);
+        indexedNames.put(key, entry);
+        for (String word : splitWords(key)) {
+            insertWord(word, entry);
+        }
+    }
+
+    public synchronized void clear() {
+        root.children.clear();
+        root.best.clear();
+        indexedNames.clear();
+    }
+
+    private void insertWord(String word, TrieEntry entry) {
+        TrieNode node = root;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            TrieNode child = node.children.get(c);
+            if (child == null) {
+                child = new TrieNode();
+                node.children.put(c, child);
+            }
+            node = child;
+            offer(node, entry);
+        }
+    }
+
+    // Keep the node's best list sorted by weight and bounded
+    private static void offer(TrieNode node, TrieEntry entry) {
+        node.best.remove(entry);
+
+        int position = 0;
+        while (position < node.best.size() && node.best.get(position).weight >= entry.weight) {
+            position++;
+        }
+        if (position >= MAX_SUGGESTIONS_PER_NODE) {
+            return;
+        }
+
+        node.best.add(position, entry);
+        if (node.best.size() > MAX_SUGGESTIONS_PER_NODE) {
+            node.best.remove(node.best.size() - 1);
+        }
+    }
+
+    private static String[] suggestionWords(LocationSearchHelper.LocationSuggestion suggestion) {
+        return splitWords(normalize(suggestion.displayName + " " + suggestion.fullAddress));
+    }
+
+    // Every query word must start some word of the suggestion's name or address
+    private static boolean matchesAllWords(String[] nameWords, String[] queryWords) {
+        for (String queryWord : queryWords) {
+            boolean found = false;
+            for (String nameWord : nameWords) {
+                if (nameWord.startsWith(queryWord)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String[] splitWords(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        return words.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,185 @@
+package com.companyname.shareride.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe LRU cache bounded by entry count and total weight, where every entry also
+ * expires after its own time to live. Expired entries are dropped when they are read and
+ * before anything is evicted for space.
+ * Values are shared between callers, so they should be immutable.
+ */
+public class ExpiringLruCache<K, V> {
+
+    // Approximate size of an entry, in whatever unit maxWeight uses (bytes for the geocode caches)
+    public interface Weigher<K, V> {
+        int weigh(K key, V value);
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final int weight;
+        final long expiresAt;
+
+        Entry(V value, int weight, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // Access order, so iteration starts at the least recently used entry
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+    private final long maxWeight;
+    private final long defaultTtlMs;
+    private final Weigher<K, V> weigher;
+
+    private long totalWeight = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long expirationCount = 0;
+
+    // Bounded by entry count only
+    public ExpiringLruCache(int maxEntries, long defaultTtlMs) {
+        this(maxEntries, Long.MAX_VALUE, defaultTtlMs, null);
+    }
+
+    public ExpiringLruCache(int maxEntries, long maxWeight, long defaultTtlMs, Weigher<K, V> weigher) {
+        if (maxEntries <= 0 || maxWeight <= 0 || defaultTtlMs <= 0) {
+            throw new IllegalArgumentException("Cache bounds and time to live must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.defaultTtlMs = defaultTtlMs;
+        this.weigher = weigher;
+    }
+
+    // The cached value, or null if it is missing or has expired
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+
+        if (entry.expiresAt <= now()) {
+            removeEntry(key);
+            expirationCount++;
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, defaultTtlMs);
+    }
+
+    public synchronized void put(K key, V value, long ttlMs) {
+        if (key == null || value == null || ttlMs <= 0) {
+            return;
+        }
+
+        int weight = weigher != null ? weigher.weigh(key, value) : 1;
+        if (weight > maxWeight) {
+            removeEntry(key); // Would evict everything else and still not fit
+            return;
+        }
+
+        Entry<V> previous = entries.put(key, new Entry<>(value, weight, now() + ttlMs));
+        if (previous != null) {
+            totalWeight -= previous.weight;
+        }
+        totalWeight += weight;
+
+        trimToBounds();
+    }
+
+    public synchronized V remove(K key) {
+        Entry<V> entry = removeEntry(key);
+        return entry != null ? entry.value : null;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return totalWeight;
+    }
+
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long expirationCount() {
+        return expirationCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hitCount + missCount;
+        int hitPercent = lookups != 0 ? (int) (100 * hitCount / lookups) : 0;
+        return "ExpiringLruCache[size=" + entries.size() + "/" + maxEntries +
+                ", weight=" + totalWeight + ", hits=" + hitCount + ", misses=" + missCount +
+                ", hitRate=" + hitPercent + "%, evictions=" + evictionCount +
+                ", expirations=" + expirationCount + "]";
+    }
+
+    private void trimToBounds() {
+        if (entries.size() <= maxEntries && totalWeight <= maxWeight) {
+            return;
+        }
+
+        // Expired entries go first, wherever they are in the LRU order
+        long currentTime = now();
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry<V> entry = iterator.next().getValue();
+            if (entry.expiresAt <= currentTime) {
+                iterator.remove();
+                totalWeight -= entry.weight;
+                expirationCount++;
+            }
+        }
+
+        iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalWeight > maxWeight) && iterator.hasNext()) {
+            Entry<V> entry = iterator.next().getValue();
+            iterator.remove();
+            totalWeight -= entry.weight;
+            evictionCount++;
+        }
+    }
+
+    private Entry<V> removeEntry(K key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry != null) {
+            totalWeight -= entry.weight;
+        }
+        return entry;
+    }
+
+    // Monotonic, so wall clock changes cannot expire or revive entries
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+}
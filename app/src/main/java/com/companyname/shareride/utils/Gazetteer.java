@@ -0,0 +1,295 @@
+package com.companyname.shareride.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.companyname.shareride.database.PlaceDAO;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline place search over a file written by GazetteerBuilder.
+ * The file is memory-mapped and searched in place with a binary search over its sorted keys,
+ * so only the pages a lookup touches are read and nothing is copied onto the heap.
+ * Ships as assets/gazetteer.bin; without it, buildFromPlaces writes one from the places saved
+ * in the database, and until then getInstance returns null and search falls back to the
+ * database and the Geocoder.
+ */
+public class Gazetteer {
+
+    private static final String TAG = "Gazetteer";
+    private static final String FILE_NAME = "gazetteer.bin";
+    private static final String BUILT_FILE_NAME = "gazetteer-places.bin";
+    private static final int MAX_BUILT_PLACES = 20_000;
+    private static final long REBUILD_INTERVAL_MS = TimeUnit.DAYS.toMillis(1);
+
+    private static Gazetteer instance;
+    private static boolean loaded = false;
+    private static boolean shipped = false;
+
+    public static class Place {
+        public final String name;
+        public final double latitude;
+        public final double longitude;
+        public final int popularity;
+
+        Place(String name, double latitude, double longitude, int popularity) {
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.popularity = popularity;
+        }
+    }
+
+    private final MappedByteBuffer buffer;
+    private final int recordCount;
+    private final int keyCount;
+    private final int recordsOffset;
+    private final int keysOffset;
+    private final int stringsOffset;
+
+    private Gazetteer(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < GazetteerBuilder.HEADER_SIZE
+                || buffer.getInt(0) != GazetteerBuilder.MAGIC
+                || buffer.getInt(4) != GazetteerBuilder.VERSION) {
+            throw new IOException("Not a gazetteer file");
+        }
+
+        recordCount = buffer.getInt(8);
+        keyCount = buffer.getInt(12);
+        recordsOffset = GazetteerBuilder.HEADER_SIZE;
+        keysOffset = recordsOffset + recordCount * GazetteerBuilder.RECORD_SIZE;
+        stringsOffset = keysOffset + keyCount * GazetteerBuilder.KEY_SIZE;
+        if (stringsOffset > buffer.capacity()) {
+            throw new IOException("Truncated gazetteer file");
+        }
+    }
+
+    /**
+     * The shipped gazetteer, else the last one built from saved places, or null if there is neither.
+     * The first call copies the asset to internal storage (compressed assets cannot be mapped),
+     * so call it off the main thread.
+     */
+    public static synchronized Gazetteer getInstance(Context context) {
+        if (!loaded) {
+            loaded = true;
+            Context appContext = context.getApplicationContext();
+            try {
+                instance = open(installAsset(appContext));
+                shipped = true;
+                Log.d(TAG, "Loaded " + instance.size() + " places");
+            } catch (FileNotFoundException e) {
+                Log.d(TAG, "No gazetteer shipped");
+                instance = openBuilt(appContext);
+            } catch (IOException e) {
+                Log.e(TAG, "Error loading gazetteer: " + e.getMessage(), e);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Writes a gazetteer of the most used places in the database and switches to it, for builds
+     * that ship no asset. Does nothing while the last one is less than a day old.
+     * Reads the database and writes a file, so call it on a background thread.
+     */
+    public static void buildFromPlaces(Context context) {
+        Context appContext = context.getApplicationContext();
+        getInstance(appContext);
+        synchronized (Gazetteer.class) {
+            if (shipped) return;
+        }
+
+        File file = new File(appContext.getFilesDir(), BUILT_FILE_NAME);
+        if (file.exists() && System.currentTimeMillis() - file.lastModified() < REBUILD_INTERVAL_MS) {
+            return;
+        }
+
+        try {
+            GazetteerBuilder builder = new GazetteerBuilder();
+            for (PlaceDAO.Place place : new PlaceDAO(appContext).getMostUsedPlaces(MAX_BUILT_PLACES)) {
+                builder.add(place.address, place.latitude, place.longitude, place.useCount);
+            }
+            if (builder.size() == 0) {
+                return;
+            }
+
+            // Searches keep the old mapping until they switch, so replace the file in one rename
+            File temp = new File(appContext.getFilesDir(), BUILT_FILE_NAME + ".tmp");
+            builder.write(temp);
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not install " + BUILT_FILE_NAME);
+            }
+
+            Gazetteer built = open(file);
+            synchronized (Gazetteer.class) {
+                instance = built;
+            }
+            Log.d(TAG, "Built " + built.size() + " places from the database");
+        } catch (IOException e) {
+            Log.e(TAG, "Error building gazetteer: " + e.getMessage(), e);
+        }
+    }
+
+    private static Gazetteer openBuilt(Context context) {
+        File file = new File(context.getFilesDir(), BUILT_FILE_NAME);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            Gazetteer built = open(file);
+            Log.d(TAG, "Loaded " + built.size() + " places built from the database");
+            return built;
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading built gazetteer: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    public static Gazetteer open(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            return new Gazetteer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() {
+        return recordCount;
+    }
+
+    /**
+     * Places with a word starting with the query, most popular first.
+     * Several query words must appear in order, e.g. "mg ro" finds "MG Road".
+     */
+    public List<Place> search(String query, int limit) {
+        List<Place> results = new ArrayList<>();
+        byte[] prefix = GazetteerBuilder.normalize(query).getBytes(StandardCharsets.UTF_8);
+        if (prefix.length == 0 || limit <= 0) {
+            return results;
+        }
+
+        // Matching keys are contiguous: from the first key not ordered before the prefix
+        // to the first key ordered after it
+        int first = firstKey(prefix, 0);
+        int end = firstKey(prefix, 1);
+
+        // Keep the most popular records over the whole range. A record matched through two of its
+        // words has the same popularity both times, so it cannot get back in once it has dropped out
+        List<Integer> best = new ArrayList<>(limit + 1);
+        for (int key = first; key < end; key++) {
+            int record = buffer.getInt(keysOffset + key * GazetteerBuilder.KEY_SIZE);
+            int popularity = popularity(record);
+            if (best.size() == limit && popularity <= popularity(best.get(limit - 1))) continue;
+            if (best.contains(record)) continue;
+
+            int position = best.size();
+            while (position > 0 && popularity(best.get(position - 1)) < popularity) {
+                position--;
+            }
+            if (position < limit) {
+                best.add(position, record);
+                if (best.size() > limit) best.remove(limit);
+            }
+        }
+
+        for (int record : best) {
+            results.add(readPlace(record));
+        }
+        return results;
+    }
+
+    // First key whose comparePrefix is at least the given value (0: first match, 1: end of matches)
+    private int firstKey(byte[] prefix, int comparison) {
+        int low = 0;
+        int high = keyCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparePrefix(mid, prefix) < comparison) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Negative if the key sorts before the prefix, 0 if it starts with it, positive otherwise
+    private int comparePrefix(int key, byte[] prefix) {
+        int keyBase = keysOffset + key * GazetteerBuilder.KEY_SIZE;
+        int record = buffer.getInt(keyBase);
+        int start = buffer.getInt(keyBase + 4);
+
+        int recordBase = recordsOffset + record * GazetteerBuilder.RECORD_SIZE;
+        int offset = stringsOffset + buffer.getInt(recordBase + 20) + start;
+        int length = buffer.getInt(recordBase + 24) - start;
+
+        for (int i = 0; i < prefix.length; i++) {
+            if (i >= length) return -1;
+            int diff = (buffer.get(offset + i) & 0xff) - (prefix[i] & 0xff);
+            if (diff != 0) return diff;
+        }
+        return 0;
+    }
+
+    private int popularity(int record) {
+        return buffer.getInt(recordsOffset + record * GazetteerBuilder.RECORD_SIZE + 8);
+    }
+
+    private Place readPlace(int record) {
+        int base = recordsOffset + record * GazetteerBuilder.RECORD_SIZE;
+        int nameOffset = stringsOffset + buffer.getInt(base + 12);
+        byte[] name = new byte[buffer.getInt(base + 16)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = buffer.get(nameOffset + i);
+        }
+
+        return new Place(new String(name, StandardCharsets.UTF_8),
+                buffer.getInt(base) / 1e6,
+                buffer.getInt(base + 4) / 1e6,
+                buffer.getInt(base + 8));
+    }
+
+    // Copy the asset to internal storage once per app install or update
+    private static File installAsset(Context context) throws IOException {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+
+        long installedAt = 0;
+        try {
+            installedAt = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        if (file.exists() && file.lastModified() >= installedAt) {
+            return file;
+        }
+
+        File temp = new File(context.getFilesDir(), FILE_NAME + ".tmp");
+        try (InputStream in = context.getAssets().open(FILE_NAME);
+             OutputStream out = new FileOutputStream(temp)) {
+            byte[] chunk = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not install " + FILE_NAME);
+        }
+        return file;
+    }
+}
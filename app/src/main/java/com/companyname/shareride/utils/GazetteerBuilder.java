@@ -0,0 +1,132 @@
+package com.companyname.shareride.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the binary place file read by Gazetteer. Plain Java, so it also runs on a desktop JVM;
+ * GazetteerBuilderTool in the test sources builds the file from a list of places.
+ *
+ * File layout, all integers big-endian:
+ *   header   magic, version, record count, key count
+ *   records  latitude and longitude in micro-degrees, popularity,
+ *            name offset and length, normalized name offset and length
+ *   keys     record index and start of a word within the normalized name,
+ *            sorted by the bytes from that word to the end of the name
+ *   strings  UTF-8 names and normalized names, offsets are relative to here
+ * Keying every word suffix lets "road" find "MG Road, Bengaluru" with one binary search.
+ */
+public class GazetteerBuilder {
+
+    static final int MAGIC = 0x47415A31; // "GAZ1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 28;
+    static final int KEY_SIZE = 8;
+
+    private static class Place {
+        final byte[] name;
+        final byte[] normalizedName;
+        final int latitudeE6;
+        final int longitudeE6;
+        final int popularity;
+
+        Place(String name, double latitude, double longitude, int popularity) {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.normalizedName = normalize(name).getBytes(StandardCharsets.UTF_8);
+            this.latitudeE6 = (int) Math.round(latitude * 1e6);
+            this.longitudeE6 = (int) Math.round(longitude * 1e6);
+            this.popularity = popularity;
+        }
+    }
+
+    private final List<Place> places = new ArrayList<>();
+
+    public void add(String name, double latitude, double longitude, int popularity) {
+        if (name == null || normalize(name).isEmpty()) {
+            return;
+        }
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            return;
+        }
+        places.add(new Place(name.trim(), latitude, longitude, popularity));
+    }
+
+    public int size() {
+        return places.size();
+    }
+
+    public void write(File file) throws IOException {
+        // One key per word start: {record, start}
+        List<int[]> keys = new ArrayList<>();
+        for (int i = 0; i < places.size(); i++) {
+            byte[] normalized = places.get(i).normalizedName;
+            for (int start = 0; start < normalized.length; start++) {
+                if (start == 0 || normalized[start - 1] == ' ') {
+                    keys.add(new int[]{i, start});
+                }
+            }
+        }
+        Collections.sort(keys, (a, b) -> compareSuffixes(
+                places.get(a[0]).normalizedName, a[1], places.get(b[0]).normalizedName, b[1]));
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(places.size());
+            out.writeInt(keys.size());
+
+            int stringOffset = 0;
+            for (Place place : places) {
+                out.writeInt(place.latitudeE6);
+                out.writeInt(place.longitudeE6);
+                out.writeInt(place.popularity);
+                out.writeInt(stringOffset);
+                out.writeInt(place.name.length);
+                stringOffset += place.name.length;
+                out.writeInt(stringOffset);
+                out.writeInt(place.normalizedName.length);
+                stringOffset += place.normalizedName.length;
+            }
+
+            for (int[] key : keys) {
+                out.writeInt(key[0]);
+                out.writeInt(key[1]);
+            }
+
+            for (Place place : places) {
+                out.write(place.name);
+                out.write(place.normalizedName);
+            }
+        }
+    }
+
+    /**
+     * Lowercase, with every run of punctuation and spaces collapsed to one space.
+     * Gazetteer normalizes queries the same way, so both sides compare equal bytes.
+     */
+    public static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    // Unsigned byte order, the same order Gazetteer's binary search assumes
+    private static int compareSuffixes(byte[] a, int aStart, byte[] b, int bStart) {
+        int aLength = a.length - aStart;
+        int bLength = b.length - bStart;
+        int length = Math.min(aLength, bLength);
+        for (int i = 0; i < length; i++) {
+            int diff = (a[aStart + i] & 0xff) - (b[bStart + i] & 0xff);
+            if (diff != 0) return diff;
+        }
+        return aLength - bLength;
+    }
+}
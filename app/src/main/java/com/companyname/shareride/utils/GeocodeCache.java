@@ -0,0 +1,115 @@
+package com.companyname.shareride.utils;
+
+import android.content.Context;
+import com.companyname.shareride.database.GeocodeCacheDAO;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Process-wide caches in front of the platform Geocoder, shared by LocationUtils and
+ * LocationSearchHelper so the same lookup is only sent to the geocoder once.
+ * Only successful lookups are cached; failures are retried on the next call.
+ * Behind these in-memory caches, getDiskCache keeps raw geocoder results across restarts.
+ */
+public final class GeocodeCache {
+
+    private static final long HOUR_MS = 60 * 60 * 1000;
+
+    // Addresses and coordinates rarely change, search suggestions are refreshed more often
+    private static final long ADDRESS_TTL_MS = 24 * HOUR_MS;
+    private static final long COORDINATES_TTL_MS = 24 * HOUR_MS;
+    private static final long SUGGESTIONS_TTL_MS = HOUR_MS;
+
+    private static final int MAX_ADDRESSES = 200;
+    private static final int MAX_COORDINATES = 200;
+    private static final int MAX_SUGGESTION_QUERIES = 50;
+
+    // Rough heap budgets in bytes, see the weighers below
+    private static final long MAX_ADDRESS_BYTES = 64 * 1024;
+    private static final long MAX_SUGGESTION_BYTES = 128 * 1024;
+
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    // Reverse geocoding: grid cell "lat,lng" (same grid as the disk cache) -> address
+    private static final ExpiringLruCache<String, String> addresses = new ExpiringLruCache<>(
+            MAX_ADDRESSES, MAX_ADDRESS_BYTES, ADDRESS_TTL_MS,
+            (key, value) -> ENTRY_OVERHEAD_BYTES + 2 * (key.length() + value.length()));
+
+    // Forward geocoding: normalized address -> {lat, lng}
+    private static final ExpiringLruCache<String, double[]> coordinates = new ExpiringLruCache<>(
+            MAX_COORDINATES, COORDINATES_TTL_MS);
+
+    // Autocomplete: normalized query -> suggestions
+    private static final ExpiringLruCache<String, List<LocationSearchHelper.LocationSuggestion>> suggestions =
+            new ExpiringLruCache<>(MAX_SUGGESTION_QUERIES, MAX_SUGGESTION_BYTES, SUGGESTIONS_TTL_MS,
+                    GeocodeCache::weighSuggestions);
+
+    private static GeocodeCacheDAO diskCache;
+
+    private GeocodeCache() {
+    }
+
+    // Persistent tier, consulted on a memory miss before calling the Geocoder
+    public static synchronized GeocodeCacheDAO getDiskCache(Context context) {
+        if (diskCache == null) {
+            diskCache = new GeocodeCacheDAO(context.getApplicationContext());
+        }
+        return diskCache;
+    }
+
+    public static String getAddress(double latitude, double longitude) {
+        return addresses.get(coordinateKey(latitude, longitude));
+    }
+
+    public static void putAddress(double latitude, double longitude, String address) {
+        addresses.put(coordinateKey(latitude, longitude), address);
+    }
+
+    // Returns a copy, so callers cannot change the cached coordinates
+    public static double[] getCoordinates(String address) {
+        double[] cached = coordinates.get(normalize(address));
+        return cached != null ? cached.clone() : null;
+    }
+
+    public static void putCoordinates(String address, double latitude, double longitude) {
+        coordinates.put(normalize(address), new double[]{latitude, longitude});
+    }
+
+    public static List<LocationSearchHelper.LocationSuggestion> getSuggestions(String query) {
+        return suggestions.get(normalize(query));
+    }
+
+    public static void putSuggestions(String query, List<LocationSearchHelper.LocationSuggestion> results) {
+        suggestions.put(normalize(query), Collections.unmodifiableList(results));
+    }
+
+    public static void clear() {
+        addresses.clear();
+        coordinates.clear();
+        suggestions.clear();
+    }
+
+    // Hit and miss counters of each cache, for logging
+    public static String getStats() {
+        return "addresses=" + addresses + ", coordinates=" + coordinates + ", suggestions=" + suggestions;
+    }
+
+    private static String coordinateKey(double latitude, double longitude) {
+        return GeocodeCacheDAO.quantize(latitude) + "," + GeocodeCacheDAO.quantize(longitude);
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static int weighSuggestions(String query, List<LocationSearchHelper.LocationSuggestion> results) {
+        int bytes = ENTRY_OVERHEAD_BYTES + 2 * query.length();
+        for (LocationSearchHelper.LocationSuggestion suggestion : results) {
+            bytes += ENTRY_OVERHEAD_BYTES;
+            if (suggestion.displayName != null) bytes += 2 * suggestion.displayName.length();
+            if (suggestion.fullAddress != null) bytes += 2 * suggestion.fullAddress.length();
+        }
+        return bytes;
+    }
+}
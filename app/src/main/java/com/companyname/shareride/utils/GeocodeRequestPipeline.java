@@ -0,0 +1,189 @@
+package com.companyname.shareride.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs slow lookups (database plus Geocoder) for input fields on the TaskScheduler geocoding pool.
+ * <ul>
+ * <li>Each field submits through its own Channel, which keeps only its latest request:
+ * submitting again cancels the previous one, so a slow older lookup can never overwrite
+ * newer results.</li>
+ * <li>Identical requests that are in flight at the same time, e.g. the same query typed into
+ * the From and To fields, share one execution.</li>
+ * <li>An execution is cancelled once nobody is waiting for it, and results are checked
+ * again on the main thread so cancelled work never reaches a listener.</li>
+ * </ul>
+ */
+public class GeocodeRequestPipeline<T> {
+
+    private static final String TAG = "GeocodeRequestPipeline";
+
+    // Checked by requests between their steps; a cancelled request may stop early
+    public static class CancellationToken {
+        private volatile boolean cancelled = false;
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    public interface Request<T> {
+        // Runs on a pool thread; the result is ignored once the token is cancelled
+        T execute(CancellationToken token) throws Exception;
+    }
+
+    // Called on the main thread
+    public interface Listener<T> {
+        void onResult(T result);
+        void onError(Exception e);
+    }
+
+    // One execution of a request, shared by everyone who asked for the same key meanwhile
+    private class InFlight {
+        final String key;
+        final CancellationToken token = new CancellationToken();
+        final List<Subscription> subscribers = new ArrayList<>(2);
+        TaskScheduler.Task task;
+
+        InFlight(String key) {
+            this.key = key;
+        }
+    }
+
+    private class Subscription {
+        final InFlight flight;
+        final Listener<T> listener;
+        volatile boolean cancelled = false;
+
+        Subscription(InFlight flight, Listener<T> listener) {
+            this.flight = flight;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * Latest-wins request slot for one input field. Use from the main thread.
+     */
+    public class Channel {
+        private Subscription current;
+
+        public void submit(String key, Request<T> request, Listener<T> listener) {
+            cancel();
+            current = subscribe(key, request, listener);
+        }
+
+        // Drop the pending request, if any; its listener will not be called
+        public void cancel() {
+            if (current != null) {
+                unsubscribe(current);
+                current = null;
+            }
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Guarded by this
+    private final Map<String, InFlight> inFlight = new HashMap<>();
+
+    public Channel newChannel() {
+        return new Channel();
+    }
+
+    private Subscription subscribe(String key, Request<T> request, Listener<T> listener) {
+        InFlight flight;
+        Subscription subscription;
+        boolean start = false;
+
+        synchronized (this) {
+            flight = inFlight.get(key);
+            if (flight == null) {
+                flight = new InFlight(key);
+                inFlight.put(key, flight);
+                start = true;
+            }
+            subscription = new Subscription(flight, listener);
+            flight.subscribers.add(subscription);
+        }
+
+        if (start) {
+            InFlight newFlight = flight;
+            TaskScheduler.Task task = TaskScheduler.getInstance().execute(
+                    TaskScheduler.Pool.GEOCODING, TaskScheduler.Priority.USER, () -> run(newFlight, request));
+            synchronized (this) {
+                newFlight.task = task;
+                if (newFlight.token.isCancelled()) task.cancel();
+            }
+        }
+        return subscription;
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        subscription.cancelled = true;
+
+        synchronized (this) {
+            InFlight flight = subscription.flight;
+            flight.subscribers.remove(subscription);
+            if (flight.subscribers.isEmpty()) {
+                flight.token.cancel();
+                // Still queued: drop it so newer searches do not wait behind it
+                if (flight.task != null) flight.task.cancel();
+                if (inFlight.get(flight.key) == flight) {
+                    inFlight.remove(flight.key);
+                }
+            }
+        }
+    }
+
+    private void run(InFlight flight, Request<T> request) {
+        T result = null;
+        Exception error = null;
+
+        // Requests cancelled while queued never start
+        if (!flight.token.isCancelled()) {
+            try {
+                result = request.execute(flight.token);
+            } catch (Exception e) {
+                Log.e(TAG, "Request failed: " + flight.key, e);
+                error = e;
+            }
+        }
+
+        List<Subscription> subscribers;
+        synchronized (this) {
+            if (inFlight.get(flight.key) == flight) {
+                inFlight.remove(flight.key);
+            }
+            subscribers = new ArrayList<>(flight.subscribers);
+        }
+
+        if (flight.token.isCancelled() || subscribers.isEmpty()) {
+            return;
+        }
+
+        T finalResult = result;
+        Exception finalError = error;
+        mainHandler.post(() -> {
+            for (Subscription subscription : subscribers) {
+                // A newer submit on the same channel may have happened since the work finished
+                if (subscription.cancelled) continue;
+
+                if (finalError != null) {
+                    subscription.listener.onError(finalError);
+                } else {
+                    subscription.listener.onResult(finalResult);
+                }
+            }
+        });
+    }
+}
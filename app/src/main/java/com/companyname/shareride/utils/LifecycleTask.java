@@ -0,0 +1,251 @@
+package com.companyname.shareride.utils;
+
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Background work whose result goes to a screen, usually a fragment's view lifecycle owner.
+ * <ul>
+ * <li>The callback runs on the main thread, and only while the owner is not destroyed.</li>
+ * <li>execute() cancels the work once no owner is waiting for it: a queued task is dropped, and
+ * the CancellationSignal passed to the work aborts database queries that take it. A Geocoder
+ * call cannot be interrupted; work should check the signal around it.</li>
+ * <li>Work started with a key is shared. A view recreated within a short grace period (tab switch
+ * and back) and asking for the same key joins the running work, or gets the result it finished
+ * with while no view was there, instead of starting again.</li>
+ * </ul>
+ * Call from the main thread.
+ */
+public final class LifecycleTask {
+
+    private static final String TAG = "LifecycleTask";
+
+    // How long abandoned work keeps running, and keeps its result, for a recreated view
+    private static final long ABANDON_GRACE_MS = 2000;
+    private static final long ORPHAN_RESULT_TTL_MS = 10000;
+
+    public interface Work<T> {
+        // Runs on a TaskScheduler pool; throw OperationCanceledException or return early once cancelled
+        T run(CancellationSignal signal) throws Exception;
+    }
+
+    public interface Callback<T> {
+        void onResult(T result);
+        void onError(Exception e);
+    }
+
+    private static class Job<T> {
+        final String key;
+        final boolean cancellable;
+        final CancellationSignal signal = new CancellationSignal();
+        final List<Binding<T>> bindings = new ArrayList<>(1);
+        TaskScheduler.Task task;
+        Runnable pendingCancel;
+
+        // Set when the work finished while no owner was bound
+        boolean done = false;
+        T result;
+        Exception error;
+
+        Job(String key, boolean cancellable) {
+            this.key = key;
+            this.cancellable = cancellable;
+        }
+    }
+
+    private static class Binding<T> {
+        final Job<T> job;
+        final LifecycleOwner owner;
+        final Callback<T> callback;
+        LifecycleEventObserver observer;
+
+        Binding(Job<T> job, LifecycleOwner owner, Callback<T> callback) {
+            this.job = job;
+            this.owner = owner;
+            this.callback = callback;
+        }
+    }
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Keyed work that is running or holds an unclaimed result; main thread only
+    private static final Map<String, Job<?>> jobs = new HashMap<>();
+
+    private LifecycleTask() {
+    }
+
+    /**
+     * Run work for the owner, cancelled once no owner waits for it.
+     * @param key Identifies equivalent work to share, or null to always start new work
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void execute(LifecycleOwner owner, String key,
+                                   TaskScheduler.Pool pool, TaskScheduler.Priority priority,
+                                   Work<T> work, Callback<T> callback) {
+        if (isDestroyed(owner)) {
+            return;
+        }
+
+        if (key != null) {
+            Job<T> existing = (Job<T>) jobs.get(key);
+            if (existing != null && !existing.done) {
+                if (existing.pendingCancel != null) {
+                    mainHandler.removeCallbacks(existing.pendingCancel);
+                    existing.pendingCancel = null;
+                }
+                bind(existing, owner, callback);
+                Log.d(TAG, "Joined running work: " + key);
+                return;
+            }
+            if (existing != null) {
+                // Finished while no view was waiting; hand the result over instead of starting again
+                jobs.remove(key);
+                Binding<T> binding = bind(existing, owner, callback);
+                mainHandler.post(() -> deliver(binding, existing.result, existing.error));
+                Log.d(TAG, "Reused finished work: " + key);
+                return;
+            }
+        }
+
+        start(new Job<>(key, true), owner, pool, priority, work, callback);
+    }
+
+    /**
+     * Run work that must finish even if the owner goes away, such as a database write.
+     * Only the callback is tied to the owner.
+     */
+    public static <T> void executeToCompletion(LifecycleOwner owner,
+                                               TaskScheduler.Pool pool, TaskScheduler.Priority priority,
+                                               Work<T> work, Callback<T> callback) {
+        start(new Job<>(null, false), owner, pool, priority, work, callback);
+    }
+
+    private static <T> void start(Job<T> job, LifecycleOwner owner,
+                                  TaskScheduler.Pool pool, TaskScheduler.Priority priority,
+                                  Work<T> work, Callback<T> callback) {
+        if (job.key != null) {
+            jobs.put(job.key, job);
+        }
+        if (!isDestroyed(owner)) {
+            bind(job, owner, callback);
+        }
+
+        job.task = TaskScheduler.getInstance().execute(pool, priority, () -> {
+            if (job.signal.isCanceled()) return;
+
+            T result = null;
+            Exception error = null;
+            try {
+                result = work.run(job.signal);
+            } catch (OperationCanceledException e) {
+                return;
+            } catch (Exception e) {
+                Log.e(TAG, "Task failed: " + e.getMessage(), e);
+                error = e;
+            }
+
+            T finalResult = result;
+            Exception finalError = error;
+            mainHandler.post(() -> finish(job, finalResult, finalError));
+        });
+    }
+
+    private static <T> void finish(Job<T> job, T result, Exception error) {
+        if (job.signal.isCanceled()) {
+            return;
+        }
+
+        if (job.bindings.isEmpty()) {
+            if (job.key != null && jobs.get(job.key) == job) {
+                // Keep the result a little while for a view that is being recreated
+                job.done = true;
+                job.result = result;
+                job.error = error;
+                mainHandler.postDelayed(() -> {
+                    if (jobs.get(job.key) == job) jobs.remove(job.key);
+                }, ORPHAN_RESULT_TTL_MS);
+            }
+            return;
+        }
+
+        if (job.key != null && jobs.get(job.key) == job) {
+            jobs.remove(job.key);
+        }
+        for (Binding<T> binding : new ArrayList<>(job.bindings)) {
+            deliver(binding, result, error);
+        }
+    }
+
+    private static <T> void deliver(Binding<T> binding, T result, Exception error) {
+        if (!binding.job.bindings.contains(binding)) {
+            return;
+        }
+        unbind(binding);
+
+        if (error != null) {
+            binding.callback.onError(error);
+        } else {
+            binding.callback.onResult(result);
+        }
+    }
+
+    private static <T> Binding<T> bind(Job<T> job, LifecycleOwner owner, Callback<T> callback) {
+        Binding<T> binding = new Binding<>(job, owner, callback);
+        binding.observer = (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                onOwnerDestroyed(binding);
+            }
+        };
+        job.bindings.add(binding);
+        owner.getLifecycle().addObserver(binding.observer);
+        return binding;
+    }
+
+    private static <T> void unbind(Binding<T> binding) {
+        binding.job.bindings.remove(binding);
+        binding.owner.getLifecycle().removeObserver(binding.observer);
+    }
+
+    private static <T> void onOwnerDestroyed(Binding<T> binding) {
+        Job<T> job = binding.job;
+        unbind(binding);
+        if (!job.bindings.isEmpty() || job.done || !job.cancellable) {
+            return;
+        }
+
+        if (job.key == null) {
+            cancel(job);
+        } else {
+            // Give a recreated view the chance to join before throwing the work away
+            job.pendingCancel = () -> {
+                job.pendingCancel = null;
+                if (job.bindings.isEmpty() && !job.done) cancel(job);
+            };
+            mainHandler.postDelayed(job.pendingCancel, ABANDON_GRACE_MS);
+        }
+    }
+
+    private static void cancel(Job<?> job) {
+        job.signal.cancel();
+        if (job.task != null) {
+            job.task.cancel();
+        }
+        if (job.key != null && jobs.get(job.key) == job) {
+            jobs.remove(job.key);
+        }
+    }
+
+    private static boolean isDestroyed(LifecycleOwner owner) {
+        return owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED;
+    }
+}
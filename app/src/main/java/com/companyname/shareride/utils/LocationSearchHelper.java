@@ -10,24 +10,25 @@ import android.text.TextWatcher;
 import android.util.Log;
 import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
-import com.companyname.shareride.Ride;
-import com.companyname.shareride.database.RideDAO;
+import com.companyname.shareride.database.PlaceDAO;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 
 public class LocationSearchHelper {
 
     private static final String TAG = "LocationSearchHelper";
     private static final int MAX_SUGGESTIONS = 5;
     private static final int SEARCH_DELAY_MS = 500; // Delay to reduce API calls
+    private static final int PRELOADED_PLACES = 500; // Database places indexed for autocomplete at startup
 
-    // Cache for recent searches
-    private static Map<String, List<LocationSuggestion>> searchCache = new HashMap<>();
-    private static final int MAX_CACHE_SIZE = 50;
+    // Shared by every autocomplete field, so the same query typed in From and To runs once
+    private static final GeocodeRequestPipeline<List<LocationSuggestion>> searchPipeline =
+            new GeocodeRequestPipeline<>();
+
+    private static PlaceDAO placeDAO;
+    private static boolean knownPlacesLoaded = false;
 
     public static class LocationSuggestion {
         public String displayName;
@@ -79,6 +80,10 @@ public class LocationSearchHelper {
 
         autoCompleteTextView.setAdapter(adapter);
         autoCompleteTextView.setThreshold(2); // Start searching after 2 characters
+        loadKnownPlaces(context);
+
+        // Only this field's latest search may update its suggestions
+        GeocodeRequestPipeline<List<LocationSuggestion>>.Channel searchChannel = searchPipeline.newChannel();
 
         // Handler for delayed search to reduce API calls
         Handler searchHandler = new Handler(Looper.getMainLooper());
@@ -87,7 +92,7 @@ public class LocationSearchHelper {
             public void run() {
                 String query = autoCompleteTextView.getText().toString().trim();
                 if (query.length() >= 2) {
-                    searchLocations(query, context, suggestions, adapter);
+                    searchLocations(query, context, searchChannel, suggestions, adapter);
                 }
             }
         };
@@ -105,6 +110,7 @@ public class LocationSearchHelper {
                     // Delay search to reduce API calls
                     searchHandler.postDelayed(searchRunnable, SEARCH_DELAY_MS);
                 } else {
+                    searchChannel.cancel();
                     suggestions.clear();
                     adapter.notifyDataSetChanged();
 
@@ -154,118 +160,129 @@ public class LocationSearchHelper {
 
     // Enhanced search with database integration and caching
     private static void searchLocations(String query, Context context,
+                                        GeocodeRequestPipeline<List<LocationSuggestion>>.Channel searchChannel,
                                         List<LocationSuggestion> suggestions,
                                         ArrayAdapter<LocationSuggestion> adapter) {
 
-        // Check cache first
-        String cacheKey = query.toLowerCase().trim();
-        if (searchCache.containsKey(cacheKey)) {
+        // Check memory first: this query's results, or the narrowed results of a shorter prefix
+        AutocompleteEngine engine = AutocompleteEngine.getInstance();
+        List<LocationSuggestion> cachedResults = engine.suggest(query, MAX_SUGGESTIONS);
+        if (cachedResults != null) {
+            // An older search still running must not replace these
+            searchChannel.cancel();
             suggestions.clear();
-            suggestions.addAll(searchCache.get(cacheKey));
+            suggestions.addAll(cachedResults);
             new Handler(Looper.getMainLooper()).post(() -> adapter.notifyDataSetChanged());
             return;
         }
 
-        new Thread(() -> {
-            List<LocationSuggestion> combinedResults = new ArrayList<>();
-
-            try {
-                // 1. Search in database for previously used locations
-                List<LocationSuggestion> databaseResults = searchInDatabase(query, context);
-                combinedResults.addAll(databaseResults);
+        // Known place names straight away; the full search below replaces them
+        List<LocationSuggestion> knownPlaces = engine.suggestKnownPlaces(query, MAX_SUGGESTIONS);
+        if (!knownPlaces.isEmpty()) {
+            suggestions.clear();
+            suggestions.addAll(knownPlaces);
+            adapter.notifyDataSetChanged();
+        }
 
-                // 2. Search using Geocoder
-                Geocoder geocoder = new Geocoder(context, Locale.getDefault());
-                List<Address> addresses = geocoder.getFromLocationName(query, MAX_SUGGESTIONS);
-
-                if (addresses != null) {
-                    for (Address address : addresses) {
-                        String displayName = buildDisplayName(address);
-                        String fullAddress = buildFullAddress(address);
-
-                        // Avoid duplicates from database results
-                        if (!isDuplicate(combinedResults, address.getLatitude(), address.getLongitude())) {
-                            combinedResults.add(new LocationSuggestion(
-                                    displayName,
-                                    fullAddress,
-                                    address.getLatitude(),
-                                    address.getLongitude(),
-                                    false
-                            ));
-                        }
+        // Latest wins: submitting cancels this field's previous search
+        Context appContext = context.getApplicationContext();
+        String key = query.toLowerCase(Locale.ROOT);
+        searchChannel.submit(key, token -> runSearch(query, appContext, token),
+                new GeocodeRequestPipeline.Listener<List<LocationSuggestion>>() {
+                    @Override
+                    public void onResult(List<LocationSuggestion> results) {
+                        if (results == null) return;
+                        suggestions.clear();
+                        suggestions.addAll(results);
+                        adapter.notifyDataSetChanged();
                     }
-                }
-
-                // Cache the results
-                if (combinedResults.size() > 0) {
-                    cacheSearchResults(cacheKey, combinedResults);
-                }
 
-                // Update UI on main thread
-                new Handler(Looper.getMainLooper()).post(() -> {
-                    suggestions.clear();
-                    suggestions.addAll(combinedResults);
-                    adapter.notifyDataSetChanged();
+                    @Override
+                    public void onError(Exception e) {
+                        Log.e(TAG, "Location search error: " + e.getMessage(), e);
+                    }
                 });
+    }
 
-            } catch (IOException e) {
-                Log.e(TAG, "Geocoding error: " + e.getMessage(), e);
+    // Database and Geocoder search on a pipeline thread; returns null once cancelled
+    private static List<LocationSuggestion> runSearch(String query, Context context,
+                                                      GeocodeRequestPipeline.CancellationToken token) {
+        List<LocationSuggestion> combinedResults = new ArrayList<>();
 
-                // Fall back to database results only
-                new Handler(Looper.getMainLooper()).post(() -> {
-                    List<LocationSuggestion> databaseResults = searchInDatabase(query, context);
-                    suggestions.clear();
-                    suggestions.addAll(databaseResults);
-                    adapter.notifyDataSetChanged();
-                });
+        // 1. Search in database for previously used locations
+        List<LocationSuggestion> databaseResults = searchInDatabase(query, context);
+        combinedResults.addAll(databaseResults);
+
+        // 2. Search the offline gazetteer, which works without a network
+        for (LocationSuggestion offline : searchGazetteer(query, context)) {
+            if (!isDuplicate(combinedResults, offline.latitude, offline.longitude)) {
+                combinedResults.add(offline);
             }
-        }).start();
-    }
+        }
 
-    // Search in database for previously used locations
-    private static List<LocationSuggestion> searchInDatabase(String query, Context context) {
-        List<LocationSuggestion> dbResults = new ArrayList<>();
+        // Skip the Geocoder call when a newer query has taken over
+        if (token.isCancelled()) {
+            return null;
+        }
+
+        AutocompleteEngine engine = AutocompleteEngine.getInstance();
+
+        // Enough local results, no need to wait for the network
+        if (combinedResults.size() >= MAX_SUGGESTIONS) {
+            engine.addResults(query, combinedResults);
+            return combinedResults;
+        }
 
         try {
-            RideDAO rideDAO = new RideDAO(context);
-            List<Ride> rides = rideDAO.getAllActiveRides();
-
-            String queryLower = query.toLowerCase();
-
-            for (Ride ride : rides) {
-                // Search in from addresses
-                if (ride.getFromAddress() != null &&
-                        ride.getFromAddress().toLowerCase().contains(queryLower) &&
-                        ride.hasValidCoordinates()) {
-
-                    if (!isDuplicate(dbResults, ride.getFromLatitude(), ride.getFromLongitude())) {
-                        dbResults.add(new LocationSuggestion(
-                                ride.getFromAddress(),
-                                ride.getFromAddress(),
-                                ride.getFromLatitude(),
-                                ride.getFromLongitude(),
-                                true
-                        ));
-                    }
-                }
+            // 3. Search using Geocoder, unless an earlier run already did
+            List<Address> addresses = readCachedGeocode(query, context);
+            if (addresses == null) {
+                Geocoder geocoder = new Geocoder(context, Locale.getDefault());
+                addresses = geocoder.getFromLocationName(query, MAX_SUGGESTIONS);
+                cacheGeocode(query, addresses, context);
+            }
 
-                // Search in to addresses
-                if (ride.getToAddress() != null &&
-                        ride.getToAddress().toLowerCase().contains(queryLower) &&
-                        ride.hasValidCoordinates()) {
-
-                    if (!isDuplicate(dbResults, ride.getToLatitude(), ride.getToLongitude())) {
-                        dbResults.add(new LocationSuggestion(
-                                ride.getToAddress(),
-                                ride.getToAddress(),
-                                ride.getToLatitude(),
-                                ride.getToLongitude(),
-                                true
+            if (addresses != null) {
+                for (Address address : addresses) {
+                    String displayName = buildDisplayName(address);
+                    String fullAddress = buildFullAddress(address);
+
+                    // Later forward lookups of this address are answered from the cache
+                    GeocodeCache.putCoordinates(fullAddress, address.getLatitude(), address.getLongitude());
+
+                    // Avoid duplicates from database results
+                    if (!isDuplicate(combinedResults, address.getLatitude(), address.getLongitude())) {
+                        combinedResults.add(new LocationSuggestion(
+                                displayName,
+                                fullAddress,
+                                address.getLatitude(),
+                                address.getLongitude(),
+                                false
                         ));
                     }
                 }
             }
 
+            // Cache the results and learn their names, even if nobody waits for them anymore
+            engine.addResults(query, combinedResults);
+            return combinedResults;
+
+        } catch (IOException e) {
+            Log.e(TAG, "Geocoding error: " + e.getMessage(), e);
+
+            // Fall back to the offline results
+            return combinedResults;
+        }
+    }
+
+    // Search in database for previously used locations: one indexed query, most used first
+    private static List<LocationSuggestion> searchInDatabase(String query, Context context) {
+        List<LocationSuggestion> dbResults = new ArrayList<>();
+
+        try {
+            for (PlaceDAO.Place match : getPlaceDAO(context).searchPlaces(query, MAX_SUGGESTIONS)) {
+                dbResults.add(toSuggestion(match));
+            }
         } catch (Exception e) {
             Log.e(TAG, "Database search error: " + e.getMessage(), e);
         }
@@ -273,6 +290,72 @@ public class LocationSearchHelper {
         return dbResults;
     }
 
+    private static List<LocationSuggestion> searchGazetteer(String query, Context context) {
+        List<LocationSuggestion> offlineResults = new ArrayList<>();
+
+        Gazetteer gazetteer = Gazetteer.getInstance(context);
+        if (gazetteer == null) {
+            return offlineResults;
+        }
+
+        for (Gazetteer.Place place : gazetteer.search(query, MAX_SUGGESTIONS)) {
+            offlineResults.add(new LocationSuggestion(place.name, place.name, place.latitude, place.longitude, false));
+        }
+        return offlineResults;
+    }
+
+    // Index the most used database places once per process, so the first keystrokes have suggestions
+    private static synchronized void loadKnownPlaces(Context context) {
+        if (knownPlacesLoaded) {
+            return;
+        }
+        knownPlacesLoaded = true;
+
+        Context appContext = context.getApplicationContext();
+        TaskScheduler.getInstance().execute(TaskScheduler.Pool.DATABASE, TaskScheduler.Priority.BACKGROUND, () -> {
+            try {
+                AutocompleteEngine engine = AutocompleteEngine.getInstance();
+                for (PlaceDAO.Place place : getPlaceDAO(appContext).getMostUsedPlaces(PRELOADED_PLACES)) {
+                    engine.indexPlace(toSuggestion(place), place.useCount);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading known places: " + e.getMessage(), e);
+            }
+        });
+        // Without a shipped gazetteer, offline search covers the saved places
+        TaskScheduler.getInstance().execute(TaskScheduler.Pool.COMPUTE, TaskScheduler.Priority.BACKGROUND,
+                () -> Gazetteer.buildFromPlaces(appContext));
+    }
+
+    private static LocationSuggestion toSuggestion(PlaceDAO.Place place) {
+        return new LocationSuggestion(place.address, place.address, place.latitude, place.longitude, true);
+    }
+
+    // Geocoder results stored by an earlier search, or null
+    private static List<Address> readCachedGeocode(String query, Context context) {
+        try {
+            return GeocodeCache.getDiskCache(context).getForward(query, MAX_SUGGESTIONS);
+        } catch (Exception e) {
+            Log.e(TAG, "Geocode cache read error: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private static void cacheGeocode(String query, List<Address> addresses, Context context) {
+        try {
+            GeocodeCache.getDiskCache(context).putForward(query, MAX_SUGGESTIONS, addresses);
+        } catch (Exception e) {
+            Log.e(TAG, "Geocode cache write error: " + e.getMessage(), e);
+        }
+    }
+
+    private static synchronized PlaceDAO getPlaceDAO(Context context) {
+        if (placeDAO == null) {
+            placeDAO = new PlaceDAO(context.getApplicationContext());
+        }
+        return placeDAO;
+    }
+
     // Check for duplicate locations
     private static boolean isDuplicate(List<LocationSuggestion> suggestions, double lat, double lng) {
         for (LocationSuggestion suggestion : suggestions) {
@@ -283,19 +366,10 @@ public class LocationSearchHelper {
         return false;
     }
 
-    // Cache management
-    private static void cacheSearchResults(String query, List<LocationSuggestion> results) {
-        if (searchCache.size() >= MAX_CACHE_SIZE) {
-            // Remove oldest entries (simple FIFO, could be improved with LRU)
-            String firstKey = searchCache.keySet().iterator().next();
-            searchCache.remove(firstKey);
-        }
-        searchCache.put(query, new ArrayList<>(results));
-    }
-
-    // Clear cache (useful for memory management)
+    // Clear the shared geocode caches and known place names (useful for memory management)
     public static void clearCache() {
-        searchCache.clear();
+        GeocodeCache.clear();
+        AutocompleteEngine.getInstance().clear();
     }
 
     // Extract coordinates from AutoCompleteTextView tag
@@ -4,6 +4,7 @@ import android.content.Context;
 import android.location.Address;
 import android.location.Geocoder;
 import android.location.Location;
+import com.companyname.shareride.database.GeocodeCacheDAO;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.List;
@@ -15,6 +16,11 @@ public class LocationUtils {
     private static final double EARTH_RADIUS_KM = 6371.0;
     private static final double EARTH_RADIUS_MILES = 3959.0;
 
+    // Fixed grid used for indexed proximity lookups (0.1 degree ≈ 11 km cells)
+    public static final double GRID_CELL_SIZE_DEGREES = 0.1;
+    private static final long GRID_ROWS = Math.round(180.0 / GRID_CELL_SIZE_DEGREES);
+    private static final long GRID_COLUMNS = Math.round(360.0 / GRID_CELL_SIZE_DEGREES);
+
     /**
      * Calculate distance between two points using Haversine formula
      * @param lat1 Latitude of first point
@@ -94,46 +100,36 @@ public class LocationUtils {
             return null;
         }
 
-        try {
-            Geocoder geocoder = new Geocoder(context, Locale.getDefault());
-
-            // Check if Geocoder is present on device
-            if (!Geocoder.isPresent()) {
-                return "Geocoder not available";
-            }
-
-            List<Address> addresses = geocoder.getFromLocation(latitude, longitude, 1);
+        String cachedAddress = GeocodeCache.getAddress(latitude, longitude);
+        if (cachedAddress != null) {
+            return cachedAddress;
+        }
 
-            if (addresses != null && !addresses.isEmpty()) {
-                Address address = addresses.get(0);
+        try {
+            GeocodeCacheDAO diskCache = GeocodeCache.getDiskCache(context);
+            Address address = diskCache.getReverse(latitude, longitude);
 
-                // Build a detailed address string
-                StringBuilder addressBuilder = new StringBuilder();
+            if (address == null) {
+                Geocoder geocoder = new Geocoder(context, Locale.getDefault());
 
-                // Add street number and name
-                if (address.getSubThoroughfare() != null) {
-                    addressBuilder.append(address.getSubThoroughfare()).append(" ");
-                }
-                if (address.getThoroughfare() != null) {
-                    addressBuilder.append(address.getThoroughfare()).append(", ");
+                // Check if Geocoder is present on device
+                if (!Geocoder.isPresent()) {
+                    return "Geocoder not available";
                 }
 
-                // Add locality/area
-                if (address.getSubLocality() != null) {
-                    addressBuilder.append(address.getSubLocality()).append(", ");
+                List<Address> addresses = geocoder.getFromLocation(latitude, longitude, 1);
+                if (addresses != null && !addresses.isEmpty()) {
+                    address = addresses.get(0);
+                    diskCache.putReverse(latitude, longitude, address);
                 }
+            }
 
-                // Add city
-                if (address.getLocality() != null) {
-                    addressBuilder.append(address.getLocality());
+            if (address != null) {
+                String result = formatStreetAddress(address);
+                if (result != null) {
+                    GeocodeCache.putAddress(latitude, longitude, result);
                 }
-
-                String result = addressBuilder.toString();
-                // Clean up trailing comma and spaces
-                result = result.replaceAll(",\\s*$", "").trim();
-
-                // If we couldn't build a detailed address, use the first address line
-                return result.isEmpty() ? address.getAddressLine(0) : result;
+                return result;
             }
 
         } catch (IOException e) {
@@ -151,6 +147,42 @@ public class LocationUtils {
         return "Address not found";
     }
 
+    /**
+     * Street-level address string ("12 MG Road, Indiranagar, Bengaluru") for a geocoder result
+     *
+     * @param address The geocoder result
+     * @return Address string, or the first address line when there are no street fields
+     */
+    public static String formatStreetAddress(Address address) {
+        // Build a detailed address string
+        StringBuilder addressBuilder = new StringBuilder();
+
+        // Add street number and name
+        if (address.getSubThoroughfare() != null) {
+            addressBuilder.append(address.getSubThoroughfare()).append(" ");
+        }
+        if (address.getThoroughfare() != null) {
+            addressBuilder.append(address.getThoroughfare()).append(", ");
+        }
+
+        // Add locality/area
+        if (address.getSubLocality() != null) {
+            addressBuilder.append(address.getSubLocality()).append(", ");
+        }
+
+        // Add city
+        if (address.getLocality() != null) {
+            addressBuilder.append(address.getLocality());
+        }
+
+        String result = addressBuilder.toString();
+        // Clean up trailing comma and spaces
+        result = result.replaceAll(",\\s*$", "").trim();
+
+        // If we couldn't build a detailed address, use the first address line
+        return result.isEmpty() ? address.getAddressLine(0) : result;
+    }
+
     /**
      * Alternative simpler version that returns just the main address line
      */
@@ -192,17 +224,29 @@ public class LocationUtils {
             return null;
         }
 
+        double[] cachedCoordinates = GeocodeCache.getCoordinates(addressString);
+        if (cachedCoordinates != null) {
+            return cachedCoordinates;
+        }
+
         try {
-            Geocoder geocoder = new Geocoder(context, Locale.getDefault());
+            GeocodeCacheDAO diskCache = GeocodeCache.getDiskCache(context);
+            List<Address> addresses = diskCache.getForward(addressString, 1);
 
-            if (!Geocoder.isPresent()) {
-                return null;
-            }
+            if (addresses == null) {
+                Geocoder geocoder = new Geocoder(context, Locale.getDefault());
 
-            List<Address> addresses = geocoder.getFromLocationName(addressString, 1);
+                if (!Geocoder.isPresent()) {
+                    return null;
+                }
+
+                addresses = geocoder.getFromLocationName(addressString, 1);
+                diskCache.putForward(addressString, 1, addresses);
+            }
 
             if (addresses != null && !addresses.isEmpty()) {
                 Address address = addresses.get(0);
+                GeocodeCache.putCoordinates(addressString, address.getLatitude(), address.getLongitude());
                 return new double[]{address.getLatitude(), address.getLongitude()};
             }
 
@@ -396,6 +440,44 @@ public class LocationUtils {
         );
     }
 
+    /**
+     * Get the fixed-grid cell ID containing a coordinate.
+     * Cells are numbered row by row from (-90, -180), so every grid row is a
+     * contiguous range of IDs that an index can scan directly.
+     */
+    public static long getGridCellId(double latitude, double longitude) {
+        return getGridRow(latitude) * GRID_COLUMNS + getGridColumn(longitude);
+    }
+
+    /**
+     * Get the cell ID ranges covering the given bounds, one {first, last} pair per grid row
+     */
+    public static long[][] getGridCellRanges(LocationBounds bounds) {
+        long minRow = getGridRow(bounds.minLatitude);
+        long maxRow = getGridRow(bounds.maxLatitude);
+        long minColumn = getGridColumn(bounds.minLongitude);
+        long maxColumn = getGridColumn(bounds.maxLongitude);
+
+        long[][] ranges = new long[(int) (maxRow - minRow + 1)][];
+        for (long row = minRow; row <= maxRow; row++) {
+            ranges[(int) (row - minRow)] = new long[]{
+                    row * GRID_COLUMNS + minColumn,
+                    row * GRID_COLUMNS + maxColumn
+            };
+        }
+        return ranges;
+    }
+
+    private static long getGridRow(double latitude) {
+        long row = (long) Math.floor((latitude + 90.0) / GRID_CELL_SIZE_DEGREES);
+        return Math.max(0, Math.min(row, GRID_ROWS - 1));
+    }
+
+    private static long getGridColumn(double longitude) {
+        long column = (long) Math.floor((longitude + 180.0) / GRID_CELL_SIZE_DEGREES);
+        return Math.max(0, Math.min(column, GRID_COLUMNS - 1));
+    }
+
     /**
      * Helper class for location bounds
      */
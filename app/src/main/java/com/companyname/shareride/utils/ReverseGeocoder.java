@@ -0,0 +1,147 @@
+package com.companyname.shareride.utils;
+
+import android.content.Context;
+import android.location.Address;
+import android.location.Geocoder;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.companyname.shareride.database.GeocodeCacheDAO;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reverse geocoding for location fixes, off the UI thread.
+ * Fixes are snapped to the GeocodeCacheDAO grid (about 50 m cells by default), so a fix that
+ * jitters by a few metres is answered from memory or the disk cache instead of the Geocoder.
+ * Concurrent lookups in the same cell share one geocoder call, run on the TaskScheduler geocoding pool.
+ * Callbacks always run on the main thread.
+ */
+public final class ReverseGeocoder {
+
+    private static final String TAG = "ReverseGeocoder";
+
+    public interface Callback {
+        // address is null when the geocoder has nothing for this location
+        void onAddressResolved(double latitude, double longitude, Address address);
+        void onLookupFailed(double latitude, double longitude, Exception e);
+    }
+
+    private static class PendingLookup {
+        final double latitude;
+        final double longitude;
+        final Callback callback;
+
+        PendingLookup(double latitude, double longitude, Callback callback) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.callback = callback;
+        }
+    }
+
+    private static final int MAX_CACHED_CELLS = 100;
+    private static final long CACHED_CELL_TTL_MS = 60 * 60 * 1000;
+
+    // Grid cell key -> address, in front of the disk cache
+    private static final ExpiringLruCache<String, Address> recentAddresses =
+            new ExpiringLruCache<>(MAX_CACHED_CELLS, CACHED_CELL_TTL_MS);
+
+    // Grid cell key -> callers waiting for the lookup already running for that cell
+    private static final Map<String, List<PendingLookup>> inFlight = new HashMap<>();
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ReverseGeocoder() {
+    }
+
+    // Size of the cells that share a lookup; also applies to the disk cache
+    public static void setCellSizeMeters(double meters) {
+        GeocodeCacheDAO.setReverseCellSizeMeters(meters);
+        recentAddresses.clear();
+    }
+
+    public static void lookup(Context context, double latitude, double longitude, Callback callback) {
+        String key = cellKey(latitude, longitude);
+        PendingLookup request = new PendingLookup(latitude, longitude, callback);
+
+        Address cached = recentAddresses.get(key);
+        if (cached != null) {
+            mainHandler.post(() -> callback.onAddressResolved(latitude, longitude, cached));
+            return;
+        }
+
+        synchronized (inFlight) {
+            List<PendingLookup> waiting = inFlight.get(key);
+            if (waiting != null) {
+                waiting.add(request);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(request);
+            inFlight.put(key, waiting);
+        }
+
+        Context appContext = context.getApplicationContext();
+        TaskScheduler.getInstance().execute(TaskScheduler.Pool.GEOCODING, TaskScheduler.Priority.USER, () -> {
+            Address address = null;
+            Exception error = null;
+            try {
+                address = resolve(appContext, latitude, longitude);
+                if (address != null) {
+                    recentAddresses.put(key, address);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Reverse geocoding failed: " + e.getMessage(), e);
+                error = e;
+            }
+
+            List<PendingLookup> waiting;
+            synchronized (inFlight) {
+                waiting = inFlight.remove(key);
+            }
+            deliver(waiting, address, error);
+        });
+    }
+
+    // Disk cache first, then the Geocoder; runs on the lookup thread
+    private static Address resolve(Context context, double latitude, double longitude) throws Exception {
+        GeocodeCacheDAO diskCache = GeocodeCache.getDiskCache(context);
+        Address address = diskCache.getReverse(latitude, longitude);
+        if (address != null) {
+            return address;
+        }
+
+        if (!Geocoder.isPresent()) {
+            return null;
+        }
+
+        Geocoder geocoder = new Geocoder(context, Locale.getDefault());
+        List<Address> addresses = geocoder.getFromLocation(latitude, longitude, 1);
+        if (addresses == null || addresses.isEmpty()) {
+            return null;
+        }
+
+        address = addresses.get(0);
+        diskCache.putReverse(latitude, longitude, address);
+        return address;
+    }
+
+    private static void deliver(List<PendingLookup> waiting, Address address, Exception error) {
+        mainHandler.post(() -> {
+            for (PendingLookup request : waiting) {
+                if (error != null) {
+                    request.callback.onLookupFailed(request.latitude, request.longitude, error);
+                } else {
+                    request.callback.onAddressResolved(request.latitude, request.longitude, address);
+                }
+            }
+        });
+    }
+
+    private static String cellKey(double latitude, double longitude) {
+        return GeocodeCacheDAO.quantize(latitude) + "," + GeocodeCacheDAO.quantize(longitude);
+    }
+}
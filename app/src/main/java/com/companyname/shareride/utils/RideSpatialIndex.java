@@ -0,0 +1,337 @@
+package com.companyname.shareride.utils;
+
+import com.companyname.shareride.Ride;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory grid-bucket index over active rides.
+ *
+ * Ride coordinates, departure times and seats live in parallel primitive arrays;
+ * slots are bucketed by the pickup point's grid cell (see {@link LocationUtils#getGridCellId}).
+ * A search only visits the buckets around the pickup point, so it answers without touching SQLite.
+ * Rides are copied on the way in and out, so neither the writer's objects nor a caller's edits to a
+ * result can change what the index holds. The index starts unloaded - callers fall back to RideDAO until {@link #isLoaded()} is true.
+ */
+public class RideSpatialIndex {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static RideSpatialIndex instance;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Slot storage
+    private long[] cellIds = new long[INITIAL_CAPACITY];
+    private double[] fromLatitudes = new double[INITIAL_CAPACITY];
+    private double[] fromLongitudes = new double[INITIAL_CAPACITY];
+    private double[] toLatitudes = new double[INITIAL_CAPACITY];
+    private double[] toLongitudes = new double[INITIAL_CAPACITY];
+    private long[] departureTimes = new long[INITIAL_CAPACITY];
+    private int[] availableSeats = new int[INITIAL_CAPACITY];
+    private Ride[] rides = new Ride[INITIAL_CAPACITY];
+    private int slotCount = 0;
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeSlotCount = 0;
+
+    private final Map<Long, Integer> slotByRideId = new HashMap<>();
+    private final Map<Long, SlotBucket> buckets = new HashMap<>();
+
+    // Load state - rides written while a load is running are reported back to the loader
+    private boolean loaded = false;
+    private boolean loading = false;
+    private final Set<Long> changedWhileLoading = new HashSet<>();
+
+    private RideSpatialIndex() {
+    }
+
+    public static synchronized RideSpatialIndex getInstance() {
+        if (instance == null) {
+            instance = new RideSpatialIndex();
+        }
+        return instance;
+    }
+
+    public boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return loaded;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Start a load; writes reported through markChanged() until finishLoad() are remembered
+    public void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            loading = true;
+            changedWhileLoading.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the index contents with a snapshot of active rides.
+     * @return IDs of rides written while the snapshot was being read; the caller should refresh them
+     */
+    public Set<Long> finishLoad(List<Ride> activeRides) {
+        lock.writeLock().lock();
+        try {
+            clearSlots();
+            for (Ride ride : activeRides) {
+                putLocked(ride);
+            }
+            loaded = true;
+            loading = false;
+
+            Set<Long> changed = new HashSet<>(changedWhileLoading);
+            changedWhileLoading.clear();
+            return changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Record a ride write. Writes during a load are remembered for the loader.
+     * @return true if the index is loaded and the caller should put the fresh ride now
+     */
+    public boolean markChanged(long rideId) {
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                changedWhileLoading.add(rideId);
+            }
+            return loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Add or replace a ride; rides that are no longer active are dropped
+    public void put(Ride ride) {
+        if (ride == null) return;
+
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                putLocked(ride);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long rideId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(rideId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drop everything and return to the unloaded state
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            clearSlots();
+            loaded = false;
+            loading = false;
+            changedWhileLoading.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotByRideId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the nearest rides (by pickup distance) whose pickup point is within radiusKm of
+     * (fromLat, fromLng) and whose drop point is within radiusKm of (toLat, toLng).
+     * @return Up to limit rides, nearest pickup first, then earliest departure (the order of
+     *         RideDAO.searchRideSummaries)
+     */
+    public List<Ride> findNearestRides(double fromLat, double fromLng,
+                                       double toLat, double toLng,
+                                       double radiusKm,
+                                       long startTime, long endTime,
+                                       int minSeats, int limit) {
+        List<Ride> result = new ArrayList<>();
+        LocationUtils.LocationBounds fromBounds = LocationUtils.getLocationBounds(fromLat, fromLng, radiusKm);
+        LocationUtils.LocationBounds toBounds = LocationUtils.getLocationBounds(toLat, toLng, radiusKm);
+        if (fromBounds == null || toBounds == null || limit <= 0) {
+            return result;
+        }
+
+        // Best matches so far, kept sorted by pickup distance
+        int[] bestSlots = new int[limit];
+        double[] bestDistances = new double[limit];
+        int bestCount = 0;
+
+        lock.readLock().lock();
+        try {
+            for (long[] range : LocationUtils.getGridCellRanges(fromBounds)) {
+                for (long cellId = range[0]; cellId <= range[1]; cellId++) {
+                    SlotBucket bucket = buckets.get(cellId);
+                    if (bucket == null) continue;
+
+                    for (int i = 0; i < bucket.size; i++) {
+                        int slot = bucket.slots[i];
+
+                        // Cheap checks first, exact distances last
+                        if (departureTimes[slot] < startTime || departureTimes[slot] > endTime) continue;
+                        if (availableSeats[slot] < minSeats) continue;
+                        if (!fromBounds.contains(fromLatitudes[slot], fromLongitudes[slot])) continue;
+                        if (!toBounds.contains(toLatitudes[slot], toLongitudes[slot])) continue;
+
+                        double fromDistance = LocationUtils.calculateDistance(fromLat, fromLng,
+                                fromLatitudes[slot], fromLongitudes[slot]);
+                        if (fromDistance >= radiusKm) continue;
+                        long departureTime = departureTimes[slot];
+                        if (bestCount == limit && !isBefore(fromDistance, departureTime,
+                                bestDistances[limit - 1], departureTimes[bestSlots[limit - 1]])) continue;
+                        if (LocationUtils.calculateDistance(toLat, toLng,
+                                toLatitudes[slot], toLongitudes[slot]) >= radiusKm) continue;
+
+                        // Insert into the sorted best list, dropping the farthest when full
+                        int position = bestCount < limit ? bestCount++ : limit - 1;
+                        while (position > 0 && isBefore(fromDistance, departureTime,
+                                bestDistances[position - 1], departureTimes[bestSlots[position - 1]])) {
+                            bestSlots[position] = bestSlots[position - 1];
+                            bestDistances[position] = bestDistances[position - 1];
+                            position--;
+                        }
+                        bestSlots[position] = slot;
+                        bestDistances[position] = fromDistance;
+                    }
+                }
+            }
+
+            for (int i = 0; i < bestCount; i++) {
+                result.add(rides[bestSlots[i]].copy());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Nearer pickup first, then earlier departure
+    private static boolean isBefore(double distance, long departureTime, double otherDistance, long otherDepartureTime) {
+        return distance < otherDistance || (distance == otherDistance && departureTime < otherDepartureTime);
+    }
+
+    // Must hold the write lock
+    private void putLocked(Ride ride) {
+        removeLocked(ride.getId());
+        if (!ride.isActive() || ride.getId() <= 0) {
+            return;
+        }
+
+        int slot;
+        if (freeSlotCount > 0) {
+            slot = freeSlots[--freeSlotCount];
+        } else {
+            if (slotCount == rides.length) {
+                grow();
+            }
+            slot = slotCount++;
+        }
+
+        long cellId = LocationUtils.getGridCellId(ride.getFromLatitude(), ride.getFromLongitude());
+        cellIds[slot] = cellId;
+        fromLatitudes[slot] = ride.getFromLatitude();
+        fromLongitudes[slot] = ride.getFromLongitude();
+        toLatitudes[slot] = ride.getToLatitude();
+        toLongitudes[slot] = ride.getToLongitude();
+        departureTimes[slot] = ride.getDepartureTime();
+        availableSeats[slot] = ride.getAvailableSeats();
+        rides[slot] = ride.copy();
+
+        slotByRideId.put(ride.getId(), slot);
+        SlotBucket bucket = buckets.get(cellId);
+        if (bucket == null) {
+            bucket = new SlotBucket();
+            buckets.put(cellId, bucket);
+        }
+        bucket.add(slot);
+    }
+
+    // Must hold the write lock
+    private void removeLocked(long rideId) {
+        Integer slot = slotByRideId.remove(rideId);
+        if (slot == null) return;
+
+        SlotBucket bucket = buckets.get(cellIds[slot]);
+        if (bucket != null) {
+            bucket.remove(slot);
+            if (bucket.size == 0) {
+                buckets.remove(cellIds[slot]);
+            }
+        }
+
+        rides[slot] = null;
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private void clearSlots() {
+        Arrays.fill(rides, 0, slotCount, null);
+        slotCount = 0;
+        freeSlotCount = 0;
+        slotByRideId.clear();
+        buckets.clear();
+    }
+
+    private void grow() {
+        int capacity = rides.length * 2;
+        cellIds = Arrays.copyOf(cellIds, capacity);
+        fromLatitudes = Arrays.copyOf(fromLatitudes, capacity);
+        fromLongitudes = Arrays.copyOf(fromLongitudes, capacity);
+        toLatitudes = Arrays.copyOf(toLatitudes, capacity);
+        toLongitudes = Arrays.copyOf(toLongitudes, capacity);
+        departureTimes = Arrays.copyOf(departureTimes, capacity);
+        availableSeats = Arrays.copyOf(availableSeats, capacity);
+        rides = Arrays.copyOf(rides, capacity);
+    }
+
+    // Growable list of slot numbers for one grid cell
+    private static class SlotBucket {
+        int[] slots = new int[4];
+        int size = 0;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.companyname.shareride.utils;
+
+import android.os.Process;
+import android.util.Log;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * App-wide background work, instead of a new Thread per job.
+ * <ul>
+ * <li>Each kind of work has its own bounded pool, so slow geocoder calls never hold up
+ * database reads and the other way round.</li>
+ * <li>Within a pool, queued tasks run by priority: what the user is waiting for
+ * (USER) goes before NORMAL work, which goes before BACKGROUND work such as stats.</li>
+ * <li>Tasks submitted with a Scope are cancelled together, e.g. when a fragment is
+ * destroyed. Queued tasks are dropped; a running task finishes, but can poll isCancelled.</li>
+ * </ul>
+ * getStats() reports queue depth and wait/run times per pool.
+ */
+public class TaskScheduler {
+
+    private static final String TAG = "TaskScheduler";
+
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 30;
+
+    public enum Pool {
+        // SQLite in WAL mode serves concurrent readers; writers queue on the database lock anyway
+        DATABASE(2),
+        GEOCODING(2),
+        COMPUTE(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)));
+
+        final int threadCount;
+
+        Pool(int threadCount) {
+            this.threadCount = threadCount;
+        }
+    }
+
+    // Declared highest first; queued tasks run in this order, then in submission order
+    public enum Priority {
+        USER,
+        NORMAL,
+        BACKGROUND
+    }
+
+    /**
+     * Handle to submitted work.
+     */
+    public class Task implements Runnable, Comparable<Task> {
+        private final Pool pool;
+        private final Priority priority;
+        private final Scope scope;
+        private final Runnable work;
+        private final long sequence = sequenceCounter.getAndIncrement();
+        private final long submittedAt = System.nanoTime();
+        private volatile boolean cancelled = false;
+
+        Task(Pool pool, Priority priority, Scope scope, Runnable work) {
+            this.pool = pool;
+            this.priority = priority;
+            this.scope = scope;
+            this.work = work;
+        }
+
+        public void cancel() {
+            if (cancelled) return;
+            cancelled = true;
+            if (executors.get(pool).remove(this)) {
+                stats.get(pool).cancelled.incrementAndGet();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (cancelled) return;
+
+                PoolStats poolStats = stats.get(pool);
+                long startedAt = System.nanoTime();
+                poolStats.recordWait(startedAt - submittedAt);
+                try {
+                    work.run();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Task failed in " + pool + " pool", e);
+                }
+                poolStats.recordRun(System.nanoTime() - startedAt);
+            } finally {
+                if (scope != null) scope.remove(this);
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (priority != other.priority) {
+                return priority.compareTo(other.priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Group of tasks cancelled together, typically everything a screen started.
+     * Tasks submitted after cancel() are dropped straight away.
+     */
+    public class Scope {
+        private final Set<Task> tasks = new HashSet<>();
+        private boolean cancelled = false;
+
+        // False if the scope was already cancelled
+        synchronized boolean add(Task task) {
+            if (cancelled) return false;
+            tasks.add(task);
+            return true;
+        }
+
+        synchronized void remove(Task task) {
+            tasks.remove(task);
+        }
+
+        public void cancel() {
+            Task[] pending;
+            synchronized (this) {
+                cancelled = true;
+                pending = tasks.toArray(new Task[0]);
+                tasks.clear();
+            }
+            for (Task task : pending) {
+                task.cancel();
+            }
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static class PoolStats {
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong cancelled = new AtomicLong();
+        final AtomicLong totalWaitNanos = new AtomicLong();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+        final AtomicLong totalRunNanos = new AtomicLong();
+
+        void recordWait(long nanos) {
+            totalWaitNanos.addAndGet(nanos);
+            long max;
+            do {
+                max = maxWaitNanos.get();
+            } while (nanos > max && !maxWaitNanos.compareAndSet(max, nanos));
+        }
+
+        void recordRun(long nanos) {
+            totalRunNanos.addAndGet(nanos);
+            completed.incrementAndGet();
+        }
+    }
+
+    private static TaskScheduler instance;
+
+    private final AtomicLong sequenceCounter = new AtomicLong();
+    private final Map<Pool, ThreadPoolExecutor> executors = new EnumMap<>(Pool.class);
+    private final Map<Pool, PoolStats> stats = new EnumMap<>(Pool.class);
+
+    private TaskScheduler() {
+        for (Pool pool : Pool.values()) {
+            executors.put(pool, createExecutor(pool));
+            stats.put(pool, new PoolStats());
+        }
+    }
+
+    public static synchronized TaskScheduler getInstance() {
+        if (instance == null) {
+            instance = new TaskScheduler();
+        }
+        return instance;
+    }
+
+    public Scope newScope() {
+        return new Scope();
+    }
+
+    public Task execute(Pool pool, Priority priority, Runnable work) {
+        return execute(pool, priority, null, work);
+    }
+
+    public Task execute(Pool pool, Priority priority, Scope scope, Runnable work) {
+        Task task = new Task(pool, priority, scope, work);
+        if (scope != null && !scope.add(task)) {
+            task.cancelled = true;
+            stats.get(pool).cancelled.incrementAndGet();
+            return task;
+        }
+        executors.get(pool).execute(task);
+        return task;
+    }
+
+    // For APIs that take an Executor, e.g. RecyclerView's AsyncListDiffer
+    public Executor asExecutor(Pool pool, Priority priority) {
+        return work -> execute(pool, priority, work);
+    }
+
+    public int getQueueDepth(Pool pool) {
+        return executors.get(pool).getQueue().size();
+    }
+
+    // Average time tasks spent queued before they started
+    public double getAverageWaitMillis(Pool pool) {
+        PoolStats poolStats = stats.get(pool);
+        long completed = poolStats.completed.get();
+        return completed == 0 ? 0 : poolStats.totalWaitNanos.get() / 1e6 / completed;
+    }
+
+    // Queue depth and latency of each pool, for logging
+    public String getStats() {
+        StringBuilder builder = new StringBuilder();
+        for (Pool pool : Pool.values()) {
+            ThreadPoolExecutor executor = executors.get(pool);
+            PoolStats poolStats = stats.get(pool);
+            long completed = poolStats.completed.get();
+
+            if (builder.length() > 0) builder.append(", ");
+            builder.append(pool)
+                    .append("{queued=").append(executor.getQueue().size())
+                    .append(", active=").append(executor.getActiveCount())
+                    .append(", completed=").append(completed)
+                    .append(", cancelled=").append(poolStats.cancelled.get())
+                    .append(", avgWaitMs=").append(completed == 0 ? 0 : poolStats.totalWaitNanos.get() / 1000000 / completed)
+                    .append(", maxWaitMs=").append(poolStats.maxWaitNanos.get() / 1000000)
+                    .append(", avgRunMs=").append(completed == 0 ? 0 : poolStats.totalRunNanos.get() / 1000000 / completed)
+                    .append('}');
+        }
+        return builder.toString();
+    }
+
+    private static ThreadPoolExecutor createExecutor(Pool pool) {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                pool.threadCount, pool.threadCount,
+                IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(),
+                runnable -> new Thread(() -> {
+                    // Keep background work from competing with the UI thread
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "shareride-" + pool.name().toLowerCase(Locale.ROOT) + "-" + threadNumber.getAndIncrement()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
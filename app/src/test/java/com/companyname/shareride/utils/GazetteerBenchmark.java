@@ -0,0 +1,67 @@
+package com.companyname.shareride.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Gazetteer lookup latency at growing file sizes, on the host JVM. Not a test, so it never gates
+ * the build: run it by hand from the test classpath and compare the per-lookup times. A binary
+ * search over the mapped keys should cost a few more probes at 100x the places, not 100x the time.
+ */
+public class GazetteerBenchmark {
+
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final int WARMUP_LOOKUPS = 2_000;
+    private static final int TIMED_LOOKUPS = 20_000;
+
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(42);
+
+        for (int size : SIZES) {
+            File file = File.createTempFile("gazetteer-" + size, ".bin");
+            file.deleteOnExit();
+            GazetteerTest.generatedPlaces(size, random).write(file);
+            Gazetteer gazetteer = Gazetteer.open(file);
+
+            String[] queries = queries(random);
+            int found = 0;
+            for (int i = 0; i < WARMUP_LOOKUPS; i++) {
+                found += gazetteer.search(queries[i % queries.length], 10).size();
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < TIMED_LOOKUPS; i++) {
+                found += gazetteer.search(queries[i % queries.length], 10).size();
+            }
+            double nanosPerLookup = (System.nanoTime() - start) / (double) TIMED_LOOKUPS;
+
+            System.out.printf("Gazetteer: %d places, %d KB, %.1f us per lookup (%d results)%n",
+                    size, file.length() / 1024, nanosPerLookup / 1000, found);
+        }
+    }
+
+    // Word prefixes and numbers, a mix of hits and misses
+    private static String[] queries(Random random) {
+        String[] words = GazetteerTest.WORDS;
+        String[] queries = new String[256];
+        for (int i = 0; i < queries.length; i++) {
+            String word = words[random.nextInt(words.length)];
+            switch (i % 4) {
+                case 0:
+                    queries[i] = word.substring(0, 2);
+                    break;
+                case 1:
+                    queries[i] = word + " " + words[random.nextInt(words.length)].substring(0, 1);
+                    break;
+                case 2:
+                    queries[i] = String.valueOf(random.nextInt(1_000));
+                    break;
+                default:
+                    queries[i] = word + "x";
+                    break;
+            }
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,47 @@
+package com.companyname.shareride.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds a gazetteer file on a desktop JVM, from the test classpath:
+ *
+ *   java GazetteerBuilderTool places.tsv gazetteer.bin
+ *
+ * reads one place per line as "name TAB latitude TAB longitude [TAB popularity]".
+ */
+public class GazetteerBuilderTool {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: GazetteerBuilderTool <places.tsv> <gazetteer.bin>");
+            System.exit(1);
+        }
+
+        GazetteerBuilder builder = new GazetteerBuilder();
+        int skipped = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                try {
+                    int popularity = fields.length > 3 ? Integer.parseInt(fields[3].trim()) : 0;
+                    builder.add(fields[0], Double.parseDouble(fields[1].trim()),
+                            Double.parseDouble(fields[2].trim()), popularity);
+                } catch (RuntimeException e) {
+                    skipped++;
+                }
+            }
+        }
+
+        File output = new File(args[1]);
+        builder.write(output);
+        System.out.println("Wrote " + builder.size() + " places (" + output.length() + " bytes), skipped "
+                + skipped + " lines");
+    }
+}
@@ -0,0 +1,131 @@
+package com.companyname.shareride.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Gazetteer files written by GazetteerBuilder and searched through Gazetteer.open, on the host JVM.
+ */
+public class GazetteerTest {
+
+    static final String[] WORDS = {
+            "road", "nagar", "colony", "market", "station", "park", "gate", "circle",
+            "layout", "bazaar", "chowk", "cross", "temple", "lake", "hill", "fort"
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void search_findsPlacesByWordPrefix() throws IOException {
+        Gazetteer gazetteer = open(samplePlaces(), "sample.bin");
+
+        List<Gazetteer.Place> results = gazetteer.search("road", 10);
+        assertEquals(3, results.size());
+        // Most popular first
+        assertEquals("MG Road, Bengaluru", results.get(0).name);
+        assertEquals("Ring Road, Delhi", results.get(1).name);
+        assertEquals("Goa Beach Road", results.get(2).name);
+
+        results = gazetteer.search("MG RO", 10);
+        assertEquals(1, results.size());
+        assertEquals("MG Road, Bengaluru", results.get(0).name);
+        assertEquals(12.9756, results.get(0).latitude, 1e-6);
+        assertEquals(77.6066, results.get(0).longitude, 1e-6);
+    }
+
+    @Test
+    public void search_skipsKeysShorterThanThePrefix() throws IOException {
+        Gazetteer gazetteer = open(samplePlaces(), "sample.bin");
+
+        // "goa" sorts right before "goa beach" but is too short to start with it
+        List<Gazetteer.Place> results = gazetteer.search("goa beach", 10);
+        assertEquals(1, results.size());
+        assertEquals("Goa Beach Road", results.get(0).name);
+
+        results = gazetteer.search("goa", 10);
+        assertEquals(2, results.size());
+        assertEquals("Goa", results.get(0).name);
+    }
+
+    @Test
+    public void search_returnsEmptyListWithoutMatches() throws IOException {
+        Gazetteer gazetteer = open(samplePlaces(), "sample.bin");
+
+        assertTrue(gazetteer.search("", 10).isEmpty());
+        assertTrue(gazetteer.search(" ,. ", 10).isEmpty());
+        assertTrue(gazetteer.search("zzz", 10).isEmpty());
+        assertTrue(gazetteer.search("aaa", 10).isEmpty()); // Before the first key
+        assertTrue(gazetteer.search("road", 0).isEmpty());
+    }
+
+    @Test
+    public void search_keepsLimitMostPopular() throws IOException {
+        Gazetteer gazetteer = open(generatedPlaces(1_000, new Random(7)), "places.bin");
+
+        List<Gazetteer.Place> results = gazetteer.search("road", 5);
+        assertEquals(5, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertTrue(GazetteerBuilder.normalize(results.get(i).name).contains("road"));
+            if (i > 0) {
+                assertTrue(results.get(i - 1).popularity >= results.get(i).popularity);
+            }
+        }
+    }
+
+    @Test
+    public void search_ranksTheWholeMatchingRange() throws IOException {
+        GazetteerBuilder builder = new GazetteerBuilder();
+        for (int i = 0; i < 1_000; i++) {
+            builder.add("Aaa Road " + i, 12.9, 77.6, i);
+        }
+        // Its "road" key sorts after every "road <n>" key
+        builder.add("Zzz Road", 12.9, 77.6, 1_000_000);
+        Gazetteer gazetteer = open(builder, "road.bin");
+
+        List<Gazetteer.Place> results = gazetteer.search("road", 3);
+        assertEquals(3, results.size());
+        assertEquals("Zzz Road", results.get(0).name);
+        assertEquals("Aaa Road 999", results.get(1).name);
+        assertEquals("Aaa Road 998", results.get(2).name);
+    }
+
+    private Gazetteer open(GazetteerBuilder builder, String name) throws IOException {
+        File file = folder.newFile(name);
+        builder.write(file);
+        return Gazetteer.open(file);
+    }
+
+    private static GazetteerBuilder samplePlaces() {
+        GazetteerBuilder builder = new GazetteerBuilder();
+        builder.add("MG Road, Bengaluru", 12.9756, 77.6066, 900);
+        builder.add("Ring Road, Delhi", 28.5672, 77.2100, 500);
+        builder.add("Goa", 15.2993, 74.1240, 800);
+        builder.add("Goa Beach Road", 15.5520, 73.7517, 100);
+        builder.add("Connaught Place", 28.6315, 77.2167, 700);
+        return builder;
+    }
+
+    // Names like "Lake Market 123", with unique popularity so the ranking is well defined
+    static GazetteerBuilder generatedPlaces(int count, Random random) {
+        GazetteerBuilder builder = new GazetteerBuilder();
+        for (int i = 0; i < count; i++) {
+            String name = capitalize(WORDS[random.nextInt(WORDS.length)]) + " " +
+                    capitalize(WORDS[random.nextInt(WORDS.length)]) + " " + i;
+            builder.add(name, random.nextDouble() * 30 + 8, random.nextDouble() * 30 + 68, i);
+        }
+        return builder;
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}